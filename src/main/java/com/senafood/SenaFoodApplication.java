@@ -2,9 +2,12 @@ package com.senafood;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 //Le dice a Spring Boot dónde empezar a buscar componentes.
 @SpringBootApplication 
+// Habilita las tareas programadas (@Scheduled), p. ej. la limpieza de imágenes huérfanas.
+@EnableScheduling
 public class SenaFoodApplication {
     
     // metodo principal El punto de entrada de la aplicación Java.
@@ -1,10 +1,14 @@
 package com.senafood.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import java.util.concurrent.ThreadPoolExecutor;
+
 @Configuration // Indica que esta clase contiene configuraciones de Spring
 public class BeansConfig {
 
@@ -14,4 +18,21 @@ public class BeansConfig {
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();  // Retorna una instancia del encriptador BCrypt
     }
+
+    // Executor acotado para procesar y eliminar imágenes de productos en segundo plano.
+    // Con la cola llena, la tarea corre en el hilo que la envía (contrapresión).
+    @Bean(name = "imagenesExecutor")
+    public ThreadPoolTaskExecutor imagenesExecutor(@Value("${senafood.imagenes.hilos:2}") int hilos,
+                                                   @Value("${senafood.imagenes.cola:100}") int cola) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(hilos);
+        executor.setMaxPoolSize(hilos);
+        executor.setQueueCapacity(cola);
+        executor.setThreadNamePrefix("imagenes-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        // Al apagar, terminar las imágenes en curso antes de cerrar
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        return executor;
+    }
 }
@@ -39,7 +39,7 @@ public class SecurityConfig {
         http
             .authorizeHttpRequests(authorize -> authorize
                 // Rutas públicas
-                .requestMatchers("/", "/css/**", "/js/**", "/img/**", "/uploads/**", "/register", "/login").permitAll()
+                .requestMatchers("/", "/css/**", "/js/**", "/img/**", "/imagenes/**", "/uploads/**", "/register", "/login").permitAll()
                 
                 // Rutas públicas accesibles sin autenticación
                 .requestMatchers("/", "/css/**", "/js/**", "/img/**", "/register", "/login").permitAll()
@@ -56,6 +56,9 @@ public class SecurityConfig {
                 // Esto incluye: /ordenescompra, /ordenescompra/form, /ordenescompra/save, /ordenescompra/reporte/**
                 .requestMatchers("/ordenescompra/**").hasAnyRole("ADMINISTRADOR", "VENDEDOR")
                 
+                // Inventario por ubicación: ADMINISTRADOR y VENDEDOR
+                .requestMatchers("/inventario/**").hasAnyRole("ADMINISTRADOR", "VENDEDOR")
+                
                 // Rutas de producto accesibles para varios roles
                 .requestMatchers("/producto/**").hasAnyRole("ADMINISTRADOR", "VENDEDOR")
                 
@@ -1,5 +1,94 @@
 package com.senafood.controller;
 
+import com.senafood.model.Pedido;
+import com.senafood.service.CarritoService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+import java.security.Principal;
+
+/**
+ * Carrito de compras del usuario autenticado. El carrito vive en memoria
+ * (CarritoService); solo confirmar la compra escribe en la base de datos.
+ */
+@Controller
+@RequestMapping("/carrito")
 public class CarritoController {
-    
+
+    @Autowired
+    private CarritoService carritoService;
+
+    @GetMapping
+    public String ver(Principal principal, Model model) {
+        model.addAttribute("carrito", carritoService.ver(principal.getName()));
+        model.addAttribute("pedidos", carritoService.pedidosRecientes(principal.getName()));
+        return "carrito/view";
+    }
+
+    /**
+     * Agregar un producto desde el catálogo
+     */
+    @PostMapping("/add")
+    public String agregar(@RequestParam("idProducto") Long idProducto,
+                          @RequestParam(value = "cantidad", defaultValue = "1") Integer cantidad,
+                          Principal principal,
+                          RedirectAttributes redirectAttributes) {
+        try {
+            int enCarrito = carritoService.agregar(principal.getName(), idProducto, cantidad);
+            redirectAttributes.addFlashAttribute("success", "✅ Producto agregado al carrito (" + enCarrito + " en total).");
+        } catch (Exception e) {
+            System.err.println("❌ Error al agregar al carrito: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "❌ " + e.getMessage());
+        }
+        return "redirect:/producto/catalogo";
+    }
+
+    @PostMapping("/actualizar/{idProducto}")
+    public String actualizar(@PathVariable Long idProducto,
+                             @RequestParam("cantidad") Integer cantidad,
+                             Principal principal,
+                             RedirectAttributes redirectAttributes) {
+        try {
+            carritoService.actualizar(principal.getName(), idProducto, cantidad != null ? cantidad : 0);
+        } catch (Exception e) {
+            System.err.println("❌ Error al actualizar el carrito: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "❌ " + e.getMessage());
+        }
+        return "redirect:/carrito";
+    }
+
+    @PostMapping("/quitar/{idProducto}")
+    public String quitar(@PathVariable Long idProducto, Principal principal) {
+        carritoService.quitar(principal.getName(), idProducto);
+        return "redirect:/carrito";
+    }
+
+    @PostMapping("/vaciar")
+    public String vaciar(Principal principal) {
+        carritoService.vaciar(principal.getName());
+        return "redirect:/carrito";
+    }
+
+    /**
+     * Confirmar la compra: descuenta el stock de todo el carrito o de nada
+     */
+    @PostMapping("/checkout")
+    public String confirmarCompra(Principal principal, RedirectAttributes redirectAttributes) {
+        try {
+            Pedido pedido = carritoService.confirmarCompra(principal.getName());
+            redirectAttributes.addFlashAttribute("success", "✅ Pedido #" + pedido.getIdPedido() + " confirmado: "
+                + pedido.getUnidades() + " unidades por $" + pedido.getTotal());
+        } catch (Exception e) {
+            System.err.println("❌ Error al confirmar la compra: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "❌ No se pudo confirmar la compra: " + e.getMessage());
+        }
+        return "redirect:/carrito";
+    }
 }
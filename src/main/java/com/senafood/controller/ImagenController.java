@@ -0,0 +1,203 @@
+package com.senafood.controller;
+
+import com.senafood.service.ImagenProductoService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Entrega de las imágenes del almacén de productos (/imagenes/{carpeta}/{archivo}).
+ *
+ * Los nombres son el hash del contenido, así que el ETag sale del propio nombre
+ * (sin leer el archivo) y la respuesta se marca como inmutable por un año.
+ * Soporta If-None-Match (304) y un rango de bytes (206). El cuerpo se envía
+ * con sendfile de Tomcat cuando está disponible y, si no, con
+ * FileChannel.transferTo, sin copiar el archivo a buffers de la aplicación.
+ */
+@Controller
+public class ImagenController {
+
+    private static final String CACHE_INMUTABLE = "public, max-age=31536000, immutable";
+
+    private static final Map<String, String> TIPOS = Map.of(
+        ".jpg", "image/jpeg",
+        ".jpeg", "image/jpeg",
+        ".png", "image/png",
+        ".gif", "image/gif",
+        ".webp", "image/webp",
+        ".avif", "image/avif");
+
+    // Atributos de Tomcat para delegar el envío del archivo al conector (sendfile)
+    private static final String SENDFILE_SOPORTADO = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_ARCHIVO = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_INICIO = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_FIN = "org.apache.tomcat.sendfile.end";
+
+    private final ImagenProductoService imagenProductoService;
+
+    public ImagenController(ImagenProductoService imagenProductoService) {
+        this.imagenProductoService = imagenProductoService;
+    }
+
+    @RequestMapping(value = "/imagenes/{carpeta}/{archivo:.+}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void servir(@PathVariable String carpeta,
+                       @PathVariable String archivo,
+                       HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        Path ruta = archivo.startsWith(carpeta) ? imagenProductoService.ruta(archivo) : null;
+        if (ruta == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        // El nombre (hash + variante) identifica el contenido: ETag fuerte sin leer el archivo
+        int punto = archivo.lastIndexOf('.');
+        String etag = "\"" + (punto > 0 ? archivo.substring(0, punto) : archivo) + "\"";
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_INMUTABLE);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (coincideEtag(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        long tamano = Files.size(ruta);
+        long inicio = 0;
+        long fin = tamano - 1;
+
+        // If-Range con otro ETag: el cliente tiene otra versión, se envía completo
+        String rango = request.getHeader(HttpHeaders.RANGE);
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (rango != null && (ifRange == null || ifRange.equals(etag))) {
+            long[] limites = leerRango(rango, tamano);
+            if (limites == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + tamano);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            if (limites.length == 2) {
+                inicio = limites[0];
+                fin = limites[1];
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + inicio + "-" + fin + "/" + tamano);
+            }
+        }
+
+        long longitud = fin - inicio + 1;
+        response.setContentType(tipoContenido(archivo, ruta));
+        response.setContentLengthLong(longitud);
+        if ("HEAD".equals(request.getMethod()) || longitud <= 0) {
+            return;
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SOPORTADO))) {
+            request.setAttribute(SENDFILE_ARCHIVO, ruta.toString());
+            request.setAttribute(SENDFILE_INICIO, inicio);
+            request.setAttribute(SENDFILE_FIN, fin + 1);
+            return;
+        }
+
+        try (FileChannel canal = FileChannel.open(ruta, StandardOpenOption.READ)) {
+            WritableByteChannel salida = Channels.newChannel(response.getOutputStream());
+            long enviado = 0;
+            while (enviado < longitud) {
+                enviado += canal.transferTo(inicio + enviado, longitud - enviado, salida);
+            }
+        }
+    }
+
+    /**
+     * If-None-Match puede traer varios ETags, débiles (W/) o "*".
+     */
+    private static boolean coincideEtag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String valor : ifNoneMatch.split(",")) {
+            String candidato = valor.trim();
+            if (candidato.startsWith("W/")) {
+                candidato = candidato.substring(2);
+            }
+            if (candidato.equals("*") || candidato.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Interpreta "bytes=a-b", "bytes=a-" o "bytes=-n". Retorna {inicio, fin},
+     * un arreglo vacío si el encabezado se ignora (otra unidad, varios rangos o
+     * un rango inválido como "bytes=5-2": se responde el archivo completo) o
+     * null si el rango no es satisfacible.
+     */
+    private static long[] leerRango(String rango, long tamano) {
+        if (!rango.startsWith("bytes=") || rango.indexOf(',') >= 0) {
+            return new long[0];
+        }
+        String especificacion = rango.substring("bytes=".length()).trim();
+        int guion = especificacion.indexOf('-');
+        if (guion < 0) {
+            return new long[0];
+        }
+        try {
+            String desde = especificacion.substring(0, guion).trim();
+            String hasta = especificacion.substring(guion + 1).trim();
+            long inicio;
+            long fin;
+            if (desde.isEmpty()) {
+                // Sufijo: los últimos n bytes
+                long sufijo = Long.parseLong(hasta);
+                if (sufijo <= 0) {
+                    return null;
+                }
+                inicio = Math.max(0, tamano - sufijo);
+                fin = tamano - 1;
+            } else {
+                inicio = Long.parseLong(desde);
+                fin = tamano - 1;
+                if (!hasta.isEmpty()) {
+                    long ultimo = Long.parseLong(hasta);
+                    if (ultimo < inicio) {
+                        // Último byte antes del primero: rango inválido, se ignora
+                        return new long[0];
+                    }
+                    fin = Math.min(ultimo, fin);
+                }
+            }
+            if (inicio >= tamano) {
+                return null;
+            }
+            return new long[] {inicio, fin};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+
+    private static String tipoContenido(String archivo, Path ruta) throws IOException {
+        // Las variantes son JPEG; los originales sin decodificar conservan su formato
+        int punto = archivo.lastIndexOf('.');
+        String tipo = punto > 0 ? TIPOS.get(archivo.substring(punto).toLowerCase(Locale.ROOT)) : null;
+        if (tipo != null) {
+            return tipo;
+        }
+        tipo = Files.probeContentType(ruta);
+        return tipo != null ? tipo : "application/octet-stream";
+    }
+}
@@ -0,0 +1,60 @@
+package com.senafood.controller;
+
+import com.senafood.model.Ubicacion;
+import com.senafood.service.InventoryService;
+import com.senafood.service.UbicacionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+
+/**
+ * Inventario por ubicación (cafeterías y bodegas): totales de cada ubicación,
+ * productos con stock bajo en una de ellas y alta de ubicaciones.
+ */
+@Controller
+@RequestMapping("/inventario")
+public class InventarioController {
+
+    // Mismo umbral de stock bajo que el listado de productos
+    private static final int STOCK_BAJO = 10;
+    private static final int MAX_STOCK_BAJO = 100;
+
+    @Autowired
+    private InventoryService inventoryService;
+
+    @Autowired
+    private UbicacionService ubicacionService;
+
+    @GetMapping
+    public String index(@RequestParam(value = "ubicacion", required = false) Integer idUbicacion, Model model) {
+        Integer seleccionada = idUbicacion != null ? idUbicacion : ubicacionService.getPrincipal();
+
+        // Un solo GROUP BY para todas las ubicaciones
+        model.addAttribute("resumen", inventoryService.resumenPorUbicacion(STOCK_BAJO));
+        model.addAttribute("ubicacionSeleccionada", seleccionada);
+        model.addAttribute("nombreSeleccionada", ubicacionService.nombre(seleccionada));
+        model.addAttribute("stockBajo", inventoryService.stockBajo(seleccionada, STOCK_BAJO, MAX_STOCK_BAJO));
+        model.addAttribute("umbralStockBajo", STOCK_BAJO);
+        return "inventario/index";
+    }
+
+    @PostMapping("/ubicaciones")
+    public String crearUbicacion(@RequestParam("nombre") String nombre,
+                                 @RequestParam("tipo") String tipo,
+                                 RedirectAttributes redirectAttributes) {
+        if (nombre == null || nombre.isBlank()) {
+            redirectAttributes.addFlashAttribute("error", "❌ El nombre de la ubicación es obligatorio.");
+            return "redirect:/inventario";
+        }
+        String tipoUbicacion = Ubicacion.BODEGA.equals(tipo) ? Ubicacion.BODEGA : Ubicacion.CAFETERIA;
+        Ubicacion guardada = ubicacionService.guardar(new Ubicacion(nombre.trim(), tipoUbicacion));
+        System.out.println("📍 Ubicación creada: " + guardada.getNombre());
+        redirectAttributes.addFlashAttribute("success", "✅ Ubicación '" + guardada.getNombre() + "' creada.");
+        return "redirect:/inventario";
+    }
+}
@@ -1,10 +1,26 @@
 package com.senafood.controller;
 
+import com.senafood.model.FiltroCatalogo;
+import com.senafood.model.LineaEscaneo;
+import com.senafood.model.PaginaKeyset;
 import com.senafood.model.Producto;
+import com.senafood.model.ProductoEstadisticas;
+import com.senafood.model.ProductoResumen;
+import com.senafood.model.RangoPrecio;
+import com.senafood.model.ResultadoImportacion;
+import com.senafood.model.Ubicacion;
+import com.senafood.service.CarritoService;
+import com.senafood.service.ExportacionProductosService;
+import com.senafood.service.ImportacionProductosService;
+import com.senafood.service.InventoryService;
+import com.senafood.service.LoteService;
 import com.senafood.service.ProductoService;
+import com.senafood.service.UbicacionService;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.propertyeditors.CustomDateEditor; // NUEVA IMPORTACIÓN
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
@@ -14,10 +30,13 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.security.Principal;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 @Controller
@@ -27,11 +46,38 @@ public class ProductoController {
     @Autowired
     private ProductoService productoService;
     
+    @Autowired
+    private ImportacionProductosService importacionProductosService;
+    
+    @Autowired
+    private ExportacionProductosService exportacionProductosService;
+    
+    @Autowired
+    private LoteService loteService;
+    
+    @Autowired
+    private InventoryService inventoryService;
+    
+    @Autowired
+    private UbicacionService ubicacionService;
+    
+    @Autowired
+    private CarritoService carritoService;
+    
     // Formato de fecha para el formulario (yyyy-MM-dd para HTML5 input type="date")
     private static final SimpleDateFormat DATE_FORMAT_INPUT = new SimpleDateFormat("yyyy-MM-dd");
     // Formato para la base de datos (yy-MM-dd) - Mantener si se usa internamente
     private static final SimpleDateFormat DATE_FORMAT_DB = new SimpleDateFormat("yy-MM-dd");
     
+    // Filas por página (paginación keyset sobre id_producto)
+    private static final int TAMANO_PAGINA_INDEX = 100;
+    private static final int TAMANO_PAGINA_CATALOGO = 48;
+    
+    // Sugerencias máximas del autocompletado
+    private static final int MAX_SUGERENCIAS = 20;
+    // Códigos máximos por llamada de escaneo
+    private static final int MAX_CODIGOS_ESCANEO = 500;
+    
     /**
      * Configura el DataBinder para que Spring pueda convertir automáticamente
      * la cadena de fecha (yyyy-MM-dd) del formulario a java.util.Date.
@@ -44,39 +90,44 @@ public class ProductoController {
     }
     
     /**
-     * Página principal - Lista todos los productos
+     * Ubicaciones activas para los selectores de los formularios
+     */
+    @ModelAttribute("ubicaciones")
+    public List<Ubicacion> ubicaciones() {
+        return ubicacionService.listarActivas();
+    }
+    
+    /**
+     * Categorías existentes para las sugerencias del formulario y el catálogo.
+     * Se leen del índice en memoria, sin recorrer la tabla de productos.
+     */
+    @ModelAttribute("categorias")
+    public Map<String, Long> categorias() {
+        return productoService.contarPorCategoria();
+    }
+    
+    /**
+     * Página principal - Lista los productos por páginas (keyset sobre id_producto)
      */
     @GetMapping
-    public String index(Model model) {
+    public String index(@RequestParam(value = "despuesDe", required = false) Long despuesDe,
+                        @RequestParam(value = "antesDe", required = false) Long antesDe,
+                        Model model) {
         System.out.println("=== CARGANDO PÁGINA PRODUCTOS ===");
         
         try {
-            List<Producto> productos = productoService.findAll();
-            System.out.println("✅ Productos encontrados: " + productos.size());
-            
-            // Log de primeros productos para debug
-            if (!productos.isEmpty()) {
-                for (int i = 0; i < Math.min(3, productos.size()); i++) {
-                    Producto p = productos.get(i);
-                    System.out.println("📦 Producto " + (i+1) + ": " + p.getNombre() + " - $" + p.getCostoUnitario());
-                }
-            }
+            PaginaKeyset<ProductoResumen> pagina = productoService.findPagina(despuesDe, antesDe, TAMANO_PAGINA_INDEX);
+            System.out.println("✅ Productos en la página: " + pagina.getContenido().size());
             
-            model.addAttribute("productos", productos);
+            model.addAttribute("productos", pagina.getContenido());
+            model.addAttribute("pagina", pagina);
             model.addAttribute("titulo", "Gestión de Productos");
             
-            // Obtener estadísticas
-            long totalProductos = productos.size();
-            long productosActivos = productos.stream()
-                .filter(p -> "activo".equals(p.getEstado()))
-                .count();
-            long stockBajo = productos.stream()
-                .filter(p -> p.getStock() < 10)
-                .count();
-            
-            model.addAttribute("totalProductos", totalProductos);
-            model.addAttribute("productosActivos", productosActivos);
-            model.addAttribute("stockBajo", stockBajo);
+            // Estadísticas calculadas en una sola consulta agregada
+            ProductoEstadisticas estadisticas = productoService.obtenerEstadisticas();
+            model.addAttribute("totalProductos", estadisticas.getTotalProductos());
+            model.addAttribute("productosActivos", estadisticas.getProductosActivos());
+            model.addAttribute("stockBajo", estadisticas.getStockBajo());
             
             return "producto/index";
             
@@ -100,7 +151,7 @@ public class ProductoController {
         // Establecer valores por defecto
         producto.setStock(0);
         producto.setEstado("activo");
-        producto.setIdInventario(1);
+        producto.setIdInventario(ubicacionService.getPrincipal());
         
         // Establecer fecha por defecto (30 días desde hoy)
         Date fechaDefault = new Date();
@@ -156,9 +207,9 @@ public class ProductoController {
             // Manejar la imagen
             if (imagenFile != null && !imagenFile.isEmpty()) {
                 try {
-                    String fileName = productoService.saveImage(imagenFile);
-                    producto.setImagen(fileName);
-                    System.out.println("📸 Imagen guardada: " + fileName);
+                    // Se procesa en segundo plano después de guardar el producto
+                    producto.setImagenSubida(productoService.saveImage(imagenFile));
+                    System.out.println("📸 Imagen recibida: " + imagenFile.getOriginalFilename());
                 } catch (IOException e) {
                     result.rejectValue("imagen", "error.producto", 
                         "Error al guardar la imagen: " + e.getMessage());
@@ -171,9 +222,6 @@ public class ProductoController {
             if (producto.getEstado() == null || producto.getEstado().isEmpty()) {
                 producto.setEstado("activo");
             }
-            if (producto.getIdInventario() == null) {
-                producto.setIdInventario(1);
-            }
             
             // Guardar el producto
             Producto savedProducto = productoService.save(producto);
@@ -213,6 +261,12 @@ public class ProductoController {
         // se encarga de mostrar la fecha en el formato correcto (yyyy-MM-dd)
         // cuando se usa th:field con un objeto Date.
         
+        // El vencimiento del producto (lote más próximo) solo se muestra; el campo de
+        // fecha del formulario es el de las unidades que se agreguen al editar
+        model.addAttribute("proximoVencimiento", producto.getFechaVencimiento());
+        if (producto.getFechaVencimiento() == null || !producto.getFechaVencimiento().after(new Date())) {
+            producto.setFechaVencimiento(null);
+        }
         model.addAttribute("producto", producto);
         
         return "producto/form";
@@ -227,11 +281,17 @@ public class ProductoController {
                          BindingResult result,
                          @RequestParam(value = "imagenFile", required = false) MultipartFile imagenFile,
                          @RequestParam(value = "eliminarImagen", required = false) Boolean eliminarImagen,
+                         Model model,
                          RedirectAttributes redirectAttributes) { // ELIMINADO: fechaVencimientoStr
         
         System.out.println("🔄 Intentando actualizar producto ID: " + id);
         
         // La fechaVencimiento ahora se vincula automáticamente al objeto 'producto'
+        // y es la del stock agregado (ver edit()); el vencimiento del producto lo
+        // siguen dando sus lotes
+        Optional<Producto> productoExistenteOpt = productoService.findById(id);
+        productoExistenteOpt.ifPresent(existente ->
+            model.addAttribute("proximoVencimiento", existente.getFechaVencimiento()));
         
         if (result.hasErrors()) {
             System.out.println("❌ Errores de validación encontrados en update()");
@@ -251,8 +311,7 @@ public class ProductoController {
                 return "producto/form";
             }
             
-            // Obtener producto existente
-            Optional<Producto> productoExistenteOpt = productoService.findById(id);
+            // Producto existente
             if (productoExistenteOpt.isEmpty()) {
                 System.out.println("❌ Producto no encontrado con ID: " + id);
                 redirectAttributes.addFlashAttribute("error", "Producto no encontrado.");
@@ -273,30 +332,18 @@ public class ProductoController {
                 return "producto/form";
             }
             
-            // Manejar eliminación de imagen
+            // Manejar eliminación de imagen (el archivo se libera tras confirmar el cambio)
             if (Boolean.TRUE.equals(eliminarImagen) && productoExistente.getImagen() != null) {
-                try {
-                    productoService.deleteImage(productoExistente.getImagen());
-                    producto.setImagen(null);
-                    System.out.println("🗑️ Imagen eliminada: " + productoExistente.getImagen());
-                } catch (IOException e) {
-                    System.err.println("⚠️ Error eliminando imagen: " + e.getMessage());
-                }
+                producto.setImagen(null);
+                System.out.println("🗑️ Imagen eliminada: " + productoExistente.getImagen());
             }
             
             // Manejar nueva imagen
             if (imagenFile != null && !imagenFile.isEmpty()) {
                 try {
-                    // Eliminar imagen anterior si existe
-                    if (productoExistente.getImagen() != null) {
-                        productoService.deleteImage(productoExistente.getImagen());
-                        System.out.println("🗑️ Imagen anterior eliminada: " + productoExistente.getImagen());
-                    }
-                    
-                    // Guardar nueva imagen
-                    String fileName = productoService.saveImage(imagenFile);
-                    producto.setImagen(fileName);
-                    System.out.println("📸 Nueva imagen guardada: " + fileName);
+                    // La imagen anterior se mantiene hasta que la nueva termine de procesarse
+                    producto.setImagenSubida(productoService.saveImage(imagenFile));
+                    System.out.println("📸 Nueva imagen recibida: " + imagenFile.getOriginalFilename());
                 } catch (IOException e) {
                     result.rejectValue("imagen", "error.producto", 
                         "Error al guardar la imagen: " + e.getMessage());
@@ -367,19 +414,24 @@ public class ProductoController {
     }
     
     /**
-     * Buscar productos por nombre
+     * Buscar productos por nombre, descripción o categoría
      */
     @GetMapping("/search")
     public String search(@RequestParam(value = "query", required = false) String query, 
                          Model model) {
         System.out.println("🔍 Buscando productos con query: " + query);
         
-        List<Producto> productos;
-        
         if (query == null || query.trim().isEmpty()) {
-            productos = productoService.findAll();
-        } else {
-            productos = productoService.searchByNombre(query);
+            return "redirect:/producto";
+        }
+        
+        // Resultados ordenados por relevancia desde el índice en memoria
+        List<ProductoResumen> productos = productoService.buscar(query, TAMANO_PAGINA_INDEX);
+        
+        // Sin coincidencias exactas: reintentar tolerando errores de tipeo
+        if (productos.isEmpty()) {
+            productos = productoService.buscarAproximado(query, TAMANO_PAGINA_INDEX);
+            model.addAttribute("busquedaAproximada", !productos.isEmpty());
         }
         
         System.out.println("✅ Resultados encontrados: " + productos.size());
@@ -391,6 +443,90 @@ public class ProductoController {
         return "producto/index";
     }
     
+    /**
+     * Autocompletado del buscador (JSON): nombres de productos que empiezan por
+     * el texto escrito. No consulta la base de datos.
+     */
+    @GetMapping("/autocompletar")
+    @ResponseBody
+    public List<String> autocompletar(@RequestParam(value = "q", required = false) String prefijo,
+                                      @RequestParam(value = "limite", defaultValue = "10") int limite) {
+        if (prefijo == null || prefijo.isBlank()) {
+            return List.of();
+        }
+        return productoService.autocompletar(prefijo, Math.max(1, Math.min(limite, MAX_SUGERENCIAS)));
+    }
+    
+    /**
+     * Escaneo en caja (JSON): recibe los códigos de barras leídos, con
+     * repeticiones, y devuelve cada producto con su cantidad en una sola llamada.
+     */
+    @PostMapping("/escanear")
+    @ResponseBody
+    public ResponseEntity<List<LineaEscaneo>> escanear(@RequestBody List<String> codigosBarras) {
+        if (codigosBarras == null || codigosBarras.isEmpty()) {
+            return ResponseEntity.ok(List.of());
+        }
+        if (codigosBarras.size() > MAX_CODIGOS_ESCANEO) {
+            System.out.println("❌ Escaneo rechazado: " + codigosBarras.size() + " códigos");
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok(productoService.escanear(codigosBarras));
+    }
+
+    /**
+     * Importación masiva desde un CSV de proveedor
+     */
+    @PostMapping("/importar")
+    public String importar(@RequestParam("archivo") MultipartFile archivo,
+                           RedirectAttributes redirectAttributes) {
+        if (archivo == null || archivo.isEmpty()) {
+            redirectAttributes.addFlashAttribute("error", "Seleccione un archivo CSV para importar.");
+            return "redirect:/producto";
+        }
+        System.out.println("📥 Importando productos desde: " + archivo.getOriginalFilename());
+
+        try {
+            ResultadoImportacion resultado = importacionProductosService.importarCsv(archivo.getInputStream());
+            if (resultado.getInsertados() > 0) {
+                redirectAttributes.addFlashAttribute("success",
+                    "✅ " + resultado.getInsertados() + " de " + resultado.getFilasLeidas() + " productos importados.");
+            }
+            if (resultado.getConError() > 0 || resultado.getInsertados() == 0) {
+                redirectAttributes.addFlashAttribute("error",
+                    "⚠️ " + resultado.getConError() + " filas no se importaron.");
+                redirectAttributes.addFlashAttribute("erroresImportacion", resultado.getErrores());
+                redirectAttributes.addFlashAttribute("erroresImportacionOmitidos", resultado.getErroresOmitidos());
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error al leer el archivo de importación: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "❌ No se pudo leer el archivo: " + e.getMessage());
+        }
+
+        return "redirect:/producto";
+    }
+
+    /**
+     * Exportación del inventario completo (formato=csv o xlsx), escrita
+     * directamente en la respuesta sin cargar la tabla en memoria
+     */
+    @GetMapping("/exportar")
+    public void exportar(@RequestParam(value = "formato", defaultValue = "csv") String formato,
+                         HttpServletResponse response) throws IOException {
+        String fecha = DATE_FORMAT_INPUT.format(new Date());
+        System.out.println("📤 Exportando inventario en formato " + formato);
+        
+        if ("xlsx".equalsIgnoreCase(formato)) {
+            response.setContentType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+            response.setHeader("Content-Disposition", "attachment; filename=\"productos-" + fecha + ".xlsx\"");
+            exportacionProductosService.exportarXlsx(response.getOutputStream());
+        } else {
+            response.setContentType("text/csv; charset=UTF-8");
+            response.setHeader("Content-Disposition", "attachment; filename=\"productos-" + fecha + ".csv\"");
+            exportacionProductosService.exportarCsv(response.getOutputStream());
+        }
+    }
+
     /**
      * Ver detalles de un producto
      */
@@ -427,9 +563,64 @@ public class ProductoController {
         }
         model.addAttribute("estadoStock", estadoStock);
         
+        // Lotes con existencias en orden FEFO (el primero es el que sale primero)
+        model.addAttribute("lotes", loteService.findLotes(id));
+        
+        // Stock por ubicación (el total del producto es la suma)
+        Map<Integer, String> nombresUbicacion = new LinkedHashMap<>();
+        for (Ubicacion ubicacion : ubicacionService.listarTodas()) {
+            nombresUbicacion.put(ubicacion.getIdUbicacion(), ubicacion.getNombre());
+        }
+        model.addAttribute("stockUbicaciones", inventoryService.stockPorUbicacion(id));
+        model.addAttribute("nombresUbicacion", nombresUbicacion);
+        
         return "producto/view";
     }
     
+    /**
+     * Registrar un lote recibido del producto (suma al stock total)
+     */
+    @PostMapping("/{id}/lotes")
+    public String registrarLote(@PathVariable Long id,
+                                @RequestParam("cantidad") Integer cantidad,
+                                @RequestParam("fechaVencimiento") Date fechaVencimiento,
+                                @RequestParam(value = "idUbicacion", required = false) Integer idUbicacion,
+                                RedirectAttributes redirectAttributes) {
+        System.out.println("📦 Registrando lote para producto ID: " + id);
+        
+        try {
+            inventoryService.registrarLote(id, idUbicacion, cantidad != null ? cantidad : 0, fechaVencimiento);
+            redirectAttributes.addFlashAttribute("success", "✅ Lote registrado exitosamente.");
+        } catch (Exception e) {
+            System.err.println("❌ Error al registrar lote: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "❌ Error al registrar el lote: " + e.getMessage());
+        }
+        
+        return "redirect:/producto/view/" + id;
+    }
+    
+    /**
+     * Mover stock del producto entre ubicaciones (el total no cambia)
+     */
+    @PostMapping("/{id}/transferir")
+    public String transferir(@PathVariable Long id,
+                             @RequestParam("origen") Integer origen,
+                             @RequestParam("destino") Integer destino,
+                             @RequestParam("cantidad") Integer cantidad,
+                             RedirectAttributes redirectAttributes) {
+        System.out.println("🔁 Transfiriendo stock del producto ID: " + id);
+        
+        try {
+            inventoryService.transferir(id, origen, destino, cantidad != null ? cantidad : 0);
+            redirectAttributes.addFlashAttribute("success", "✅ Stock transferido exitosamente.");
+        } catch (Exception e) {
+            System.err.println("❌ Error al transferir stock: " + e.getMessage());
+            redirectAttributes.addFlashAttribute("error", "❌ Error al transferir el stock: " + e.getMessage());
+        }
+        
+        return "redirect:/producto/view/" + id;
+    }
+    
     /**
      * Endpoint de prueba - Para verificar que el controlador funciona
      */
@@ -442,18 +633,29 @@ public class ProductoController {
     // Archivo: ProductoController.java (Agregar este método)
 
     @GetMapping("/catalogo")
-    public String catalogo(Model model) {
+    public String catalogo(@RequestParam(value = "despuesDe", required = false) Long despuesDe,
+                           @RequestParam(value = "antesDe", required = false) Long antesDe,
+                           @RequestParam(value = "categoria", required = false) String categoria,
+                           @RequestParam(value = "rango", required = false) RangoPrecio rango,
+                           @RequestParam(value = "agotados", defaultValue = "false") boolean agotados,
+                           @RequestParam(value = "porVencer", defaultValue = "false") boolean porVencer,
+                           Principal principal,
+                           Model model) {
         System.out.println("🖼️ Cargando vista de Catálogo...");
+        // Carrito del panel lateral, resuelto en memoria
+        if (principal != null) {
+            model.addAttribute("carrito", carritoService.ver(principal.getName()));
+        }
+        FiltroCatalogo filtro = new FiltroCatalogo(categoria, rango, agotados, porVencer);
+        model.addAttribute("filtro", filtro);
+        model.addAttribute("rangos", RangoPrecio.values());
         try {
-            // Obtener la lista completa de productos
-            List<Producto> productos = productoService.findAll();
-            
-            // Filtrar productos que estén activos y tengan stock disponible (> 0)
-            List<Producto> productosDisponibles = productos.stream()
-                    .filter(p -> "activo".equals(p.getEstado()) && p.getStock() > 0)
-                    .toList();
+            // Productos activos (con stock salvo que se pidan agotados), servidos desde memoria por páginas
+            PaginaKeyset<ProductoResumen> pagina = productoService.findCatalogo(filtro, despuesDe, antesDe, TAMANO_PAGINA_CATALOGO);
 
-            model.addAttribute("productos", productosDisponibles);
+            model.addAttribute("productos", pagina.getContenido());
+            model.addAttribute("pagina", pagina);
+            model.addAttribute("facetas", productoService.contarFacetas(filtro));
             model.addAttribute("titulo", "Catálogo de Productos");
             
             // ¡IMPORTANTE! Retorna el nombre del archivo dentro de 'templates/'
@@ -462,7 +664,7 @@ public class ProductoController {
         } catch (Exception e) {
             System.err.println("❌ ERROR al cargar catálogo: " + e.getMessage());
             model.addAttribute("error", "Error al cargar el catálogo.");
-            model.addAttribute("productos", new ArrayList<Producto>()); // Asegurar que la lista no sea null
+            model.addAttribute("productos", new ArrayList<ProductoResumen>()); // Asegurar que la lista no sea null
             return "producto/catalogo";
         }
     }
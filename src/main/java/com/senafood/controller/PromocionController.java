@@ -1,17 +1,23 @@
 package com.senafood.controller;
 
+import com.senafood.model.OpcionProducto;
 import com.senafood.model.Promocion;
+import com.senafood.model.VigenciaPromocion;
 import com.senafood.service.PromocionService;
 
 import jakarta.validation.Valid;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.List;
+
 @Controller
 @RequestMapping("/promociones") // Ruta base para el módulo
 public class PromocionController {
@@ -19,10 +25,25 @@ public class PromocionController {
     @Autowired
     private PromocionService promocionService;
 
+    // Filas por página del listado
+    private static final int TAMANO_PAGINA = 20;
+    // Productos que muestra el selector del formulario
+    private static final int MAX_OPCIONES_PRODUCTO = 50;
+
     // --- 1. Listar (Read) - URL: /promociones ---
     @GetMapping
-    public String listarPromociones(Model model) {
-        model.addAttribute("listaPromociones", promocionService.listarTodas());
+    public String listarPromociones(Model model,
+                                    @RequestParam(value = "finalizadas", defaultValue = "false") boolean finalizadas,
+                                    @RequestParam(value = "pagina", defaultValue = "0") int pagina) {
+        // Una página por consulta, con el producto traído por JOIN FETCH;
+        // las finalizadas solo se muestran a pedido
+        PageRequest solicitud = PageRequest.of(Math.max(pagina, 0), TAMANO_PAGINA);
+        Page<Promocion> promociones = finalizadas
+            ? promocionService.listarTodas(solicitud) : promocionService.listarNoFinalizadas(solicitud);
+        model.addAttribute("listaPromociones", promociones.getContent());
+        model.addAttribute("pagina", promociones);
+        model.addAttribute("finalizadas", finalizadas);
+        model.addAttribute("activas", promocionService.listarActivas());
         // Retorna la vista: templates/promocion/list.html
         return "promocion/list"; 
     }
@@ -37,7 +58,7 @@ public class PromocionController {
         }
         
         model.addAttribute("promocion", promocion);
-        model.addAttribute("productos", promocionService.listarTodosLosProductos()); 
+        model.addAttribute("productos", opcionesProducto(promocion)); 
         
         // Retorna la vista: templates/promocion/form.html
         return "promocion/form";
@@ -53,7 +74,7 @@ public class PromocionController {
         // 1. Verificar errores de Bean Validation (@DecimalMin, @FutureOrPresent, etc.)
         if (result.hasErrors()) {
             // Si hay errores, volvemos al formulario para mostrar los mensajes de error
-            model.addAttribute("productos", promocionService.listarTodosLosProductos());
+            model.addAttribute("productos", opcionesProducto(promocion));
             // Si es un producto nuevo, en el formulario el id_producto podría ser nulo.
             // Necesitas el producto para que no falle la preselección en el select.
             if (promocion.getProducto() == null) {
@@ -70,17 +91,54 @@ public class PromocionController {
             
             // Agregamos un error manual al BindingResult para que se muestre en el formulario
             result.rejectValue("fechaFin", "error.promocion", "La fecha fin debe ser posterior a la fecha de inicio.");
-            model.addAttribute("productos", promocionService.listarTodosLosProductos());
+            model.addAttribute("productos", opcionesProducto(promocion));
+            return "promocion/form";
+        }
+        
+        // 3. No se permiten dos promociones del mismo producto con fechas superpuestas
+        VigenciaPromocion superpuesta = promocionService.buscarSuperpuesta(promocion);
+        if (superpuesta != null) {
+            result.rejectValue("fechaInicio", "error.promocion", "Las fechas se superponen con la promoción #"
+                + superpuesta.getIdPromocion() + " (" + rango(superpuesta) + ") del mismo producto.");
+            model.addAttribute("productos", opcionesProducto(promocion));
             return "promocion/form";
         }
         
-        // 3. Si todo es correcto, guardar la promoción
-        promocionService.guardar(promocion);
+        // 4. Si todo es correcto, guardar la promoción
+        try {
+            promocionService.guardar(promocion);
+        } catch (RuntimeException e) {
+            // Otra promoción superpuesta se guardó mientras tanto
+            result.rejectValue("fechaInicio", "error.promocion", e.getMessage());
+            model.addAttribute("productos", opcionesProducto(promocion));
+            return "promocion/form";
+        }
         redirect.addFlashAttribute("success", "Promoción guardada exitosamente!");
         return "redirect:/promociones"; 
     }
 
-    // --- 4. Eliminar (Delete) - URL: /promociones/eliminar/{id} ---
+    // --- Búsqueda del selector de productos (JSON) - URL: /promociones/productos?q= ---
+    @GetMapping("/productos")
+    @ResponseBody
+    public List<OpcionProducto> buscarProductos(@RequestParam(value = "q", required = false) String texto) {
+        if (texto == null || texto.isBlank()) {
+            return promocionService.opcionesProducto(null, MAX_OPCIONES_PRODUCTO);
+        }
+        return promocionService.buscarProductos(texto, MAX_OPCIONES_PRODUCTO);
+    }
+
+    // Solo id y nombre de unos pocos productos más el seleccionado, no el catálogo completo
+    private List<OpcionProducto> opcionesProducto(Promocion promocion) {
+        Long seleccionado = promocion.getProducto() != null ? promocion.getProducto().getIdProducto() : null;
+        return promocionService.opcionesProducto(seleccionado, MAX_OPCIONES_PRODUCTO);
+    }
+
+    private static String rango(VigenciaPromocion promocion) {
+        return (promocion.getFechaInicio() != null ? promocion.getFechaInicio().toString() : "sin inicio")
+            + " a " + (promocion.getFechaFin() != null ? promocion.getFechaFin().toString() : "sin fin");
+    }
+
+    // --- 5. Eliminar (Delete) - URL: /promociones/eliminar/{id} ---
     @GetMapping("/eliminar/{id}")
     public String eliminarPromocion(@PathVariable Integer id, RedirectAttributes redirect) {
         try {
@@ -0,0 +1,84 @@
+package com.senafood.model;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Carrito de un usuario mientras compra. Vive solo en memoria (CarritoService):
+ * guarda id de producto y cantidad, sin precios, que se resuelven al mostrarlo
+ * contra el catálogo en memoria. Los métodos son sincronizados porque un mismo
+ * usuario puede enviar varias peticiones a la vez.
+ */
+public class Carrito {
+
+    private final String usuario;
+    // Orden en que se agregaron los productos
+    private final Map<Long, Integer> cantidades = new LinkedHashMap<>();
+    private volatile long ultimoAcceso;
+
+    public Carrito(String usuario) {
+        this.usuario = usuario;
+        this.ultimoAcceso = System.currentTimeMillis();
+    }
+
+    /**
+     * Suma unidades de un producto. Retorna la cantidad resultante.
+     */
+    public synchronized int agregar(Long idProducto, int cantidad) {
+        return cantidades.merge(idProducto, cantidad, Integer::sum);
+    }
+
+    /**
+     * Fija la cantidad de un producto; con 0 o menos lo quita.
+     */
+    public synchronized void actualizar(Long idProducto, int cantidad) {
+        if (cantidad <= 0) {
+            cantidades.remove(idProducto);
+        } else {
+            cantidades.put(idProducto, cantidad);
+        }
+    }
+
+    public synchronized void quitar(Long idProducto) {
+        cantidades.remove(idProducto);
+    }
+
+    /**
+     * Resta lo ya comprado, conservando lo que se agregó mientras se confirmaba.
+     */
+    public synchronized void descontar(Map<Long, Integer> comprados) {
+        comprados.forEach((idProducto, cantidad) ->
+            cantidades.computeIfPresent(idProducto, (id, actual) -> actual > cantidad ? actual - cantidad : null));
+    }
+
+    public synchronized void vaciar() {
+        cantidades.clear();
+    }
+
+    public synchronized boolean contiene(Long idProducto) {
+        return cantidades.containsKey(idProducto);
+    }
+
+    public synchronized int getLineas() {
+        return cantidades.size();
+    }
+
+    /**
+     * Copia de las cantidades (id -> unidades) en el orden del carrito.
+     */
+    public synchronized Map<Long, Integer> getCantidades() {
+        return new LinkedHashMap<>(cantidades);
+    }
+
+    public String getUsuario() {
+        return usuario;
+    }
+
+    public long getUltimoAcceso() {
+        return ultimoAcceso;
+    }
+
+    public void tocar() {
+        this.ultimoAcceso = System.currentTimeMillis();
+    }
+}
@@ -0,0 +1,52 @@
+package com.senafood.model;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Carrito listo para mostrar: líneas con precio y totales.
+ */
+public class CarritoDetalle {
+
+    private final List<LineaCarrito> lineas;
+    private final BigDecimal total;
+    private final int unidades;
+
+    public CarritoDetalle(List<LineaCarrito> lineas) {
+        this.lineas = List.copyOf(lineas);
+        BigDecimal suma = BigDecimal.ZERO;
+        int cuenta = 0;
+        for (LineaCarrito linea : lineas) {
+            suma = suma.add(linea.getSubtotal());
+            if (linea.isDisponible()) {
+                cuenta += linea.getCantidad();
+            }
+        }
+        this.total = suma;
+        this.unidades = cuenta;
+    }
+
+    public static CarritoDetalle vacio() {
+        return new CarritoDetalle(List.of());
+    }
+
+    public List<LineaCarrito> getLineas() {
+        return lineas;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public int getUnidades() {
+        return unidades;
+    }
+
+    public boolean isVacio() {
+        return lineas.isEmpty();
+    }
+
+    public boolean isTieneNoDisponibles() {
+        return lineas.stream().anyMatch(linea -> !linea.isDisponible());
+    }
+}
@@ -0,0 +1,51 @@
+package com.senafood.model;
+
+import java.util.Map;
+
+/**
+ * Conteos de cada valor de faceta para la selección actual del catálogo.
+ * Cada faceta se cuenta aplicando todos los demás filtros menos el suyo.
+ */
+public class ConteoFacetas {
+
+    private final long total;
+    private final Map<String, Long> categorias;
+    private final Map<RangoPrecio, Long> rangos;
+    private final long disponibles;
+    private final long agotados;
+    private final long porVencer;
+
+    public ConteoFacetas(long total, Map<String, Long> categorias, Map<RangoPrecio, Long> rangos,
+                         long disponibles, long agotados, long porVencer) {
+        this.total = total;
+        this.categorias = categorias;
+        this.rangos = rangos;
+        this.disponibles = disponibles;
+        this.agotados = agotados;
+        this.porVencer = porVencer;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public Map<String, Long> getCategorias() {
+        return categorias;
+    }
+
+    public Map<RangoPrecio, Long> getRangos() {
+        return rangos;
+    }
+
+    public long getDisponibles() {
+        return disponibles;
+    }
+
+    public long getAgotados() {
+        return agotados;
+    }
+
+    public long getPorVencer() {
+        return porVencer;
+    }
+}
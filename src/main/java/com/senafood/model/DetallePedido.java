@@ -0,0 +1,95 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+
+/**
+ * Línea de un pedido con el precio vigente al confirmarlo.
+ */
+@Entity
+@Table(name = "pedido_detalle", indexes = {
+    @Index(name = "idx_pedido_detalle_pedido", columnList = "id_pedido")
+})
+public class DetallePedido {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_detalle")
+    private Long idDetalle;
+
+    // Solo los ids: el detalle se escribe por lotes con JDBC
+    @Column(name = "id_pedido", nullable = false)
+    private Long idPedido;
+
+    @Column(name = "id_producto", nullable = false)
+    private Long idProducto;
+
+    @Column(name = "cantidad", nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "precio_unitario", nullable = false, precision = 12, scale = 2)
+    private BigDecimal precioUnitario;
+
+    @Column(name = "subtotal", nullable = false, precision = 12, scale = 2)
+    private BigDecimal subtotal;
+
+    // Constructor vacío (necesario para JPA)
+    public DetallePedido() {
+    }
+
+    public DetallePedido(Long idProducto, Integer cantidad, BigDecimal precioUnitario) {
+        this.idProducto = idProducto;
+        this.cantidad = cantidad;
+        this.precioUnitario = precioUnitario;
+        this.subtotal = precioUnitario.multiply(BigDecimal.valueOf(cantidad));
+    }
+
+    // Getters y Setters
+    public Long getIdDetalle() {
+        return idDetalle;
+    }
+
+    public void setIdDetalle(Long idDetalle) {
+        this.idDetalle = idDetalle;
+    }
+
+    public Long getIdPedido() {
+        return idPedido;
+    }
+
+    public void setIdPedido(Long idPedido) {
+        this.idPedido = idPedido;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public BigDecimal getPrecioUnitario() {
+        return precioUnitario;
+    }
+
+    public void setPrecioUnitario(BigDecimal precioUnitario) {
+        this.precioUnitario = precioUnitario;
+    }
+
+    public BigDecimal getSubtotal() {
+        return subtotal;
+    }
+
+    public void setSubtotal(BigDecimal subtotal) {
+        this.subtotal = subtotal;
+    }
+}
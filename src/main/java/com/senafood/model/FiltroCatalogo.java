@@ -0,0 +1,43 @@
+package com.senafood.model;
+
+/**
+ * Filtros seleccionados en la navegación por facetas del catálogo.
+ */
+public class FiltroCatalogo {
+
+    private String categoria;
+    private RangoPrecio rango;
+    // Por defecto el catálogo solo muestra productos con stock
+    private boolean incluirAgotados;
+    private boolean porVencer;
+
+    public FiltroCatalogo(String categoria, RangoPrecio rango, boolean incluirAgotados, boolean porVencer) {
+        this.categoria = categoria != null && !categoria.isBlank() ? categoria : null;
+        this.rango = rango;
+        this.incluirAgotados = incluirAgotados;
+        this.porVencer = porVencer;
+    }
+
+    /**
+     * true si no hay ningún filtro distinto del catálogo por defecto.
+     */
+    public boolean isVacio() {
+        return categoria == null && rango == null && !incluirAgotados && !porVencer;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public RangoPrecio getRango() {
+        return rango;
+    }
+
+    public boolean isIncluirAgotados() {
+        return incluirAgotados;
+    }
+
+    public boolean isPorVencer() {
+        return porVencer;
+    }
+}
@@ -0,0 +1,77 @@
+package com.senafood.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Línea del carrito con el precio resuelto contra el catálogo en memoria.
+ * precioUnitario ya tiene aplicado el descuento de la promoción vigente;
+ * precioLista es el precio del producto sin descuento.
+ * Un producto que dejó de estar en el catálogo (inactivo o agotado) queda
+ * como no disponible y no suma al total.
+ */
+public class LineaCarrito {
+
+    private final Long idProducto;
+    private final String nombre;
+    private final String imagen;
+    private final BigDecimal precioLista;
+    private final BigDecimal precioUnitario;
+    private final int cantidad;
+    private final int stock;
+    private final boolean disponible;
+
+    public LineaCarrito(Long idProducto, String nombre, String imagen, BigDecimal precioLista,
+                        BigDecimal precioUnitario, int cantidad, int stock, boolean disponible) {
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+        this.imagen = imagen;
+        this.precioLista = precioLista;
+        this.precioUnitario = precioUnitario;
+        this.cantidad = cantidad;
+        this.stock = stock;
+        this.disponible = disponible;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getImagen() {
+        return imagen;
+    }
+
+    public BigDecimal getPrecioLista() {
+        return precioLista;
+    }
+
+    public boolean isConDescuento() {
+        return precioLista != null && precioUnitario != null && precioUnitario.compareTo(precioLista) < 0;
+    }
+
+    public BigDecimal getPrecioUnitario() {
+        return precioUnitario;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public int getStock() {
+        return stock;
+    }
+
+    public boolean isDisponible() {
+        return disponible;
+    }
+
+    public BigDecimal getSubtotal() {
+        if (!disponible || precioUnitario == null) {
+            return BigDecimal.ZERO;
+        }
+        return precioUnitario.multiply(BigDecimal.valueOf(cantidad));
+    }
+}
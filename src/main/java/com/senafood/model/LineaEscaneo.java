@@ -0,0 +1,34 @@
+package com.senafood.model;
+
+/**
+ * Resultado de resolver un código de barras escaneado: cuántas veces se
+ * escaneó y el producto al que corresponde (null si no existe).
+ */
+public class LineaEscaneo {
+
+    private final String codigoBarras;
+    private final int cantidad;
+    private final ProductoResumen producto;
+
+    public LineaEscaneo(String codigoBarras, int cantidad, ProductoResumen producto) {
+        this.codigoBarras = codigoBarras;
+        this.cantidad = cantidad;
+        this.producto = producto;
+    }
+
+    public String getCodigoBarras() {
+        return codigoBarras;
+    }
+
+    public int getCantidad() {
+        return cantidad;
+    }
+
+    public ProductoResumen getProducto() {
+        return producto;
+    }
+
+    public boolean isEncontrado() {
+        return producto != null;
+    }
+}
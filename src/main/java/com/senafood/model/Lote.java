@@ -0,0 +1,92 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Lote recibido de un producto, con su propia cantidad y fecha de vencimiento.
+ *
+ * El índice (id_producto, fecha_vencimiento, id_lote) deja los lotes de cada
+ * producto ordenados por vencimiento: la asignación FEFO (primero en vencer,
+ * primero en salir) los recorre en ese orden sin ordenar en memoria. Los
+ * agregados del producto (stock total y vencimiento más próximo) se mantienen
+ * en Producto al registrar y consumir lotes.
+ */
+@Entity
+@Table(name = "lote", indexes = {
+    @Index(name = "idx_lote_producto_vencimiento", columnList = "id_producto, fecha_vencimiento, id_lote")
+})
+public class Lote {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_lote")
+    private Long idLote;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "id_producto", nullable = false)
+    private Producto producto;
+
+    @Column(name = "cantidad", nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "fecha_vencimiento", nullable = false)
+    @Temporal(TemporalType.DATE)
+    private Date fechaVencimiento;
+
+    @Column(name = "fecha_ingreso", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date fechaIngreso;
+
+    // Constructor vacío (necesario para JPA)
+    public Lote() {
+        this.fechaIngreso = new Date();
+    }
+
+    public Lote(Producto producto, Integer cantidad, Date fechaVencimiento) {
+        this();
+        this.producto = producto;
+        this.cantidad = cantidad;
+        this.fechaVencimiento = fechaVencimiento;
+    }
+
+    public Long getIdLote() {
+        return idLote;
+    }
+
+    public void setIdLote(Long idLote) {
+        this.idLote = idLote;
+    }
+
+    public Producto getProducto() {
+        return producto;
+    }
+
+    public void setProducto(Producto producto) {
+        this.producto = producto;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public Date getFechaVencimiento() {
+        return fechaVencimiento;
+    }
+
+    public void setFechaVencimiento(Date fechaVencimiento) {
+        this.fechaVencimiento = fechaVencimiento;
+    }
+
+    public Date getFechaIngreso() {
+        return fechaIngreso;
+    }
+
+    public void setFechaIngreso(Date fechaIngreso) {
+        this.fechaIngreso = fechaIngreso;
+    }
+}
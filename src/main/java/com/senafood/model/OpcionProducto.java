@@ -0,0 +1,24 @@
+package com.senafood.model;
+
+/**
+ * Proyección mínima de Producto (id y nombre) para los selectores de los
+ * formularios, sin cargar la entidad completa.
+ */
+public class OpcionProducto {
+
+    private final Long idProducto;
+    private final String nombre;
+
+    public OpcionProducto(Long idProducto, String nombre) {
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+}
@@ -0,0 +1,81 @@
+package com.senafood.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página obtenida con paginación por clave (keyset / seek) sobre id_producto.
+ *
+ * En lugar de OFFSET, cada página se pide relativa al último id visto
+ * ("despuesDe") o al primero ("antesDe"), por lo que el costo de la consulta
+ * no crece con el número de la página.
+ */
+public class PaginaKeyset<T> {
+
+    private final List<T> contenido;
+    // Valor para "antesDe" que lleva a la página anterior (null si es la primera)
+    private final Long anteriorId;
+    // Valor para "despuesDe" que lleva a la página siguiente (null si es la última)
+    private final Long siguienteId;
+
+    private PaginaKeyset(List<T> contenido, Long anteriorId, Long siguienteId) {
+        this.contenido = contenido;
+        this.anteriorId = anteriorId;
+        this.siguienteId = siguienteId;
+    }
+
+    /**
+     * Construye una página avanzando. Las filas deben venir en orden ascendente
+     * y contener hasta tamano + 1 elementos (el extra indica que hay más).
+     */
+    public static <T> PaginaKeyset<T> adelante(List<T> filas, int tamano, boolean desdeInicio,
+                                               Function<T, Long> id) {
+        boolean haySiguiente = filas.size() > tamano;
+        List<T> contenido = List.copyOf(haySiguiente ? filas.subList(0, tamano) : filas);
+        if (contenido.isEmpty()) {
+            return new PaginaKeyset<>(contenido, null, null);
+        }
+        Long anterior = desdeInicio ? null : id.apply(contenido.get(0));
+        Long siguiente = haySiguiente ? id.apply(contenido.get(contenido.size() - 1)) : null;
+        return new PaginaKeyset<>(contenido, anterior, siguiente);
+    }
+
+    /**
+     * Construye una página retrocediendo. Las filas deben venir en orden
+     * descendente y contener hasta tamano + 1 elementos.
+     */
+    public static <T> PaginaKeyset<T> atras(List<T> filas, int tamano, Function<T, Long> id) {
+        boolean hayAnterior = filas.size() > tamano;
+        List<T> ordenadas = new ArrayList<>(hayAnterior ? filas.subList(0, tamano) : filas);
+        Collections.reverse(ordenadas);
+        List<T> contenido = List.copyOf(ordenadas);
+        if (contenido.isEmpty()) {
+            return new PaginaKeyset<>(contenido, null, null);
+        }
+        Long anterior = hayAnterior ? id.apply(contenido.get(0)) : null;
+        Long siguiente = id.apply(contenido.get(contenido.size() - 1));
+        return new PaginaKeyset<>(contenido, anterior, siguiente);
+    }
+
+    public List<T> getContenido() {
+        return contenido;
+    }
+
+    public Long getAnteriorId() {
+        return anteriorId;
+    }
+
+    public Long getSiguienteId() {
+        return siguienteId;
+    }
+
+    public boolean isHayAnterior() {
+        return anteriorId != null;
+    }
+
+    public boolean isHaySiguiente() {
+        return siguienteId != null;
+    }
+}
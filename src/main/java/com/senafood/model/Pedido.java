@@ -0,0 +1,147 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compra confirmada desde el carrito. Se inserta por lotes junto con sus
+ * detalles (ProcesadorPedidos), en la misma transacción que descuenta el stock.
+ */
+@Entity
+@Table(name = "pedido", indexes = {
+    // Pedidos recientes de un usuario
+    @Index(name = "idx_pedido_usuario", columnList = "usuario, id_pedido")
+})
+public class Pedido {
+
+    public static final String CONFIRMADO = "confirmado";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_pedido")
+    private Long idPedido;
+
+    @Column(name = "usuario", nullable = false, length = 100)
+    private String usuario;
+
+    // Ubicación de la que sale el stock
+    @Column(name = "id_ubicacion", nullable = false)
+    private Integer idUbicacion;
+
+    @Column(name = "total", nullable = false, precision = 12, scale = 2)
+    private BigDecimal total;
+
+    @Column(name = "unidades", nullable = false)
+    private Integer unidades;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = CONFIRMADO;
+
+    @Column(name = "create_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createAt;
+
+    // Se insertan con JDBC junto al pedido; no se cargan con él
+    @Transient
+    private List<DetallePedido> detalles = new ArrayList<>();
+
+    // Constructor vacío (necesario para JPA)
+    public Pedido() {
+        this.createAt = new Date();
+    }
+
+    public Pedido(String usuario, Integer idUbicacion) {
+        this();
+        this.usuario = usuario;
+        this.idUbicacion = idUbicacion;
+        this.total = BigDecimal.ZERO;
+        this.unidades = 0;
+    }
+
+    /**
+     * Agrega una línea y acumula el total y las unidades del pedido.
+     */
+    public void agregarDetalle(Long idProducto, int cantidad, BigDecimal precioUnitario) {
+        DetallePedido detalle = new DetallePedido(idProducto, cantidad, precioUnitario);
+        detalles.add(detalle);
+        total = total.add(detalle.getSubtotal());
+        unidades += cantidad;
+    }
+
+    /**
+     * Unidades por producto (id -> cantidad), sumando líneas repetidas.
+     */
+    public Map<Long, Integer> cantidadesPorProducto() {
+        Map<Long, Integer> cantidades = new LinkedHashMap<>();
+        for (DetallePedido detalle : detalles) {
+            cantidades.merge(detalle.getIdProducto(), detalle.getCantidad(), Integer::sum);
+        }
+        return cantidades;
+    }
+
+    // Getters y Setters
+    public Long getIdPedido() {
+        return idPedido;
+    }
+
+    public void setIdPedido(Long idPedido) {
+        this.idPedido = idPedido;
+    }
+
+    public String getUsuario() {
+        return usuario;
+    }
+
+    public void setUsuario(String usuario) {
+        this.usuario = usuario;
+    }
+
+    public Integer getIdUbicacion() {
+        return idUbicacion;
+    }
+
+    public void setIdUbicacion(Integer idUbicacion) {
+        this.idUbicacion = idUbicacion;
+    }
+
+    public BigDecimal getTotal() {
+        return total;
+    }
+
+    public void setTotal(BigDecimal total) {
+        this.total = total;
+    }
+
+    public Integer getUnidades() {
+        return unidades;
+    }
+
+    public void setUnidades(Integer unidades) {
+        this.unidades = unidades;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Date getCreateAt() {
+        return createAt;
+    }
+
+    public void setCreateAt(Date createAt) {
+        this.createAt = createAt;
+    }
+
+    public List<DetallePedido> getDetalles() {
+        return detalles;
+    }
+}
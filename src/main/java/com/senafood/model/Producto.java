@@ -6,9 +6,21 @@ import java.math.BigDecimal;
 import java.util.Date;
 
 @Entity
-@Table(name = "producto")
+// El índice único uk_producto_codigo_barras lo crea MigracionCodigoBarras tras
+// normalizar los códigos vacíos (ddl-auto fallaría en silencio con repetidos)
+@Table(name = "producto", indexes = {
+    // Selector de productos ordenado por nombre (ORDER BY nombre LIMIT n sin ordenar la tabla)
+    @Index(name = "idx_producto_nombre", columnList = "nombre"),
+    // Conteo de referencias a una imagen del almacén (countByImagen) sin recorrer la tabla
+    @Index(name = "idx_producto_imagen", columnList = "imagen")
+})
 public class Producto {
     
+    // Estados del procesamiento en segundo plano de la imagen (estadoImagen)
+    public static final String IMAGEN_PENDIENTE = "pendiente";
+    public static final String IMAGEN_LISTA = "lista";
+    public static final String IMAGEN_ERROR = "error";
+    
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_producto")
@@ -30,16 +42,19 @@ public class Producto {
     
     @NotNull(message = "El stock es obligatorio")
     @Min(value = 0, message = "El stock no puede ser negativo")
-    @Column(name = "stock", nullable = false)
+    // Total de stock_ubicacion: solo lo cambian los UPDATE atómicos de InventoryService,
+    // nunca el guardado de la entidad (se perderían ventas concurrentes)
+    @Column(name = "stock", nullable = false, updatable = false)
     private Integer stock;
     
-    // CAMBIO IMPORTANTE: No usamos relación con inventario, solo guardamos un valor
+    // Ubicación principal del producto (ver Ubicacion); el stock por ubicación está en StockUbicacion
     @Column(name = "id_inventario", nullable = false, columnDefinition = "int default 1")
-    private Integer idInventario = 1;
+    private Integer idInventario;
     
     @NotNull(message = "La fecha de vencimiento es obligatoria")
     @Future(message = "La fecha de vencimiento debe ser futura")
-    @Column(name = "fecha_vencimiento", nullable = false)
+    // Vencimiento más próximo de los lotes; se sincroniza con actualizarVencimiento
+    @Column(name = "fecha_vencimiento", nullable = false, updatable = false)
     @Temporal(TemporalType.DATE)
     private Date fechaVencimiento;
     
@@ -65,12 +80,23 @@ public class Producto {
     @Column(name = "imagen")
     private String imagen;
     
+    @Column(name = "estado_imagen", length = 20)
+    private String estadoImagen;
+    
+    // Subida recibida que aún no se procesa (no se persiste)
+    @Transient
+    private String imagenSubida;
+    
+    // Stock que mostraba el formulario de edición (no se persiste); el cambio se
+    // aplica como diferencia para no pisar ventas hechas mientras se editaba
+    @Transient
+    private Integer stockAnterior;
+    
     // Constructor por defecto
     public Producto() {
         this.createAt = new Date();
         this.updateAt = new Date();
         this.estado = "activo";
-        this.idInventario = 1; // Valor por defecto para cumplir con la BD
     }
     
     // Getters y Setters
@@ -179,6 +205,72 @@ public class Producto {
         this.imagen = imagen;
     }
     
+    public String getEstadoImagen() {
+        return estadoImagen;
+    }
+    
+    public void setEstadoImagen(String estadoImagen) {
+        this.estadoImagen = estadoImagen;
+    }
+    
+    public String getImagenSubida() {
+        return imagenSubida;
+    }
+    
+    public void setImagenSubida(String imagenSubida) {
+        this.imagenSubida = imagenSubida;
+    }
+    
+    public Integer getStockAnterior() {
+        return stockAnterior;
+    }
+    
+    public void setStockAnterior(Integer stockAnterior) {
+        this.stockAnterior = stockAnterior;
+    }
+    
+    /**
+     * Crea una copia desacoplada del producto (sin vínculo con el contexto de
+     * persistencia) para compartirla con las cachés en memoria.
+     */
+    public Producto copiar() {
+        Producto copia = new Producto();
+        copia.idProducto = this.idProducto;
+        copia.nombre = this.nombre;
+        copia.descripcion = this.descripcion;
+        copia.costoUnitario = this.costoUnitario;
+        copia.stock = this.stock;
+        copia.idInventario = this.idInventario;
+        copia.fechaVencimiento = this.fechaVencimiento;
+        copia.categoria = this.categoria;
+        copia.codigoBarras = this.codigoBarras;
+        copia.estado = this.estado;
+        copia.createAt = this.createAt;
+        copia.updateAt = this.updateAt;
+        copia.imagen = this.imagen;
+        copia.estadoImagen = this.estadoImagen;
+        return copia;
+    }
+    
+    /**
+     * Producto desacoplado armado con las columnas de la proyección, para
+     * publicar a los índices un estado leído sin cargar la entidad.
+     */
+    public static Producto desde(ProductoResumen resumen) {
+        Producto producto = new Producto();
+        producto.idProducto = resumen.getIdProducto();
+        producto.nombre = resumen.getNombre();
+        producto.descripcion = resumen.getDescripcion();
+        producto.costoUnitario = resumen.getCostoUnitario();
+        producto.stock = resumen.getStock();
+        producto.fechaVencimiento = resumen.getFechaVencimiento();
+        producto.categoria = resumen.getCategoria();
+        producto.codigoBarras = resumen.getCodigoBarras();
+        producto.estado = resumen.getEstado();
+        producto.imagen = resumen.getImagen();
+        return producto;
+    }
+    
     // Método para actualizar la fecha antes de persistir
     @PreUpdate
     public void preUpdate() {
@@ -197,8 +289,5 @@ public class Producto {
         if (this.estado == null) {
             this.estado = "activo";
         }
-        if (this.idInventario == null) {
-            this.idInventario = 1;
-        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,30 @@
+package com.senafood.model;
+
+/**
+ * Contadores del listado de productos calculados en una sola consulta agregada.
+ */
+public class ProductoEstadisticas {
+
+    private final long totalProductos;
+    private final long productosActivos;
+    private final long stockBajo;
+
+    // SUM(...) devuelve null cuando la tabla está vacía
+    public ProductoEstadisticas(Long totalProductos, Long productosActivos, Long stockBajo) {
+        this.totalProductos = totalProductos != null ? totalProductos : 0L;
+        this.productosActivos = productosActivos != null ? productosActivos : 0L;
+        this.stockBajo = stockBajo != null ? stockBajo : 0L;
+    }
+
+    public long getTotalProductos() {
+        return totalProductos;
+    }
+
+    public long getProductosActivos() {
+        return productosActivos;
+    }
+
+    public long getStockBajo() {
+        return stockBajo;
+    }
+}
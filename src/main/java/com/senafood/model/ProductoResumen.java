@@ -0,0 +1,96 @@
+package com.senafood.model;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Proyección inmutable de Producto con las columnas que muestran el listado
+ * y el catálogo. Se construye directamente en la consulta JPQL, sin cargar
+ * la entidad completa en el contexto de persistencia.
+ */
+public class ProductoResumen {
+
+    private final Long idProducto;
+    private final String nombre;
+    private final String descripcion;
+    private final BigDecimal costoUnitario;
+    private final Integer stock;
+    private final Date fechaVencimiento;
+    private final String categoria;
+    private final String codigoBarras;
+    private final String estado;
+    private final String imagen;
+
+    public ProductoResumen(Long idProducto, String nombre, String descripcion, BigDecimal costoUnitario,
+                           Integer stock, Date fechaVencimiento, String categoria, String codigoBarras,
+                           String estado, String imagen) {
+        this.idProducto = idProducto;
+        this.nombre = nombre;
+        this.descripcion = descripcion;
+        this.costoUnitario = costoUnitario;
+        this.stock = stock;
+        this.fechaVencimiento = fechaVencimiento;
+        this.categoria = categoria;
+        this.codigoBarras = codigoBarras;
+        this.estado = estado;
+        this.imagen = imagen;
+    }
+
+    /**
+     * Construye el resumen a partir de una entidad ya cargada.
+     */
+    public static ProductoResumen de(Producto producto) {
+        return new ProductoResumen(
+            producto.getIdProducto(),
+            producto.getNombre(),
+            producto.getDescripcion(),
+            producto.getCostoUnitario(),
+            producto.getStock(),
+            producto.getFechaVencimiento(),
+            producto.getCategoria(),
+            producto.getCodigoBarras(),
+            producto.getEstado(),
+            producto.getImagen()
+        );
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public BigDecimal getCostoUnitario() {
+        return costoUnitario;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public Date getFechaVencimiento() {
+        return fechaVencimiento;
+    }
+
+    public String getCategoria() {
+        return categoria;
+    }
+
+    public String getCodigoBarras() {
+        return codigoBarras;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public String getImagen() {
+        return imagen;
+    }
+}
@@ -9,9 +9,17 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "promocion")
+@Table(name = "promocion", indexes = {
+    // Revisión de estados en los límites de fechas y listado sin finalizadas
+    @Index(name = "idx_promocion_estado", columnList = "estado")
+})
 public class Promocion implements Serializable {
 
+    // Estados según las fechas; PromocionService los mantiene al día
+    public static final String PROGRAMADA = "programada";
+    public static final String ACTIVA = "activa";
+    public static final String FINALIZADA = "finalizada";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     @Column(name = "id_promocion")
@@ -21,7 +29,8 @@ public class Promocion implements Serializable {
     
     private BigDecimal descuento; // Mapeado a DECIMAL(10,2)
 
-    @ManyToOne
+    // LAZY: los listados lo traen con JOIN FETCH en la misma consulta
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "id_producto", nullable = false)
     private Producto producto; // Relación con Producto
     
@@ -34,6 +43,9 @@ public class Promocion implements Serializable {
     @Column(name = "fecha_fin")
     private LocalDate fechaFin; // Tipo DATE en SQL
 
+    @Column(name = "estado", length = 20)
+    private String estado;
+
     @Column(name = "update_at")
     private LocalDateTime updateAt;
 
@@ -44,6 +56,19 @@ public class Promocion implements Serializable {
     public Promocion() {
     }
 
+    /**
+     * Estado que corresponde a las fechas de la promoción en el día indicado.
+     */
+    public String estadoPara(LocalDate hoy) {
+        if (fechaFin != null && fechaFin.isBefore(hoy)) {
+            return FINALIZADA;
+        }
+        if (fechaInicio != null && fechaInicio.isAfter(hoy)) {
+            return PROGRAMADA;
+        }
+        return ACTIVA;
+    }
+
     // --- Getters y Setters ---
 
     public Integer getIdPromocion() {
@@ -94,6 +119,14 @@ public class Promocion implements Serializable {
         this.fechaFin = fechaFin;
     }
 
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
     public LocalDateTime getUpdateAt() {
         return updateAt;
     }
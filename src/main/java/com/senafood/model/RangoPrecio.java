@@ -0,0 +1,46 @@
+package com.senafood.model;
+
+import java.math.BigDecimal;
+
+/**
+ * Bandas de precio (costo unitario, en pesos) usadas como faceta del catálogo.
+ */
+public enum RangoPrecio {
+
+    ECONOMICO("Hasta $2.000", null, new BigDecimal("2000")),
+    MEDIO("$2.000 - $5.000", new BigDecimal("2000"), new BigDecimal("5000")),
+    ALTO("$5.000 - $10.000", new BigDecimal("5000"), new BigDecimal("10000")),
+    PREMIUM("Más de $10.000", new BigDecimal("10000"), null);
+
+    private final String etiqueta;
+    // Límite inferior inclusivo y superior exclusivo (null = sin límite)
+    private final BigDecimal desde;
+    private final BigDecimal hasta;
+
+    RangoPrecio(String etiqueta, BigDecimal desde, BigDecimal hasta) {
+        this.etiqueta = etiqueta;
+        this.desde = desde;
+        this.hasta = hasta;
+    }
+
+    public String getEtiqueta() {
+        return etiqueta;
+    }
+
+    /**
+     * Banda a la que pertenece un precio (null si el precio es null).
+     */
+    public static RangoPrecio de(BigDecimal precio) {
+        if (precio == null) {
+            return null;
+        }
+        for (RangoPrecio rango : values()) {
+            boolean sobreDesde = rango.desde == null || precio.compareTo(rango.desde) >= 0;
+            boolean bajoHasta = rango.hasta == null || precio.compareTo(rango.hasta) < 0;
+            if (sobreDesde && bajoHasta) {
+                return rango;
+            }
+        }
+        return null;
+    }
+}
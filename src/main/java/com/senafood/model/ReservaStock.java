@@ -0,0 +1,119 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+import java.util.Date;
+
+/**
+ * Unidades de un producto apartadas para una compra en curso.
+ *
+ * Al reservar, el stock ya se descontó del producto; la reserva queda pendiente
+ * hasta que se confirma (se consumen los lotes) o se libera (el stock vuelve al
+ * producto). Las pendientes que pasan su fecha de expiración se liberan solas.
+ */
+@Entity
+@Table(name = "reserva_stock", indexes = {
+    // Barrido de reservas pendientes vencidas
+    @Index(name = "idx_reserva_estado_expira", columnList = "estado, expira")
+})
+public class ReservaStock {
+
+    public static final String PENDIENTE = "pendiente";
+    public static final String CONFIRMADA = "confirmada";
+    public static final String LIBERADA = "liberada";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_reserva")
+    private Long idReserva;
+
+    // Solo el id: la reserva nunca necesita cargar el producto
+    @Column(name = "id_producto", nullable = false)
+    private Long idProducto;
+
+    // Ubicación de la que sale el stock (null en reservas anteriores: la principal)
+    @Column(name = "id_ubicacion")
+    private Integer idUbicacion;
+
+    @Column(name = "cantidad", nullable = false)
+    private Integer cantidad;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = PENDIENTE;
+
+    @Column(name = "create_at", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createAt;
+
+    @Column(name = "expira", nullable = false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date expira;
+
+    // Constructor vacío (necesario para JPA)
+    public ReservaStock() {
+        this.createAt = new Date();
+    }
+
+    public ReservaStock(Long idProducto, Integer idUbicacion, Integer cantidad, Date expira) {
+        this();
+        this.idProducto = idProducto;
+        this.idUbicacion = idUbicacion;
+        this.cantidad = cantidad;
+        this.expira = expira;
+    }
+
+    public Long getIdReserva() {
+        return idReserva;
+    }
+
+    public void setIdReserva(Long idReserva) {
+        this.idReserva = idReserva;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getIdUbicacion() {
+        return idUbicacion;
+    }
+
+    public void setIdUbicacion(Integer idUbicacion) {
+        this.idUbicacion = idUbicacion;
+    }
+
+    public Integer getCantidad() {
+        return cantidad;
+    }
+
+    public void setCantidad(Integer cantidad) {
+        this.cantidad = cantidad;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Date getCreateAt() {
+        return createAt;
+    }
+
+    public void setCreateAt(Date createAt) {
+        this.createAt = createAt;
+    }
+
+    public Date getExpira() {
+        return expira;
+    }
+
+    public void setExpira(Date expira) {
+        this.expira = expira;
+    }
+}
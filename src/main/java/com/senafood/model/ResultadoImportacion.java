@@ -0,0 +1,58 @@
+package com.senafood.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Resumen de una importación masiva de productos: filas leídas, insertadas y
+ * los errores por fila. Solo se guardan los primeros errores para que la
+ * memoria no crezca con el tamaño del archivo.
+ */
+public class ResultadoImportacion {
+
+    private static final int MAX_ERRORES_GUARDADOS = 200;
+
+    private int filasLeidas;
+    private int insertados;
+    private int conError;
+    private final List<String> errores = new ArrayList<>();
+
+    public void contarFilaLeida() {
+        filasLeidas++;
+    }
+
+    public void sumarInsertados(int cantidad) {
+        insertados += cantidad;
+    }
+
+    public void registrarError(long linea, String mensaje) {
+        conError++;
+        if (errores.size() < MAX_ERRORES_GUARDADOS) {
+            errores.add("Línea " + linea + ": " + mensaje);
+        }
+    }
+
+    public int getFilasLeidas() {
+        return filasLeidas;
+    }
+
+    public int getInsertados() {
+        return insertados;
+    }
+
+    public int getConError() {
+        return conError;
+    }
+
+    public List<String> getErrores() {
+        return Collections.unmodifiableList(errores);
+    }
+
+    /**
+     * Errores que no se guardaron por superar el máximo.
+     */
+    public int getErroresOmitidos() {
+        return conError - errores.size();
+    }
+}
@@ -0,0 +1,42 @@
+package com.senafood.model;
+
+/**
+ * Totales de inventario de una ubicación: productos con registro de stock,
+ * unidades y productos por debajo del umbral de stock bajo.
+ */
+public class ResumenUbicacion {
+
+    private final Integer idUbicacion;
+    private final String nombre;
+    private final long productos;
+    private final long unidades;
+    private final long stockBajo;
+
+    public ResumenUbicacion(Integer idUbicacion, String nombre, long productos, long unidades, long stockBajo) {
+        this.idUbicacion = idUbicacion;
+        this.nombre = nombre;
+        this.productos = productos;
+        this.unidades = unidades;
+        this.stockBajo = stockBajo;
+    }
+
+    public Integer getIdUbicacion() {
+        return idUbicacion;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public long getProductos() {
+        return productos;
+    }
+
+    public long getUnidades() {
+        return unidades;
+    }
+
+    public long getStockBajo() {
+        return stockBajo;
+    }
+}
@@ -0,0 +1,64 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Existencias de un producto en una ubicación.
+ *
+ * Producto.stock es el total de todas las ubicaciones, mantenido junto con
+ * estas filas por InventoryService, así que el total nunca se suma al leer.
+ * El índice (id_ubicacion, stock) resuelve el stock bajo de una ubicación
+ * sin recorrer las demás.
+ */
+@Entity
+@Table(name = "stock_ubicacion",
+    uniqueConstraints = @UniqueConstraint(name = "uk_stock_producto_ubicacion", columnNames = {"id_producto", "id_ubicacion"}),
+    indexes = @Index(name = "idx_stock_ubicacion_stock", columnList = "id_ubicacion, stock"))
+public class StockUbicacion {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_stock")
+    private Long idStock;
+
+    @Column(name = "id_producto", nullable = false)
+    private Long idProducto;
+
+    @Column(name = "id_ubicacion", nullable = false)
+    private Integer idUbicacion;
+
+    @Column(name = "stock", nullable = false)
+    private Integer stock;
+
+    public Long getIdStock() {
+        return idStock;
+    }
+
+    public void setIdStock(Long idStock) {
+        this.idStock = idStock;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public void setIdProducto(Long idProducto) {
+        this.idProducto = idProducto;
+    }
+
+    public Integer getIdUbicacion() {
+        return idUbicacion;
+    }
+
+    public void setIdUbicacion(Integer idUbicacion) {
+        this.idUbicacion = idUbicacion;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
+    public void setStock(Integer stock) {
+        this.stock = stock;
+    }
+}
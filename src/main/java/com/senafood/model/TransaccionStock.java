@@ -0,0 +1,29 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Transacción del diario de stock confirmada y aún no volcada.
+ *
+ * La fila se inserta en la misma transacción que hace el cambio de stock, así
+ * que existe si y solo si ese cambio se confirmó. El volcado la borra en la
+ * misma transacción que aplica el cambio (EscrituraDiferidaStock). Al arrancar
+ * se reaplican del diario solo los registros cuyas transacciones siguen aquí.
+ */
+@Entity
+@Table(name = "transaccion_stock")
+public class TransaccionStock {
+
+    // Número de la transacción en el diario
+    @Id
+    @Column(name = "id")
+    private Long id;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+}
@@ -0,0 +1,89 @@
+package com.senafood.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+import java.util.Date;
+
+/**
+ * Lugar donde se guarda inventario: una cafetería o una bodega.
+ * Producto.idInventario apunta a la ubicación principal del producto.
+ */
+@Entity
+@Table(name = "ubicacion")
+public class Ubicacion {
+
+    public static final String CAFETERIA = "cafeteria";
+    public static final String BODEGA = "bodega";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Column(name = "id_ubicacion")
+    private Integer idUbicacion;
+
+    @NotBlank(message = "El nombre es obligatorio")
+    @Size(max = 100, message = "El nombre no puede exceder 100 caracteres")
+    @Column(name = "nombre", nullable = false, length = 100)
+    private String nombre;
+
+    @Column(name = "tipo", nullable = false, length = 20)
+    private String tipo = CAFETERIA;
+
+    @Column(name = "estado", nullable = false, length = 20)
+    private String estado = "activo";
+
+    @Column(name = "create_at")
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date createAt;
+
+    // Constructor vacío (necesario para JPA)
+    public Ubicacion() {
+        this.createAt = new Date();
+    }
+
+    public Ubicacion(String nombre, String tipo) {
+        this();
+        this.nombre = nombre;
+        this.tipo = tipo;
+    }
+
+    public Integer getIdUbicacion() {
+        return idUbicacion;
+    }
+
+    public void setIdUbicacion(Integer idUbicacion) {
+        this.idUbicacion = idUbicacion;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public void setNombre(String nombre) {
+        this.nombre = nombre;
+    }
+
+    public String getTipo() {
+        return tipo;
+    }
+
+    public void setTipo(String tipo) {
+        this.tipo = tipo;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public Date getCreateAt() {
+        return createAt;
+    }
+
+    public void setCreateAt(Date createAt) {
+        this.createAt = createAt;
+    }
+}
@@ -0,0 +1,61 @@
+package com.senafood.model;
+
+/**
+ * Tamaños pregenerados de la imagen de un producto. Cada variante cabe en un
+ * cuadrado de "lado" píxeles conservando la proporción.
+ */
+public enum VarianteImagen {
+
+    MINIATURA("miniatura", 160),
+    TARJETA("tarjeta", 400),
+    // El detalle es el archivo guardado en Producto.imagen (sin sufijo)
+    DETALLE(null, 1200);
+
+    private final String sufijo;
+    private final int lado;
+
+    VarianteImagen(String sufijo, int lado) {
+        this.sufijo = sufijo;
+        this.lado = lado;
+    }
+
+    public int getLado() {
+        return lado;
+    }
+
+    /**
+     * Nombre de archivo de la variante: "abc.jpg" -> "abc-tarjeta.jpg".
+     */
+    public String nombreArchivo(String imagen) {
+        if (sufijo == null) {
+            return imagen;
+        }
+        int punto = imagen.lastIndexOf('.');
+        String base = punto > 0 ? imagen.substring(0, punto) : imagen;
+        return base + "-" + sufijo + ".jpg";
+    }
+
+    /**
+     * Variante por nombre, sin distinguir mayúsculas ("tarjeta" -> TARJETA).
+     */
+    public static VarianteImagen de(String nombre) {
+        for (VarianteImagen variante : values()) {
+            if (variante.name().equalsIgnoreCase(nombre)) {
+                return variante;
+            }
+        }
+        return DETALLE;
+    }
+
+    /**
+     * true si el archivo es una variante generada (no una imagen original).
+     */
+    public static boolean esVarianteGenerada(String archivo) {
+        for (VarianteImagen variante : values()) {
+            if (variante.sufijo != null && archivo.endsWith("-" + variante.sufijo + ".jpg")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
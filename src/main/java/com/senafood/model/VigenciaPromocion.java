@@ -0,0 +1,72 @@
+package com.senafood.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Proyección inmutable de una promoción para el índice de precios: producto,
+ * descuento (valor fijo por unidad) y días en que aplica. Sin fecha de inicio
+ * aplica desde siempre y sin fecha fin, sin límite.
+ */
+public class VigenciaPromocion {
+
+    private final Integer idPromocion;
+    private final Long idProducto;
+    private final String descripcion;
+    private final BigDecimal descuento;
+    private final LocalDate fechaInicio;
+    private final LocalDate fechaFin;
+
+    public VigenciaPromocion(Integer idPromocion, Long idProducto, String descripcion, BigDecimal descuento,
+                             LocalDate fechaInicio, LocalDate fechaFin) {
+        this.idPromocion = idPromocion;
+        this.idProducto = idProducto;
+        this.descripcion = descripcion;
+        this.descuento = descuento != null ? descuento : BigDecimal.ZERO;
+        this.fechaInicio = fechaInicio;
+        this.fechaFin = fechaFin;
+    }
+
+    public static VigenciaPromocion de(Promocion promocion) {
+        return new VigenciaPromocion(
+            promocion.getIdPromocion(),
+            promocion.getProducto() != null ? promocion.getProducto().getIdProducto() : null,
+            promocion.getDescripcion(),
+            promocion.getDescuento(),
+            promocion.getFechaInicio(),
+            promocion.getFechaFin()
+        );
+    }
+
+    /**
+     * Si la promoción aplica el día indicado (ambos extremos incluidos).
+     */
+    public boolean aplica(LocalDate fecha) {
+        return (fechaInicio == null || !fecha.isBefore(fechaInicio))
+            && (fechaFin == null || !fecha.isAfter(fechaFin));
+    }
+
+    public Integer getIdPromocion() {
+        return idPromocion;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public String getDescripcion() {
+        return descripcion;
+    }
+
+    public BigDecimal getDescuento() {
+        return descuento;
+    }
+
+    public LocalDate getFechaInicio() {
+        return fechaInicio;
+    }
+
+    public LocalDate getFechaFin() {
+        return fechaFin;
+    }
+}
@@ -0,0 +1,48 @@
+package com.senafood.repository;
+
+import com.senafood.model.Lote;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+public interface LoteRepository extends JpaRepository<Lote, Long> {
+
+    // Lotes con existencias de un producto en orden FEFO (recorre idx_lote_producto_vencimiento)
+    @Query("SELECT l FROM Lote l WHERE l.producto.idProducto = :idProducto AND l.cantidad > 0 " +
+           "ORDER BY l.fechaVencimiento ASC, l.idLote ASC")
+    List<Lote> findDisponiblesFefo(@Param("idProducto") Long idProducto);
+
+    // Existencias (id, cantidad) en orden FEFO, leídas siempre de la base de datos
+    @Query("SELECT l.idLote, l.cantidad FROM Lote l WHERE l.producto.idProducto = :idProducto AND l.cantidad > 0 " +
+           "ORDER BY l.fechaVencimiento ASC, l.idLote ASC")
+    List<Object[]> findExistenciasFefo(@Param("idProducto") Long idProducto);
+
+    // Vencimiento más próximo con existencias: usar con PageRequest.ofSize(1)
+    @Query("SELECT l.fechaVencimiento FROM Lote l WHERE l.producto.idProducto = :idProducto AND l.cantidad > 0 " +
+           "ORDER BY l.fechaVencimiento ASC")
+    List<Date> findVencimientosDisponibles(@Param("idProducto") Long idProducto, Pageable limite);
+
+    // Descuento condicional: no aplica si otro proceso ya consumió el lote
+    @Modifying
+    @Query("UPDATE Lote l SET l.cantidad = l.cantidad - :cantidad WHERE l.idLote = :idLote AND l.cantidad >= :cantidad")
+    int descontar(@Param("idLote") Long idLote, @Param("cantidad") int cantidad);
+
+    @Modifying
+    @Query("DELETE FROM Lote l WHERE l.producto.idProducto = :idProducto")
+    int deleteByIdProducto(@Param("idProducto") Long idProducto);
+
+    // Lote inicial para los productos con stock que aún no tienen lotes
+    // (productos anteriores al manejo por lotes e importaciones masivas)
+    @Modifying
+    @Query(value = "INSERT INTO lote (id_producto, cantidad, fecha_vencimiento, fecha_ingreso) " +
+                   "SELECT p.id_producto, p.stock, p.fecha_vencimiento, NOW() FROM producto p " +
+                   "WHERE p.id_producto > :despuesDe AND p.stock > 0 " +
+                   "AND NOT EXISTS (SELECT 1 FROM lote l WHERE l.id_producto = p.id_producto)",
+           nativeQuery = true)
+    int crearLotesIniciales(@Param("despuesDe") Long despuesDe);
+}
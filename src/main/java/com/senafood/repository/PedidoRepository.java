@@ -0,0 +1,12 @@
+package com.senafood.repository;
+
+import com.senafood.model.Pedido;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface PedidoRepository extends JpaRepository<Pedido, Long> {
+
+    // Últimos pedidos de un usuario (índice idx_pedido_usuario)
+    List<Pedido> findTop10ByUsuarioOrderByIdPedidoDesc(String usuario);
+}
@@ -1,11 +1,22 @@
 package com.senafood.repository;
 
+import com.senafood.model.OpcionProducto;
 import com.senafood.model.Producto;
+import com.senafood.model.ProductoEstadisticas;
+import com.senafood.model.ProductoResumen;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductoRepository extends JpaRepository<Producto, Long> {
     
@@ -39,11 +50,123 @@ public interface ProductoRepository extends JpaRepository<Producto, Long> {
     // Método adicional: buscar productos por nombre y categoría
     List<Producto> findByNombreContainingIgnoreCaseAndCategoria(String nombre, String categoria);
     
-    // Método para contar productos por categoría
+    // Método para contar productos por categoría (carga inicial de CategoriaIndex)
     @Query("SELECT p.categoria, COUNT(p) FROM Producto p GROUP BY p.categoria")
     List<Object[]> countByCategoria();
     long count();
     // Buscar productos vencidos
     @Query("SELECT p FROM Producto p WHERE p.fechaVencimiento < CURRENT_DATE")
     List<Producto> findProductosVencidos();
-}
\ No newline at end of file
+    
+    // --- Paginación por clave (keyset) sobre id_producto con proyección a ProductoResumen ---
+    // El Pageable solo se usa como LIMIT: siempre se pide la página 0.
+    
+    @Query("SELECT new com.senafood.model.ProductoResumen(p.idProducto, p.nombre, p.descripcion, p.costoUnitario, " +
+           "p.stock, p.fechaVencimiento, p.categoria, p.codigoBarras, p.estado, p.imagen) " +
+           "FROM Producto p WHERE p.idProducto > :despuesDe ORDER BY p.idProducto ASC")
+    List<ProductoResumen> findResumenDespuesDe(@Param("despuesDe") Long despuesDe, Pageable limite);
+    
+    @Query("SELECT new com.senafood.model.ProductoResumen(p.idProducto, p.nombre, p.descripcion, p.costoUnitario, " +
+           "p.stock, p.fechaVencimiento, p.categoria, p.codigoBarras, p.estado, p.imagen) " +
+           "FROM Producto p WHERE p.idProducto < :antesDe ORDER BY p.idProducto DESC")
+    List<ProductoResumen> findResumenAntesDe(@Param("antesDe") Long antesDe, Pageable limite);
+    
+    // Catálogo filtrado en la base de datos (activos con stock)
+    @Query("SELECT new com.senafood.model.ProductoResumen(p.idProducto, p.nombre, p.descripcion, p.costoUnitario, " +
+           "p.stock, p.fechaVencimiento, p.categoria, p.codigoBarras, p.estado, p.imagen) " +
+           "FROM Producto p WHERE p.idProducto > :despuesDe AND p.estado = 'activo' AND p.stock > 0 " +
+           "ORDER BY p.idProducto ASC")
+    List<ProductoResumen> findCatalogoDespuesDe(@Param("despuesDe") Long despuesDe, Pageable limite);
+    
+    // Productos de un estado (con o sin stock), para los índices de facetas
+    @Query("SELECT new com.senafood.model.ProductoResumen(p.idProducto, p.nombre, p.descripcion, p.costoUnitario, " +
+           "p.stock, p.fechaVencimiento, p.categoria, p.codigoBarras, p.estado, p.imagen) " +
+           "FROM Producto p WHERE p.idProducto > :despuesDe AND p.estado = :estado ORDER BY p.idProducto ASC")
+    List<ProductoResumen> findResumenPorEstadoDespuesDe(@Param("estado") String estado,
+                                                       @Param("despuesDe") Long despuesDe,
+                                                       Pageable limite);
+    
+    // --- Selector de productos (id y nombre) ---
+    
+    @Query("SELECT new com.senafood.model.OpcionProducto(p.idProducto, p.nombre) FROM Producto p ORDER BY p.nombre ASC")
+    List<OpcionProducto> findOpciones(Pageable limite);
+    
+    @Query("SELECT new com.senafood.model.OpcionProducto(p.idProducto, p.nombre) FROM Producto p WHERE p.idProducto = :idProducto")
+    Optional<OpcionProducto> findOpcion(@Param("idProducto") Long idProducto);
+    
+    // Mayor id existente (punto de partida para recargar índices tras una importación)
+    @Query("SELECT COALESCE(MAX(p.idProducto), 0) FROM Producto p")
+    Long findMaxIdProducto();
+    
+    // Referencias a una imagen del almacén (se borra cuando llega a cero)
+    long countByImagen(String imagen);
+    
+    // Proyección id/imagen leída con cursor para la limpieza de imágenes huérfanas.
+    // Usar dentro de una transacción.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p.idProducto, p.imagen FROM Producto p WHERE p.imagen IS NOT NULL")
+    Stream<Object[]> streamImagenes();
+    
+    // Verificación de duplicados por lote durante la importación masiva
+    @Query("SELECT p.codigoBarras FROM Producto p WHERE p.codigoBarras IN :codigos")
+    List<String> findCodigosBarrasExistentes(@Param("codigos") Collection<String> codigos);
+    
+    // Contadores del listado en una sola consulta agregada
+    @Query("SELECT new com.senafood.model.ProductoEstadisticas(COUNT(p), " +
+           "SUM(CASE WHEN p.estado = 'activo' THEN 1L ELSE 0L END), " +
+           "SUM(CASE WHEN p.stock < :umbralStock THEN 1L ELSE 0L END)) FROM Producto p")
+    ProductoEstadisticas obtenerEstadisticas(@Param("umbralStock") Integer umbralStock);
+    
+    // Exportación completa: cursor de solo lectura leído por bloques de 500 filas
+    // (requiere useCursorFetch=true en la URL de MySQL). Usar dentro de una transacción.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true"),
+        @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "false")
+    })
+    @Query("SELECT p FROM Producto p ORDER BY p.idProducto")
+    Stream<Producto> streamTodos();
+    
+    // --- Agregados de lotes (stock total y vencimiento más próximo) ---
+    // UPDATE directos: no leen la fila antes ni pasan por la validación de la entidad.
+    
+    // Estado guardado de varios productos; al ser una proyección se lee de la base
+    // aunque la entidad ya esté cargada en el contexto de persistencia
+    @Query("SELECT new com.senafood.model.ProductoResumen(p.idProducto, p.nombre, p.descripcion, p.costoUnitario, " +
+           "p.stock, p.fechaVencimiento, p.categoria, p.codigoBarras, p.estado, p.imagen) " +
+           "FROM Producto p WHERE p.idProducto IN :ids")
+    List<ProductoResumen> findResumenesPorId(@Param("ids") Collection<Long> ids);
+    
+    // Stock guardado de un producto, sin cargar la entidad
+    @Query("SELECT p.stock FROM Producto p WHERE p.idProducto = :idProducto")
+    Integer findStockById(@Param("idProducto") Long idProducto);
+    
+    // Sin clear: nadie relee la entidad después y vaciar el contexto en cada
+    // línea obliga a recargar lo que el llamador ya tenía
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Producto p SET p.stock = p.stock + :cantidad WHERE p.idProducto = :idProducto")
+    int sumarStock(@Param("idProducto") Long idProducto, @Param("cantidad") int cantidad);
+    
+    // Descuento condicional: 0 filas si no hay stock suficiente
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Producto p SET p.stock = p.stock - :cantidad " +
+           "WHERE p.idProducto = :idProducto AND p.stock >= :cantidad")
+    int descontarStock(@Param("idProducto") Long idProducto, @Param("cantidad") int cantidad);
+    
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE Producto p SET p.fechaVencimiento = :fecha WHERE p.idProducto = :idProducto")
+    int actualizarVencimiento(@Param("idProducto") Long idProducto, @Param("fecha") Date fecha);
+    
+    // Imagen procesada en segundo plano: solo toca sus columnas, sin guardar la entidad
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.imagen = :imagen, p.estadoImagen = :estadoImagen WHERE p.idProducto = :idProducto")
+    int actualizarImagen(@Param("idProducto") Long idProducto, @Param("imagen") String imagen,
+                         @Param("estadoImagen") String estadoImagen);
+    
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Producto p SET p.estadoImagen = :estadoImagen WHERE p.idProducto = :idProducto")
+    int actualizarEstadoImagen(@Param("idProducto") Long idProducto, @Param("estadoImagen") String estadoImagen);
+}
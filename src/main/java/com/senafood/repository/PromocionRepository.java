@@ -1,10 +1,54 @@
 package com.senafood.repository;
 
 import com.senafood.model.Promocion;
+import com.senafood.model.VigenciaPromocion;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.List;
+
 @Repository
 public interface PromocionRepository extends JpaRepository<Promocion, Integer> {
     // Spring Data JPA proporciona automáticamente los métodos CRUD
-}
\ No newline at end of file
+
+    // Carga del índice de precios: proyección sin cargar entidades ni productos
+    @Query("SELECT new com.senafood.model.VigenciaPromocion(p.idPromocion, p.producto.idProducto, p.descripcion, " +
+           "p.descuento, p.fechaInicio, p.fechaFin) FROM Promocion p")
+    List<VigenciaPromocion> findVigencias();
+
+    // --- Listado paginado con el producto en la misma consulta (JOIN FETCH, sin N+1) ---
+
+    @Query(value = "SELECT p FROM Promocion p JOIN FETCH p.producto ORDER BY p.idPromocion DESC",
+           countQuery = "SELECT COUNT(p) FROM Promocion p")
+    Page<Promocion> findTodas(Pageable pagina);
+
+    // Promociones sin finalizar (las finalizadas solo se listan a pedido)
+    @Query(value = "SELECT p FROM Promocion p JOIN FETCH p.producto " +
+                   "WHERE p.estado IS NULL OR p.estado <> 'finalizada' ORDER BY p.idPromocion DESC",
+           countQuery = "SELECT COUNT(p) FROM Promocion p WHERE p.estado IS NULL OR p.estado <> 'finalizada'")
+    Page<Promocion> findNoFinalizadas(Pageable pagina);
+
+    // --- Cambios de estado en los límites de fechas (UPDATE directos, sin cargar entidades) ---
+
+    @Modifying
+    @Query("UPDATE Promocion p SET p.estado = 'finalizada' " +
+           "WHERE p.fechaFin < :hoy AND (p.estado IS NULL OR p.estado <> 'finalizada')")
+    int finalizarVencidas(@Param("hoy") LocalDate hoy);
+
+    @Modifying
+    @Query("UPDATE Promocion p SET p.estado = 'activa' " +
+           "WHERE (p.fechaInicio IS NULL OR p.fechaInicio <= :hoy) AND (p.fechaFin IS NULL OR p.fechaFin >= :hoy) " +
+           "AND (p.estado IS NULL OR p.estado <> 'activa')")
+    int activarVigentes(@Param("hoy") LocalDate hoy);
+
+    @Modifying
+    @Query("UPDATE Promocion p SET p.estado = 'programada' " +
+           "WHERE p.fechaInicio > :hoy AND (p.estado IS NULL OR p.estado <> 'programada')")
+    int programarFuturas(@Param("hoy") LocalDate hoy);
+}
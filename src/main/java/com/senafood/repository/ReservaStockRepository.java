@@ -0,0 +1,26 @@
+package com.senafood.repository;
+
+import com.senafood.model.ReservaStock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Date;
+import java.util.List;
+
+public interface ReservaStockRepository extends JpaRepository<ReservaStock, Long> {
+
+    // Transición de estado condicional: solo una de dos operaciones concurrentes
+    // (confirmar y liberar, o dos liberaciones) obtiene 1 fila
+    @Modifying
+    @Query("UPDATE ReservaStock r SET r.estado = :nuevo WHERE r.idReserva = :idReserva AND r.estado = :actual")
+    int cambiarEstado(@Param("idReserva") Long idReserva,
+                      @Param("actual") String actual,
+                      @Param("nuevo") String nuevo);
+
+    // Reservas pendientes ya vencidas (recorre idx_reserva_estado_expira)
+    @Query("SELECT r.idReserva FROM ReservaStock r WHERE r.estado = 'pendiente' AND r.expira < :ahora ORDER BY r.expira")
+    List<Long> findPendientesVencidas(@Param("ahora") Date ahora, Pageable limite);
+}
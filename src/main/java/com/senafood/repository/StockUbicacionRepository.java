@@ -0,0 +1,65 @@
+package com.senafood.repository;
+
+import com.senafood.model.StockUbicacion;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface StockUbicacionRepository extends JpaRepository<StockUbicacion, Long> {
+
+    // Stock de un producto en una ubicación (null si no tiene registro)
+    @Query("SELECT s.stock FROM StockUbicacion s WHERE s.idProducto = :idProducto AND s.idUbicacion = :idUbicacion")
+    Integer findStock(@Param("idProducto") Long idProducto, @Param("idUbicacion") Integer idUbicacion);
+
+    List<StockUbicacion> findByIdProductoOrderByIdUbicacionAsc(Long idProducto);
+
+    // Descuento condicional: 0 filas si la ubicación no tiene stock suficiente
+    @Modifying
+    @Query("UPDATE StockUbicacion s SET s.stock = s.stock - :cantidad " +
+           "WHERE s.idProducto = :idProducto AND s.idUbicacion = :idUbicacion AND s.stock >= :cantidad")
+    int descontar(@Param("idProducto") Long idProducto,
+                  @Param("idUbicacion") Integer idUbicacion,
+                  @Param("cantidad") int cantidad);
+
+    @Modifying
+    @Query("UPDATE StockUbicacion s SET s.stock = s.stock + :cantidad " +
+           "WHERE s.idProducto = :idProducto AND s.idUbicacion = :idUbicacion")
+    int sumar(@Param("idProducto") Long idProducto,
+              @Param("idUbicacion") Integer idUbicacion,
+              @Param("cantidad") int cantidad);
+
+    // Registro en cero para una ubicación nueva del producto (no hace nada si ya existe)
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO stock_ubicacion (id_producto, id_ubicacion, stock) VALUES (:idProducto, :idUbicacion, 0)",
+           nativeQuery = true)
+    int crearSiNoExiste(@Param("idProducto") Long idProducto, @Param("idUbicacion") Integer idUbicacion);
+
+    // Registro inicial en la ubicación principal para productos sin registros
+    // (anteriores al inventario por ubicación e importaciones masivas)
+    @Modifying
+    @Query(value = "INSERT INTO stock_ubicacion (id_producto, id_ubicacion, stock) " +
+                   "SELECT p.id_producto, p.id_inventario, p.stock FROM producto p " +
+                   "WHERE p.id_producto > :despuesDe " +
+                   "AND NOT EXISTS (SELECT 1 FROM stock_ubicacion s WHERE s.id_producto = p.id_producto)",
+           nativeQuery = true)
+    int crearRegistrosIniciales(@Param("despuesDe") Long despuesDe);
+
+    @Modifying
+    @Query("DELETE FROM StockUbicacion s WHERE s.idProducto = :idProducto")
+    int deleteByIdProducto(@Param("idProducto") Long idProducto);
+
+    // Stock bajo en una ubicación, del menor al mayor (recorre idx_stock_ubicacion_stock)
+    @Query("SELECT s FROM StockUbicacion s WHERE s.idUbicacion = :idUbicacion AND s.stock < :umbral ORDER BY s.stock ASC")
+    List<StockUbicacion> findStockBajo(@Param("idUbicacion") Integer idUbicacion,
+                                       @Param("umbral") int umbral,
+                                       Pageable limite);
+
+    // Totales de todas las ubicaciones en una sola pasada agregada
+    @Query("SELECT s.idUbicacion, COUNT(s), COALESCE(SUM(s.stock), 0), " +
+           "SUM(CASE WHEN s.stock < :umbral THEN 1L ELSE 0L END) FROM StockUbicacion s GROUP BY s.idUbicacion")
+    List<Object[]> resumirPorUbicacion(@Param("umbral") int umbral);
+}
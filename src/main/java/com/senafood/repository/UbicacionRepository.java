@@ -0,0 +1,11 @@
+package com.senafood.repository;
+
+import com.senafood.model.Ubicacion;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+
+public interface UbicacionRepository extends JpaRepository<Ubicacion, Integer> {
+
+    List<Ubicacion> findAllByOrderByNombreAsc();
+}
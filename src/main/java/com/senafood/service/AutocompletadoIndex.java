@@ -0,0 +1,167 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Diccionario ordenado de nombres de productos para el autocompletado.
+ *
+ * Cada nombre se registra normalizado (sin tildes, en minúsculas) a partir de
+ * cada una de sus palabras, así "alp" sugiere "Leche Alpina". Un prefijo se
+ * resuelve con un recorrido por rango en la skip list: O(log n + N) sin
+ * bloqueos para el lector, sin importar cuántos productos haya.
+ */
+@Component
+public class AutocompletadoIndex {
+
+    private static final int LOTE_CARGA = 1000;
+    // Tope de claves recorridas por consulta, para acotar prefijos muy cortos
+    private static final int MAX_CLAVES_REVISADAS = 256;
+
+    private final ProductoRepository productoRepository;
+
+    // nombre normalizado desde una palabra -> (id -> nombre original)
+    private final ConcurrentSkipListMap<String, Map<Long, String>> claves = new ConcurrentSkipListMap<>();
+    // id -> nombre indexado, para poder retirarlo al actualizar o eliminar
+    private final Map<Long, String> nombres = new ConcurrentHashMap<>();
+
+    public AutocompletadoIndex(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        cargarDesde(0L);
+        System.out.println("⌨️ Autocompletado cargado: " + claves.size() + " claves");
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        cargarDesde(event.getDespuesDe());
+    }
+
+    private synchronized void cargarDesde(long despuesDe) {
+        List<ProductoResumen> lote;
+        do {
+            lote = productoRepository.findResumenDespuesDe(despuesDe, PageRequest.ofSize(LOTE_CARGA));
+            for (ProductoResumen producto : lote) {
+                quitar(producto.getIdProducto());
+                agregar(producto.getIdProducto(), producto.getNombre());
+                despuesDe = producto.getIdProducto();
+            }
+        } while (lote.size() == LOTE_CARGA);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductoCambiado(ProductoCambiadoEvent event) {
+        if (event.getTipo() == ProductoCambiadoEvent.Tipo.STOCK) {
+            // Un cambio de stock no toca el nombre
+            return;
+        }
+        quitar(event.getIdProducto());
+        Producto producto = event.getProducto();
+        if (producto != null) {
+            agregar(producto.getIdProducto(), producto.getNombre());
+        }
+    }
+
+    /**
+     * Hasta "limite" nombres distintos que tienen alguna palabra que empieza
+     * por el prefijo. Primero los que coinciden desde el inicio del nombre.
+     */
+    public List<String> sugerir(String prefijo, int limite) {
+        String normalizado = TextoBusqueda.normalizar(prefijo);
+        if (normalizado.isEmpty() || limite <= 0) {
+            return List.of();
+        }
+
+        ConcurrentNavigableMap<String, Map<Long, String>> rango =
+            claves.subMap(normalizado, true, normalizado + Character.MAX_VALUE, false);
+
+        Set<String> alInicio = new LinkedHashSet<>();
+        Set<String> enOtraPalabra = new LinkedHashSet<>();
+        int revisadas = 0;
+        for (Map<Long, String> coincidencias : rango.values()) {
+            for (String nombre : coincidencias.values()) {
+                if (String.join(" ", TextoBusqueda.tokenizar(nombre)).startsWith(normalizado)) {
+                    alInicio.add(nombre);
+                } else {
+                    enOtraPalabra.add(nombre);
+                }
+            }
+            if (alInicio.size() >= limite || ++revisadas >= MAX_CLAVES_REVISADAS) {
+                break;
+            }
+        }
+
+        List<String> sugerencias = new ArrayList<>(limite);
+        for (String nombre : alInicio) {
+            if (sugerencias.size() == limite) {
+                return sugerencias;
+            }
+            sugerencias.add(nombre);
+        }
+        for (String nombre : enOtraPalabra) {
+            if (sugerencias.size() == limite) {
+                break;
+            }
+            if (!alInicio.contains(nombre)) {
+                sugerencias.add(nombre);
+            }
+        }
+        return sugerencias;
+    }
+
+    private void agregar(Long id, String nombre) {
+        if (nombre == null || nombre.isBlank()) {
+            return;
+        }
+        nombres.put(id, nombre);
+        for (String clave : clavesDe(nombre)) {
+            claves.computeIfAbsent(clave, c -> new ConcurrentHashMap<>()).put(id, nombre);
+        }
+    }
+
+    private void quitar(Long id) {
+        String nombre = nombres.remove(id);
+        if (nombre == null) {
+            return;
+        }
+        for (String clave : clavesDe(nombre)) {
+            Map<Long, String> coincidencias = claves.get(clave);
+            if (coincidencias != null) {
+                coincidencias.remove(id);
+                if (coincidencias.isEmpty()) {
+                    claves.remove(clave);
+                }
+            }
+        }
+    }
+
+    /**
+     * "Leche Alpina Entera" -> "leche alpina entera", "alpina entera", "entera".
+     */
+    private static List<String> clavesDe(String nombre) {
+        List<String> palabras = TextoBusqueda.tokenizar(nombre);
+        List<String> resultado = new ArrayList<>(palabras.size());
+        for (int i = 0; i < palabras.size(); i++) {
+            resultado.add(String.join(" ", palabras.subList(i, palabras.size())));
+        }
+        return resultado;
+    }
+}
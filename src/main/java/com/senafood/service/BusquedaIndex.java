@@ -0,0 +1,370 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice invertido en memoria sobre nombre, descripción y categoría de los productos.
+ *
+ * Reemplaza el LIKE '%texto%' de la base de datos: cada palabra indexada apunta a
+ * los productos que la contienen, y cada trigrama apunta a las palabras que lo
+ * contienen para resolver coincidencias por subcadena. Las lecturas no toman
+ * bloqueos; las escrituras se serializan y llegan después del commit.
+ *
+ * Todo el texto se indexa sin tildes y en minúsculas. En modo tolerante,
+ * un diccionario de borrados permite encontrar palabras con errores de
+ * tipeo sin recorrer el vocabulario completo.
+ */
+@Component
+public class BusquedaIndex {
+
+    // Peso de cada campo en el ranking
+    private static final int PESO_NOMBRE = 3;
+    private static final int PESO_CATEGORIA = 2;
+    private static final int PESO_DESCRIPCION = 1;
+
+    // Calidad de la coincidencia de cada término
+    private static final double EXACTA = 3.0;
+    private static final double PREFIJO = 2.0;
+    private static final double SUBCADENA = 1.0;
+    // Coincidencia aproximada con uno o dos errores de tipeo
+    private static final double APROXIMADA_1 = 0.8;
+    private static final double APROXIMADA_2 = 0.5;
+
+    private static final int LOTE_CARGA = 1000;
+
+    private final ProductoRepository productoRepository;
+
+    // palabra -> ids de productos (ordenado para búsquedas por prefijo)
+    private final ConcurrentSkipListMap<String, Set<Long>> palabras = new ConcurrentSkipListMap<>();
+    // trigrama -> palabras que lo contienen
+    private final Map<String, Set<String>> trigramas = new ConcurrentHashMap<>();
+    // variante con letras borradas -> palabras que la generan (búsqueda tolerante)
+    private final Map<String, Set<String>> borrados = new ConcurrentHashMap<>();
+    // id -> documento indexado
+    private final Map<Long, Documento> documentos = new ConcurrentHashMap<>();
+
+    private final VersionesProducto versiones = new VersionesProducto();
+
+    public BusquedaIndex(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Carga inicial recorriendo la tabla por lotes keyset (memoria acotada por lote).
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        cargarDesde(0L);
+        System.out.println("🔎 Índice de búsqueda cargado: " + documentos.size() + " productos, "
+            + palabras.size() + " palabras");
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        cargarDesde(event.getDespuesDe());
+    }
+
+    private synchronized void cargarDesde(long despuesDe) {
+        List<ProductoResumen> lote;
+        do {
+            lote = productoRepository.findResumenDespuesDe(despuesDe, PageRequest.ofSize(LOTE_CARGA));
+            for (ProductoResumen producto : lote) {
+                quitar(producto.getIdProducto());
+                indexar(producto);
+                despuesDe = producto.getIdProducto();
+            }
+        } while (lote.size() == LOTE_CARGA);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductoCambiado(ProductoCambiadoEvent event) {
+        if (!versiones.aceptar(event.getIdProducto(), event.getVersion())) {
+            // Llegó después de un cambio más reciente del mismo producto
+            return;
+        }
+        Producto producto = event.getProducto();
+        Documento documento = documentos.get(event.getIdProducto());
+        if (producto != null && documento != null && mismoTexto(documento.producto, producto)) {
+            // Cambio de stock: solo se reemplaza el resumen, sin volver a tokenizar
+            documentos.put(event.getIdProducto(), new Documento(ProductoResumen.de(producto), documento.pesos));
+            return;
+        }
+        quitar(event.getIdProducto());
+        if (producto != null) {
+            indexar(ProductoResumen.de(producto));
+        }
+    }
+
+    // Campos que se tokenizan en indexar()
+    private static boolean mismoTexto(ProductoResumen indexado, Producto producto) {
+        return Objects.equals(indexado.getNombre(), producto.getNombre())
+            && Objects.equals(indexado.getDescripcion(), producto.getDescripcion())
+            && Objects.equals(indexado.getCategoria(), producto.getCategoria());
+    }
+
+    /**
+     * Busca productos que contengan todas las palabras del texto (en cualquier
+     * campo indexado), ordenados por relevancia.
+     */
+    public List<ProductoResumen> buscar(String texto, int limite) {
+        return buscar(texto, limite, false);
+    }
+
+    /**
+     * Igual que buscar(), pero además acepta palabras a una distancia de
+     * edición acotada de cada término (ver TextoBusqueda.erroresPermitidos).
+     */
+    public List<ProductoResumen> buscarTolerante(String texto, int limite) {
+        return buscar(texto, limite, true);
+    }
+
+    private List<ProductoResumen> buscar(String texto, int limite, boolean tolerante) {
+        List<String> terminos = TextoBusqueda.tokenizar(texto);
+        if (terminos.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, Double> puntajes = null;
+        for (String termino : terminos) {
+            Map<Long, Double> delTermino = puntuarTermino(termino, tolerante);
+            if (puntajes == null) {
+                puntajes = delTermino;
+            } else {
+                // Intersección: el producto debe coincidir con todos los términos
+                Map<Long, Double> acumulado = new HashMap<>();
+                for (Map.Entry<Long, Double> entrada : puntajes.entrySet()) {
+                    Double puntaje = delTermino.get(entrada.getKey());
+                    if (puntaje != null) {
+                        acumulado.put(entrada.getKey(), entrada.getValue() + puntaje);
+                    }
+                }
+                puntajes = acumulado;
+            }
+            if (puntajes.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        return ordenar(puntajes, limite);
+    }
+
+    /**
+     * Ordena los ids por puntaje (y luego por nombre) y devuelve los primeros.
+     */
+    private List<ProductoResumen> ordenar(Map<Long, Double> puntajes, int limite) {
+        List<Resultado> resultados = new ArrayList<>(puntajes.size());
+        for (Map.Entry<Long, Double> entrada : puntajes.entrySet()) {
+            Documento documento = documentos.get(entrada.getKey());
+            if (documento != null) {
+                resultados.add(new Resultado(documento.producto, entrada.getValue()));
+            }
+        }
+        resultados.sort(Comparator.comparingDouble((Resultado r) -> -r.puntaje)
+            .thenComparing(r -> TextoBusqueda.normalizar(r.producto.getNombre())));
+
+        List<ProductoResumen> productos = new ArrayList<>(Math.min(limite, resultados.size()));
+        for (int i = 0; i < resultados.size() && i < limite; i++) {
+            productos.add(resultados.get(i).producto);
+        }
+        return productos;
+    }
+
+    public int getTotal() {
+        return documentos.size();
+    }
+
+    /**
+     * Puntaje de cada producto para un término: calidad de la mejor
+     * coincidencia (exacta, prefijo o subcadena) por el peso del campo.
+     */
+    private Map<Long, Double> puntuarTermino(String termino, boolean tolerante) {
+        Map<String, Double> coincidencias = new HashMap<>();
+
+        Set<Long> exacta = palabras.get(termino);
+        if (exacta != null) {
+            coincidencias.put(termino, EXACTA);
+        }
+        for (String palabra : palabras.subMap(termino, false, termino + Character.MAX_VALUE, false).keySet()) {
+            coincidencias.put(palabra, PREFIJO);
+        }
+        for (String palabra : palabrasConSubcadena(termino)) {
+            coincidencias.putIfAbsent(palabra, SUBCADENA);
+        }
+        if (tolerante) {
+            for (Map.Entry<String, Integer> aproximada : palabrasAproximadas(termino).entrySet()) {
+                coincidencias.putIfAbsent(aproximada.getKey(),
+                    aproximada.getValue() <= 1 ? APROXIMADA_1 : APROXIMADA_2);
+            }
+        }
+
+        Map<Long, Double> puntajes = new HashMap<>();
+        for (Map.Entry<String, Double> coincidencia : coincidencias.entrySet()) {
+            Set<Long> ids = palabras.get(coincidencia.getKey());
+            if (ids == null) {
+                continue;
+            }
+            for (Long id : ids) {
+                Documento documento = documentos.get(id);
+                if (documento == null) {
+                    continue;
+                }
+                int peso = documento.pesos.getOrDefault(coincidencia.getKey(), PESO_DESCRIPCION);
+                puntajes.merge(id, coincidencia.getValue() * peso, Math::max);
+            }
+        }
+        return puntajes;
+    }
+
+    /**
+     * Palabras del diccionario que contienen el término en cualquier posición,
+     * resueltas intersectando las listas de sus trigramas.
+     */
+    private Set<String> palabrasConSubcadena(String termino) {
+        if (termino.length() < 3) {
+            return Set.of();
+        }
+        Set<String> candidatas = null;
+        for (String trigrama : TextoBusqueda.trigramas(termino)) {
+            Set<String> conTrigrama = trigramas.get(trigrama);
+            if (conTrigrama == null) {
+                return Set.of();
+            }
+            if (candidatas == null) {
+                candidatas = new HashSet<>(conTrigrama);
+            } else {
+                candidatas.retainAll(conTrigrama);
+            }
+            if (candidatas.isEmpty()) {
+                return Set.of();
+            }
+        }
+        candidatas.removeIf(palabra -> !palabra.contains(termino));
+        return candidatas;
+    }
+
+    /**
+     * Palabras del diccionario a distancia de edición permitida del término,
+     * con su distancia. Solo se comparan las que comparten una variante de
+     * borrado con el término, nunca el vocabulario completo.
+     */
+    private Map<String, Integer> palabrasAproximadas(String termino) {
+        int maximo = TextoBusqueda.erroresPermitidos(termino);
+        if (maximo == 0) {
+            return Map.of();
+        }
+        Set<String> candidatas = new HashSet<>();
+        for (String variante : TextoBusqueda.borrados(termino, maximo)) {
+            Set<String> conVariante = borrados.get(variante);
+            if (conVariante != null) {
+                candidatas.addAll(conVariante);
+            }
+        }
+        Map<String, Integer> aproximadas = new HashMap<>();
+        for (String candidata : candidatas) {
+            int distancia = TextoBusqueda.distancia(termino, candidata, maximo);
+            if (distancia <= maximo) {
+                aproximadas.put(candidata, distancia);
+            }
+        }
+        return aproximadas;
+    }
+
+    private void indexar(ProductoResumen producto) {
+        Map<String, Integer> pesos = new HashMap<>();
+        agregarCampo(pesos, producto.getDescripcion(), PESO_DESCRIPCION);
+        agregarCampo(pesos, producto.getCategoria(), PESO_CATEGORIA);
+        agregarCampo(pesos, producto.getNombre(), PESO_NOMBRE);
+
+        Long id = producto.getIdProducto();
+        documentos.put(id, new Documento(producto, pesos));
+        for (String palabra : pesos.keySet()) {
+            palabras.computeIfAbsent(palabra, p -> {
+                for (String trigrama : TextoBusqueda.trigramas(p)) {
+                    trigramas.computeIfAbsent(trigrama, t -> ConcurrentHashMap.newKeySet()).add(p);
+                }
+                for (String variante : TextoBusqueda.borrados(p, TextoBusqueda.erroresPermitidos(p))) {
+                    borrados.computeIfAbsent(variante, v -> ConcurrentHashMap.newKeySet()).add(p);
+                }
+                return ConcurrentHashMap.newKeySet();
+            }).add(id);
+        }
+    }
+
+    private void quitar(Long id) {
+        Documento documento = documentos.remove(id);
+        if (documento == null) {
+            return;
+        }
+        for (String palabra : documento.pesos.keySet()) {
+            Set<Long> ids = palabras.get(palabra);
+            if (ids == null) {
+                continue;
+            }
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                palabras.remove(palabra);
+                for (String trigrama : TextoBusqueda.trigramas(palabra)) {
+                    quitarDePostings(trigramas, trigrama, palabra);
+                }
+                for (String variante : TextoBusqueda.borrados(palabra, TextoBusqueda.erroresPermitidos(palabra))) {
+                    quitarDePostings(borrados, variante, palabra);
+                }
+            }
+        }
+    }
+
+    private static void quitarDePostings(Map<String, Set<String>> postings, String clave, String palabra) {
+        Set<String> palabrasClave = postings.get(clave);
+        if (palabrasClave != null) {
+            palabrasClave.remove(palabra);
+            if (palabrasClave.isEmpty()) {
+                postings.remove(clave);
+            }
+        }
+    }
+
+    private static void agregarCampo(Map<String, Integer> pesos, String texto, int peso) {
+        for (String palabra : TextoBusqueda.tokenizar(texto)) {
+            pesos.merge(palabra, peso, Math::max);
+        }
+    }
+
+    private static final class Documento {
+        private final ProductoResumen producto;
+        // palabra -> peso del campo más importante donde aparece
+        private final Map<String, Integer> pesos;
+
+        private Documento(ProductoResumen producto, Map<String, Integer> pesos) {
+            this.producto = producto;
+            this.pesos = pesos;
+        }
+    }
+
+    private static final class Resultado {
+        private final ProductoResumen producto;
+        private final double puntaje;
+
+        private Resultado(ProductoResumen producto, double puntaje) {
+            this.producto = producto;
+            this.puntaje = puntaje;
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package com.senafood.service;
+
+import com.senafood.model.Carrito;
+import com.senafood.model.CarritoDetalle;
+import com.senafood.model.LineaCarrito;
+import com.senafood.model.Pedido;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.PedidoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Carritos de compra en memoria, uno por usuario.
+ *
+ * Agregar, cambiar o quitar productos no toca la base de datos: el carrito solo
+ * guarda id y cantidad, y los precios se resuelven al mostrarlo contra el
+ * catálogo en memoria (CatalogoCache) y el índice de promociones (PrecioService). La base de datos solo se toca al
+ * confirmar la compra, que pasa el pedido a ProcesadorPedidos.
+ *
+ * El almacén está acotado: los carritos sin uso por más de ttl-minutos se
+ * eliminan en una limpieza periódica y, si se llega a max-carritos, se descarta
+ * el de uso más antiguo para dar lugar al nuevo. Un carrito descartado se pierde
+ * (no se persiste), igual que una sesión vencida.
+ *
+ * Los carritos se guardan en un LinkedHashMap por orden de acceso: el primero
+ * es siempre el de uso más antiguo, así que descartarlo al llegar al límite y
+ * barrer los vencidos no recorre el resto. El mapa va bajo su propio candado,
+ * que solo cubre la búsqueda en el mapa; el contenido de cada carrito se
+ * sincroniza en Carrito.
+ */
+@Service
+public class CarritoService {
+
+    // Orden de acceso: cada get() lleva el carrito al final
+    private final LinkedHashMap<String, Carrito> carritos;
+    private final Object candado = new Object();
+
+    private final CatalogoCache catalogoCache;
+    private final PrecioService precioService;
+    private final ProcesadorPedidos procesadorPedidos;
+    private final PedidoRepository pedidoRepository;
+    private final UbicacionService ubicacionService;
+    private final long esperaPedidoMs;
+    private final long ttlMs;
+    private final int maxCarritos;
+    private final int maxLineas;
+    private final int maxCantidad;
+
+    public CarritoService(CatalogoCache catalogoCache,
+                          PrecioService precioService,
+                          ProcesadorPedidos procesadorPedidos,
+                          PedidoRepository pedidoRepository,
+                          UbicacionService ubicacionService,
+                          @Value("${senafood.pedidos.espera-ms:10000}") long esperaPedidoMs,
+                          @Value("${senafood.carrito.ttl-minutos:120}") long ttlMinutos,
+                          @Value("${senafood.carrito.max-carritos:10000}") int maxCarritos,
+                          @Value("${senafood.carrito.max-lineas:50}") int maxLineas,
+                          @Value("${senafood.carrito.max-cantidad:99}") int maxCantidad) {
+        this.catalogoCache = catalogoCache;
+        this.precioService = precioService;
+        this.procesadorPedidos = procesadorPedidos;
+        this.pedidoRepository = pedidoRepository;
+        this.ubicacionService = ubicacionService;
+        this.esperaPedidoMs = esperaPedidoMs;
+        this.ttlMs = ttlMinutos * 60_000L;
+        this.maxCarritos = maxCarritos;
+        this.maxLineas = maxLineas;
+        this.maxCantidad = maxCantidad;
+        this.carritos = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Carrito> masAntiguo) {
+                return size() > maxCarritos;
+            }
+        };
+    }
+
+    /**
+     * Agrega unidades de un producto del catálogo al carrito del usuario.
+     * Retorna la cantidad que queda en el carrito.
+     */
+    public int agregar(String usuario, Long idProducto, int cantidad) {
+        if (cantidad <= 0) {
+            throw new RuntimeException("La cantidad debe ser mayor que 0");
+        }
+        ProductoResumen producto = catalogoCache.buscar(idProducto);
+        if (producto == null) {
+            throw new RuntimeException("El producto no está disponible");
+        }
+        Carrito carrito = obtener(usuario);
+        if (!carrito.contiene(idProducto) && carrito.getLineas() >= maxLineas) {
+            throw new RuntimeException("El carrito admite hasta " + maxLineas + " productos distintos");
+        }
+        int resultante = carrito.agregar(idProducto, cantidad);
+        int limite = limiteCantidad(producto);
+        if (resultante > limite) {
+            carrito.actualizar(idProducto, limite);
+            return limite;
+        }
+        return resultante;
+    }
+
+    /**
+     * Fija la cantidad de un producto del carrito; con 0 lo quita. Sin carrito
+     * no hace nada, y un producto que ya no está en el catálogo se quita. Aplica
+     * los mismos límites que agregar().
+     */
+    public void actualizar(String usuario, Long idProducto, int cantidad) {
+        Carrito carrito = buscar(usuario);
+        if (carrito == null || vencido(carrito, System.currentTimeMillis())) {
+            return;
+        }
+        carrito.tocar();
+        ProductoResumen producto = catalogoCache.buscar(idProducto);
+        if (producto == null || cantidad <= 0) {
+            carrito.quitar(idProducto);
+            return;
+        }
+        if (!carrito.contiene(idProducto) && carrito.getLineas() >= maxLineas) {
+            throw new RuntimeException("El carrito admite hasta " + maxLineas + " productos distintos");
+        }
+        carrito.actualizar(idProducto, Math.min(cantidad, limiteCantidad(producto)));
+    }
+
+    public void quitar(String usuario, Long idProducto) {
+        Carrito carrito = buscar(usuario);
+        if (carrito != null) {
+            carrito.quitar(idProducto);
+        }
+    }
+
+    public void vaciar(String usuario) {
+        synchronized (candado) {
+            carritos.remove(usuario);
+        }
+    }
+
+    /**
+     * Carrito del usuario con precios y stock tomados del catálogo en memoria.
+     */
+    public CarritoDetalle ver(String usuario) {
+        Carrito carrito = buscar(usuario);
+        if (carrito == null || vencido(carrito, System.currentTimeMillis())) {
+            return CarritoDetalle.vacio();
+        }
+        carrito.tocar();
+        return detallar(carrito.getCantidades());
+    }
+
+    /**
+     * Confirma la compra del carrito como un pedido con los precios mostrados:
+     * el stock de todas las líneas se descuenta o ninguno. Espera a que el
+     * procesador de pedidos lo confirme y retira lo comprado del carrito. Es la
+     * única operación del carrito que escribe en la base de datos.
+     */
+    public Pedido confirmarCompra(String usuario) {
+        Carrito carrito = buscar(usuario);
+        if (carrito == null) {
+            throw new RuntimeException("El carrito está vacío");
+        }
+        Map<Long, Integer> cantidades = carrito.getCantidades();
+        CarritoDetalle detalle = detallar(cantidades);
+        if (detalle.isVacio()) {
+            throw new RuntimeException("El carrito está vacío");
+        }
+        if (detalle.isTieneNoDisponibles()) {
+            throw new RuntimeException("Hay productos del carrito que ya no están disponibles");
+        }
+
+        Pedido pedido = new Pedido(usuario, ubicacionService.getPrincipal());
+        for (LineaCarrito linea : detalle.getLineas()) {
+            pedido.agregarDetalle(linea.getIdProducto(), linea.getCantidad(), linea.getPrecioUnitario());
+        }
+
+        CompletableFuture<Pedido> resultado = procesadorPedidos.encolar(pedido)
+            .thenApply(confirmado -> {
+                // Se retira lo comprado aunque el llamador ya no esté esperando
+                carrito.descontar(cantidades);
+                return confirmado;
+            });
+        try {
+            Pedido confirmado = resultado.get(esperaPedidoMs, TimeUnit.MILLISECONDS);
+            System.out.println("🛒 Pedido " + confirmado.getIdPedido() + " confirmado para " + usuario + ": "
+                + confirmado.getUnidades() + " unidades, total " + confirmado.getTotal());
+            return confirmado;
+        } catch (ExecutionException e) {
+            Throwable causa = e.getCause();
+            throw causa instanceof RuntimeException ? (RuntimeException) causa : new RuntimeException(causa);
+        } catch (TimeoutException e) {
+            throw new RuntimeException("El pedido sigue en proceso; revise sus pedidos en unos segundos");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Confirmación del pedido interrumpida");
+        }
+    }
+
+    /**
+     * Últimos pedidos confirmados del usuario.
+     */
+    public List<Pedido> pedidosRecientes(String usuario) {
+        return pedidoRepository.findTop10ByUsuarioOrderByIdPedidoDesc(usuario);
+    }
+
+    public int getTotalCarritos() {
+        synchronized (candado) {
+            return carritos.size();
+        }
+    }
+
+    /**
+     * Elimina los carritos sin uso por más del tiempo de vida. Recorre desde el
+     * de uso más antiguo y se detiene en el primero que sigue vigente.
+     */
+    @Scheduled(fixedDelayString = "${senafood.carrito.limpieza-ms:60000}")
+    public void eliminarVencidos() {
+        long ahora = System.currentTimeMillis();
+        int eliminados = 0;
+        synchronized (candado) {
+            Iterator<Carrito> it = carritos.values().iterator();
+            while (it.hasNext() && vencido(it.next(), ahora)) {
+                it.remove();
+                eliminados++;
+            }
+        }
+        if (eliminados > 0) {
+            System.out.println("🛒 Carritos vencidos eliminados: " + eliminados);
+        }
+    }
+
+    private Carrito buscar(String usuario) {
+        synchronized (candado) {
+            return carritos.get(usuario);
+        }
+    }
+
+    /**
+     * Carrito vigente del usuario, creándolo si no existe. Con el almacén lleno,
+     * el put() descarta el de uso más antiguo (removeEldestEntry).
+     */
+    private Carrito obtener(String usuario) {
+        long ahora = System.currentTimeMillis();
+        Carrito carrito;
+        synchronized (candado) {
+            carrito = carritos.get(usuario);
+            if (carrito == null || vencido(carrito, ahora)) {
+                carrito = new Carrito(usuario);
+                carritos.put(usuario, carrito);
+            }
+            carrito.tocar();
+        }
+        return carrito;
+    }
+
+    private boolean vencido(Carrito carrito, long ahora) {
+        return ahora - carrito.getUltimoAcceso() > ttlMs;
+    }
+
+    private int limiteCantidad(ProductoResumen producto) {
+        int stock = producto.getStock() != null ? producto.getStock() : 0;
+        return Math.min(maxCantidad, stock);
+    }
+
+    private CarritoDetalle detallar(Map<Long, Integer> cantidades) {
+        List<LineaCarrito> lineas = new ArrayList<>(cantidades.size());
+        LocalDate hoy = LocalDate.now();
+        cantidades.forEach((idProducto, cantidad) -> {
+            ProductoResumen producto = catalogoCache.buscar(idProducto);
+            if (producto == null) {
+                lineas.add(new LineaCarrito(idProducto, "Producto " + idProducto, null, null, null, cantidad, 0, false));
+            } else {
+                int stock = producto.getStock() != null ? producto.getStock() : 0;
+                lineas.add(new LineaCarrito(idProducto, producto.getNombre(), producto.getImagen(),
+                    producto.getCostoUnitario(), precioService.precioEfectivo(idProducto, producto.getCostoUnitario(), hoy),
+                    cantidad, stock, cantidad <= stock));
+            }
+        });
+        return new CarritoDetalle(lineas);
+    }
+}
@@ -0,0 +1,163 @@
+package com.senafood.service;
+
+import com.senafood.model.PaginaKeyset;
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Catálogo público en memoria (productos activos con stock).
+ *
+ * Los lectores recorren un ConcurrentSkipListMap sin bloqueos ni consultas a la
+ * base de datos. Cada cambio confirmado reemplaza o quita solo la entrada del
+ * producto afectado, sin copiar el catálogo: un cambio de stock cuesta lo mismo
+ * con mil productos que con cien mil. Un cambio que llega después de otro más
+ * reciente del mismo producto se descarta (VersionesProducto).
+ */
+@Component
+public class CatalogoCache {
+
+    // Filas por consulta al cargar el catálogo desde la base de datos
+    private static final int LOTE_CARGA = 1000;
+
+    private final ProductoRepository productoRepository;
+
+    // Ordenado por id_producto, igual que la paginación keyset de la base de datos
+    private final ConcurrentSkipListMap<Long, ProductoResumen> productos = new ConcurrentSkipListMap<>();
+
+    // size() del mapa recorre todas las entradas; el total se lleva aparte
+    private final AtomicInteger total = new AtomicInteger();
+
+    private final VersionesProducto versiones = new VersionesProducto();
+
+    public CatalogoCache(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Carga inicial del catálogo al arrancar la aplicación.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        recargar();
+    }
+
+    /**
+     * Vuelve a leer el catálogo completo desde la base de datos, recorriéndolo
+     * por lotes keyset ya filtrados y proyectados en SQL. Las entradas se
+     * reemplazan en su lugar, así que los lectores nunca ven el catálogo vacío.
+     */
+    public synchronized void recargar() {
+        NavigableMap<Long, ProductoResumen> cargados = new ConcurrentSkipListMap<>();
+        cargarDesde(cargados, 0L);
+        for (Long idProducto : productos.keySet()) {
+            if (!cargados.containsKey(idProducto)) {
+                aplicar(idProducto, VersionesProducto.CARGA, null);
+            }
+        }
+        cargados.forEach((idProducto, producto) -> aplicar(idProducto, VersionesProducto.CARGA, producto));
+        System.out.println("🖼️ Catálogo en memoria cargado: " + cargados.size() + " productos");
+    }
+
+    /**
+     * Agrega al catálogo los productos insertados por una importación masiva.
+     */
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        NavigableMap<Long, ProductoResumen> importados = new ConcurrentSkipListMap<>();
+        cargarDesde(importados, event.getDespuesDe());
+        importados.forEach((idProducto, producto) -> aplicar(idProducto, VersionesProducto.CARGA, producto));
+    }
+
+    private void cargarDesde(NavigableMap<Long, ProductoResumen> destino, long despuesDe) {
+        List<ProductoResumen> lote;
+        do {
+            lote = productoRepository.findCatalogoDespuesDe(despuesDe, PageRequest.ofSize(LOTE_CARGA));
+            for (ProductoResumen producto : lote) {
+                destino.put(producto.getIdProducto(), producto);
+                despuesDe = producto.getIdProducto();
+            }
+        } while (lote.size() == LOTE_CARGA);
+    }
+
+    /**
+     * Aplica un cambio confirmado sobre la entrada del producto.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoCambiado(ProductoCambiadoEvent event) {
+        Producto producto = event.getProducto();
+        aplicar(event.getIdProducto(), event.getVersion(),
+            producto != null && esVisible(producto) ? ProductoResumen.de(producto) : null);
+    }
+
+    /**
+     * Pone (o quita, con null) la entrada del producto si la versión no es
+     * anterior a la última aplicada.
+     */
+    private void aplicar(Long idProducto, long version, ProductoResumen producto) {
+        versiones.aplicar(idProducto, version, () -> {
+            if (producto != null) {
+                if (productos.put(idProducto, producto) == null) {
+                    total.incrementAndGet();
+                }
+            } else if (productos.remove(idProducto) != null) {
+                total.decrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Página del catálogo relativa a un id (keyset), resuelta en memoria.
+     */
+    public PaginaKeyset<ProductoResumen> getPagina(Long despuesDe, Long antesDe, int tamano) {
+        if (antesDe != null) {
+            List<ProductoResumen> filas = tomar(productos.headMap(antesDe, false).descendingMap(), tamano + 1);
+            return PaginaKeyset.atras(filas, tamano, ProductoResumen::getIdProducto);
+        }
+
+        NavigableMap<Long, ProductoResumen> desde = despuesDe != null
+            ? productos.tailMap(despuesDe, false)
+            : productos;
+        return PaginaKeyset.adelante(tomar(desde, tamano + 1), tamano, despuesDe == null,
+            ProductoResumen::getIdProducto);
+    }
+
+    /**
+     * Producto del catálogo por id, o null si no está visible (inactivo o agotado).
+     */
+    public ProductoResumen buscar(Long idProducto) {
+        return idProducto != null ? productos.get(idProducto) : null;
+    }
+
+    public int getTotal() {
+        return total.get();
+    }
+
+    private static List<ProductoResumen> tomar(NavigableMap<Long, ProductoResumen> productos, int limite) {
+        List<ProductoResumen> filas = new ArrayList<>(limite);
+        for (ProductoResumen producto : productos.values()) {
+            if (filas.size() == limite) {
+                break;
+            }
+            filas.add(producto);
+        }
+        return filas;
+    }
+
+    private static boolean esVisible(Producto producto) {
+        return "activo".equals(producto.getEstado())
+            && producto.getStock() != null
+            && producto.getStock() > 0;
+    }
+}
@@ -0,0 +1,111 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Índice en memoria de categorías con el número de productos de cada una.
+ *
+ * Se carga una vez con el GROUP BY de ProductoRepository.countByCategoria() y
+ * luego se ajusta incrementalmente con cada cambio de producto confirmado, de
+ * modo que los menús de categorías cuestan O(categorías) y no O(productos).
+ */
+@Component
+public class CategoriaIndex {
+
+    private final ProductoRepository productoRepository;
+
+    // Mapa ordenado e inmutable, reemplazado completo en cada cambio
+    private volatile Map<String, Long> conteos = Collections.emptyMap();
+
+    public CategoriaIndex(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        recargar();
+    }
+
+    /**
+     * Reconstruye el índice desde la base de datos.
+     */
+    public synchronized void recargar() {
+        TreeMap<String, Long> nuevos = new TreeMap<>();
+        for (Object[] fila : productoRepository.countByCategoria()) {
+            String categoria = (String) fila[0];
+            if (esValida(categoria)) {
+                nuevos.merge(categoria, ((Number) fila[1]).longValue(), Long::sum);
+            }
+        }
+        publicar(nuevos);
+        System.out.println("📊 Índice de categorías cargado: " + nuevos.size() + " categorías");
+    }
+
+    /**
+     * Tras una importación masiva se recalculan los conteos con el GROUP BY.
+     */
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        recargar();
+    }
+
+    /**
+     * Resta el producto de su categoría anterior y lo suma a la nueva.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductoCambiado(ProductoCambiadoEvent event) {
+        String antes = categoriaDe(event.getAnterior());
+        String despues = categoriaDe(event.getProducto());
+        if (antes == null ? despues == null : antes.equals(despues)) {
+            return;
+        }
+
+        TreeMap<String, Long> nuevos = new TreeMap<>(conteos);
+        if (antes != null) {
+            nuevos.computeIfPresent(antes, (categoria, total) -> total > 1 ? total - 1 : null);
+        }
+        if (despues != null) {
+            nuevos.merge(despues, 1L, Long::sum);
+        }
+        publicar(nuevos);
+    }
+
+    /**
+     * Categorías con al menos un producto, ordenadas alfabéticamente.
+     */
+    public List<String> getCategorias() {
+        return List.copyOf(conteos.keySet());
+    }
+
+    /**
+     * Número de productos por categoría, ordenado por nombre de categoría.
+     */
+    public Map<String, Long> getConteos() {
+        return conteos;
+    }
+
+    private void publicar(TreeMap<String, Long> nuevos) {
+        this.conteos = Collections.unmodifiableMap(nuevos);
+    }
+
+    private static String categoriaDe(Producto producto) {
+        if (producto == null || !esValida(producto.getCategoria())) {
+            return null;
+        }
+        return producto.getCategoria();
+    }
+
+    private static boolean esValida(String categoria) {
+        return categoria != null && !categoria.isEmpty();
+    }
+}
@@ -0,0 +1,98 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Índice hash en memoria código de barras -> producto, para el escaneo en caja
+ * y la validación de códigos duplicados sin ir a la base de datos.
+ */
+@Component
+public class CodigoBarrasIndex {
+
+    private static final int LOTE_CARGA = 1000;
+
+    private final ProductoRepository productoRepository;
+
+    private final Map<String, ProductoResumen> porCodigo = new ConcurrentHashMap<>();
+
+    // Código indexado de cada producto: al cambiar se retira este, no el del
+    // evento anterior, que puede haberse descartado por llegar tarde
+    private final Map<Long, String> codigoPorProducto = new ConcurrentHashMap<>();
+
+    private final VersionesProducto versiones = new VersionesProducto();
+
+    public CodigoBarrasIndex(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        cargarDesde(0L);
+        System.out.println("🏷️ Índice de códigos de barras cargado: " + porCodigo.size() + " códigos");
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        cargarDesde(event.getDespuesDe());
+    }
+
+    private synchronized void cargarDesde(long despuesDe) {
+        List<ProductoResumen> lote;
+        do {
+            lote = productoRepository.findResumenDespuesDe(despuesDe, PageRequest.ofSize(LOTE_CARGA));
+            for (ProductoResumen producto : lote) {
+                if (esValido(producto.getCodigoBarras())) {
+                    poner(producto);
+                }
+                despuesDe = producto.getIdProducto();
+            }
+        } while (lote.size() == LOTE_CARGA);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onProductoCambiado(ProductoCambiadoEvent event) {
+        if (!versiones.aceptar(event.getIdProducto(), event.getVersion())) {
+            // Llegó después de un cambio más reciente del mismo producto
+            return;
+        }
+        String indexado = codigoPorProducto.remove(event.getIdProducto());
+        if (indexado != null) {
+            // Solo se retira si el código sigue apuntando a este producto
+            porCodigo.computeIfPresent(indexado,
+                (codigo, actual) -> actual.getIdProducto().equals(event.getIdProducto()) ? null : actual);
+        }
+        Producto producto = event.getProducto();
+        if (producto != null && esValido(producto.getCodigoBarras())) {
+            poner(ProductoResumen.de(producto));
+        }
+    }
+
+    private void poner(ProductoResumen producto) {
+        String codigo = producto.getCodigoBarras().trim();
+        porCodigo.put(codigo, producto);
+        codigoPorProducto.put(producto.getIdProducto(), codigo);
+    }
+
+    public ProductoResumen buscar(String codigoBarras) {
+        return esValido(codigoBarras) ? porCodigo.get(codigoBarras.trim()) : null;
+    }
+
+    public boolean existe(String codigoBarras) {
+        return buscar(codigoBarras) != null;
+    }
+
+    private static boolean esValido(String codigoBarras) {
+        return codigoBarras != null && !codigoBarras.isBlank();
+    }
+}
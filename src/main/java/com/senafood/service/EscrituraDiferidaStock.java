@@ -0,0 +1,801 @@
+package com.senafood.service;
+
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import com.senafood.repository.StockUbicacionRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Escritura diferida (write-behind) del stock para los picos de venta.
+ *
+ * Con el modo activo, InventoryService no actualiza las filas de stock en
+ * cada reserva: el stock disponible vive en un contador atómico por producto y
+ * ubicación (compare-and-set, sin candados) y los cambios se acumulan. Cada
+ * pocos cientos de milisegundos se vuelcan en una sola transacción con UPDATE
+ * por lotes (JDBC batch) sobre stock_ubicacion y sobre el total del producto,
+ * de modo que cien ventas del mismo producto son una sola escritura de cada
+ * fila y desaparece la contención en los productos más vendidos.
+ *
+ * Los cambios de una transacción se anotan juntos en un diario en disco justo
+ * antes de su commit, con el número de la transacción, y se sincronizan con
+ * fsync agrupado (varios hilos que escriben a la vez comparten la misma
+ * sincronización). En la misma transacción se inserta ese número en
+ * transaccion_stock, y el volcado lo borra al aplicar el cambio. Al arrancar se
+ * reaplican solo los registros cuya transacción sigue en la tabla: una
+ * transacción revertida no deja fila y una ya volcada tampoco, así que una
+ * caída en cualquier punto no pierde ni duplica cambios confirmados.
+ *
+ * El candado del diario solo cubre trabajo en memoria y la escritura del
+ * archivo; las lecturas de la base de datos se hacen fuera y se validan con el
+ * número de generación de los volcados.
+ */
+@Component
+public class EscrituraDiferidaStock {
+
+    private static final String PREFIJO_DIARIO = "diario-";
+    private static final String EXTENSION_DIARIO = ".log";
+
+    // Tipos de registro del diario
+    private static final char STOCK = 'S';
+    private static final char LOTES = 'L';
+
+    private static final String SQL_STOCK_UBICACION =
+        "UPDATE stock_ubicacion SET stock = stock + ? WHERE id_producto = ? AND id_ubicacion = ?";
+    private static final String SQL_STOCK_TOTAL = "UPDATE producto SET stock = stock + ? WHERE id_producto = ?";
+    private static final String SQL_CONFIRMAR = "INSERT INTO transaccion_stock (id) VALUES (?)";
+    private static final String SQL_CONFIRMADAS = "SELECT id FROM transaccion_stock";
+    private static final String SQL_VOLCADA = "DELETE FROM transaccion_stock WHERE id = ?";
+
+    private final ProductoRepository productoRepository;
+    private final StockUbicacionRepository stockUbicacionRepository;
+    private final LoteService loteService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate transaccionNueva;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean activo;
+    private final Path directorio;
+
+    // Stock disponible por producto y ubicación: lo guardado, lo pendiente de
+    // volcar y lo reservado por transacciones que aún no terminan
+    private final Map<Clave, AtomicInteger> disponibles = new ConcurrentHashMap<>();
+    // Unidades reservadas por producto en transacciones aún sin terminar
+    private final Map<Long, AtomicInteger> sinConfirmar = new ConcurrentHashMap<>();
+
+    // Candado del diario: protege el archivo, la secuencia y los mapas de pendientes
+    private final Object candado = new Object();
+    // Cambios confirmados sin volcar y sus transacciones
+    private final Map<Clave, Pendiente> pendientes = new HashMap<>();
+    private final List<Long> transaccionesPendientes = new ArrayList<>();
+    // Cambios del volcado en curso (sacados de pendientes, aún sin commit)
+    private final Map<Clave, Pendiente> enVuelo = new HashMap<>();
+    private final List<Long> transaccionesEnVuelo = new ArrayList<>();
+    // Transacciones ya escritas en el diario cuyo commit aún no termina
+    private final TreeSet<Long> escritas = new TreeSet<>();
+    private final List<ArchivoDiario> cerrados = new ArrayList<>();
+    private FileChannel diario;
+    private Path archivoDiario;
+    private long secuencia;
+    private long secuenciaAlAbrir;
+    // Cambia al empezar y al terminar cada volcado: una lectura de la base de
+    // datos hecha sin que cambie no se cruzó con ningún volcado
+    private long generacion;
+
+    // Sincronización a disco agrupada: última secuencia con fsync hecho
+    private final Object candadoDisco = new Object();
+    private long enDiscoHasta;
+
+    public EscrituraDiferidaStock(ProductoRepository productoRepository,
+                                  StockUbicacionRepository stockUbicacionRepository,
+                                  LoteService loteService,
+                                  JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate,
+                                  PlatformTransactionManager transactionManager,
+                                  ApplicationEventPublisher eventPublisher,
+                                  @Value("${senafood.inventario.write-behind.activo:false}") boolean activo,
+                                  @Value("${senafood.inventario.write-behind.diario:${user.home}/senafood/diario-stock}") String directorio) {
+        this.productoRepository = productoRepository;
+        this.stockUbicacionRepository = stockUbicacionRepository;
+        this.loteService = loteService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.transaccionNueva = new TransactionTemplate(transactionManager);
+        this.transaccionNueva.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.activo = activo;
+        this.directorio = Paths.get(directorio).toAbsolutePath().normalize();
+    }
+
+    /**
+     * Reaplica lo que quedó en el diario sin volcar (caída o cierre abrupto)
+     * antes de que los índices en memoria carguen el stock.
+     */
+    @PostConstruct
+    public void recuperar() {
+        if (!activo) {
+            return;
+        }
+        int recuperados = 0;
+        try {
+            Files.createDirectories(directorio);
+            Set<Long> confirmadas = new HashSet<>(jdbcTemplate.queryForList(SQL_CONFIRMADAS, Long.class));
+            List<Path> archivos = listarDiarios();
+            synchronized (candado) {
+                long maxima = confirmadas.stream().mapToLong(Long::longValue).max().orElse(0L);
+                Set<Long> encontradas = new HashSet<>();
+                for (Path archivo : archivos) {
+                    long ultima = 0L;
+                    String contenido = Files.readString(archivo, StandardCharsets.UTF_8);
+                    // Lo que sigue al último salto de línea es una escritura que no terminó
+                    int fin = contenido.lastIndexOf('\n');
+                    for (String linea : contenido.substring(0, fin + 1).split("\n")) {
+                        Registro registro = Registro.leer(linea);
+                        if (registro == null) {
+                            continue;
+                        }
+                        ultima = Math.max(ultima, registro.transaccion);
+                        // Sin fila en transaccion_stock: se revirtió o ya se volcó
+                        if (confirmadas.contains(registro.transaccion)) {
+                            acumular(pendientes, registro.tipo, registro.clave, registro.cantidad);
+                            if (encontradas.add(registro.transaccion)) {
+                                transaccionesPendientes.add(registro.transaccion);
+                            }
+                            recuperados++;
+                        }
+                    }
+                    cerrados.add(new ArchivoDiario(archivo, ultima));
+                    maxima = Math.max(maxima, ultima);
+                }
+                if (encontradas.size() < confirmadas.size()) {
+                    System.err.println("⚠️ " + (confirmadas.size() - encontradas.size())
+                        + " transacciones de stock confirmadas no están en el diario de " + directorio);
+                }
+                secuencia = maxima;
+                enDiscoHasta = maxima;
+                abrirDiario();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo abrir el diario de stock en " + directorio, e);
+        }
+        System.out.println("📒 Diario de stock listo en " + directorio + " (" + recuperados + " cambios recuperados)");
+        volcar();
+        borrarDiariosResueltos();
+    }
+
+    public boolean isActivo() {
+        return activo;
+    }
+
+    /**
+     * Stock disponible del producto en la ubicación, incluidos los cambios aún sin volcar.
+     */
+    public int disponible(Long idProducto, Integer idUbicacion) {
+        return contador(new Clave(idProducto, idUbicacion)).get();
+    }
+
+    /**
+     * Stock total del producto: lo guardado más lo pendiente de volcar en
+     * cualquier ubicación y lo reservado por transacciones en curso.
+     */
+    public int disponibleTotal(Long idProducto) {
+        while (true) {
+            long inicio;
+            synchronized (candado) {
+                inicio = contieneProducto(enVuelo, idProducto) ? -1 : generacion;
+            }
+            if (inicio < 0) {
+                esperarVolcado();
+                continue;
+            }
+            // Transacción propia: cada intento ve lo último confirmado
+            Integer guardado = transaccionNueva.execute(estado -> productoRepository.findStockById(idProducto));
+            int total = guardado != null ? guardado : 0;
+            synchronized (candado) {
+                if (generacion != inicio) {
+                    continue;
+                }
+                for (Map.Entry<Clave, Pendiente> entrada : pendientes.entrySet()) {
+                    if (entrada.getKey().idProducto.equals(idProducto)) {
+                        total += entrada.getValue().stock;
+                    }
+                }
+            }
+            AtomicInteger reservado = sinConfirmar.get(idProducto);
+            return total + (reservado != null ? reservado.get() : 0);
+        }
+    }
+
+    /**
+     * Descuenta unidades de la ubicación si alcanzan (compare-and-set sobre el
+     * contador). El cambio se anota en el diario al confirmar la transacción que
+     * llama; si se revierte, las unidades vuelven. Retorna false si no hay stock
+     * suficiente.
+     */
+    public boolean reservar(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return Boolean.TRUE.equals(transactionTemplate.execute(
+                estado -> reservar(idProducto, idUbicacion, cantidad)));
+        }
+        Clave clave = new Clave(idProducto, idUbicacion);
+        AtomicInteger contador = contador(clave);
+        int actual;
+        do {
+            actual = contador.get();
+            if (actual < cantidad) {
+                return false;
+            }
+        } while (!contador.compareAndSet(actual, actual - cantidad));
+
+        sinConfirmar.computeIfAbsent(idProducto, id -> new AtomicInteger()).addAndGet(-cantidad);
+        cambiosDeLaTransaccion().agregar(new Cambio(STOCK, clave, -cantidad, true));
+        return true;
+    }
+
+    /**
+     * Suma unidades a la ubicación cuando la transacción actual confirma.
+     */
+    public void sumar(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(estado -> sumar(idProducto, idUbicacion, cantidad));
+            return;
+        }
+        cambiosDeLaTransaccion().agregar(new Cambio(STOCK, new Clave(idProducto, idUbicacion), cantidad, false));
+    }
+
+    /**
+     * Anota unidades vendidas que deben salir de los lotes (FEFO) en el
+     * próximo volcado, cuando la transacción actual confirma.
+     */
+    public void retirarDeLotes(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            transactionTemplate.executeWithoutResult(estado -> retirarDeLotes(idProducto, idUbicacion, cantidad));
+            return;
+        }
+        cambiosDeLaTransaccion().agregar(new Cambio(LOTES, new Clave(idProducto, idUbicacion), cantidad, false));
+    }
+
+    /**
+     * Aplica en la base de datos los cambios acumulados: un UPDATE por producto
+     * en un solo batch, los retiros de lotes y el borrado de sus transacciones
+     * en transaccion_stock, todo en una transacción. Si falla, los cambios
+     * vuelven a pendientes para el próximo intento.
+     */
+    @Scheduled(initialDelayString = "${senafood.inventario.write-behind.intervalo-ms:500}",
+               fixedDelayString = "${senafood.inventario.write-behind.intervalo-ms:500}")
+    public synchronized void volcar() {
+        if (!activo) {
+            return;
+        }
+        Map<Clave, Pendiente> lote;
+        List<Long> transacciones;
+        synchronized (candado) {
+            if (pendientes.isEmpty() || diario == null) {
+                return;
+            }
+            try {
+                // Lo que llegue desde ahora va a un archivo nuevo
+                rotar();
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo rotar el diario de stock: " + e.getMessage());
+                return;
+            }
+            lote = new HashMap<>(pendientes);
+            transacciones = new ArrayList<>(transaccionesPendientes);
+            enVuelo.putAll(lote);
+            transaccionesEnVuelo.addAll(transacciones);
+            pendientes.clear();
+            transaccionesPendientes.clear();
+            generacion++;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(estado -> aplicar(lote, transacciones));
+        } catch (RuntimeException e) {
+            synchronized (candado) {
+                enVuelo.forEach((clave, pendiente) -> {
+                    acumular(pendientes, STOCK, clave, pendiente.stock);
+                    acumular(pendientes, LOTES, clave, pendiente.lotes);
+                });
+                transaccionesPendientes.addAll(transaccionesEnVuelo);
+                enVuelo.clear();
+                transaccionesEnVuelo.clear();
+                generacion++;
+            }
+            System.err.println("⚠️ Volcado de stock fallido, se reintentará: " + e.getMessage());
+            return;
+        }
+
+        synchronized (candado) {
+            enVuelo.clear();
+            transaccionesEnVuelo.clear();
+            generacion++;
+        }
+        borrarDiariosResueltos();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (!activo) {
+            return;
+        }
+        volcar();
+        synchronized (candado) {
+            try {
+                if (diario != null) {
+                    diario.force(false);
+                    diario.close();
+                }
+            } catch (IOException e) {
+                System.err.println("⚠️ Error cerrando el diario de stock: " + e.getMessage());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoCambiado(ProductoCambiadoEvent event) {
+        if (event.getTipo() == ProductoCambiadoEvent.Tipo.ELIMINADO) {
+            disponibles.keySet().removeIf(clave -> clave.idProducto.equals(event.getIdProducto()));
+        }
+    }
+
+    private void aplicar(Map<Clave, Pendiente> lote, List<Long> transacciones) {
+        List<Object[]> filasUbicacion = new ArrayList<>();
+        Map<Long, Pendiente> porProducto = new HashMap<>();
+        for (Map.Entry<Clave, Pendiente> entrada : lote.entrySet()) {
+            Clave clave = entrada.getKey();
+            Pendiente pendiente = entrada.getValue();
+            if (pendiente.stock != 0) {
+                filasUbicacion.add(new Object[] {pendiente.stock, clave.idProducto, clave.idUbicacion});
+            }
+            Pendiente total = porProducto.computeIfAbsent(clave.idProducto, id -> new Pendiente());
+            total.stock += pendiente.stock;
+            total.lotes += pendiente.lotes;
+        }
+        List<Object[]> filasTotal = new ArrayList<>();
+        porProducto.forEach((idProducto, total) -> {
+            if (total.stock != 0) {
+                filasTotal.add(new Object[] {total.stock, idProducto});
+            }
+        });
+        if (!filasUbicacion.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_STOCK_UBICACION, filasUbicacion);
+        }
+        if (!filasTotal.isEmpty()) {
+            jdbcTemplate.batchUpdate(SQL_STOCK_TOTAL, filasTotal);
+        }
+        porProducto.forEach((idProducto, total) -> {
+            if (total.lotes > 0) {
+                loteService.retirar(idProducto, total.lotes);
+            }
+        });
+        List<Object[]> volcadas = new ArrayList<>(transacciones.size());
+        for (Long transaccion : transacciones) {
+            volcadas.add(new Object[] {transaccion});
+        }
+        jdbcTemplate.batchUpdate(SQL_VOLCADA, volcadas);
+
+        // Los índices en memoria se actualizan tras el commit, una vez por producto
+        for (ProductoResumen actual : productoRepository.findResumenesPorId(porProducto.keySet())) {
+            eventPublisher.publishEvent(
+                ProductoCambiadoEvent.stock(actual, porProducto.get(actual.getIdProducto()).stock));
+        }
+        System.out.println("📒 Stock volcado: " + porProducto.size() + " productos en una transacción");
+    }
+
+    /**
+     * Contador del producto en la ubicación; la primera vez se arma con el stock
+     * guardado más lo pendiente de volcar. La fila se lee fuera del candado y el
+     * contador solo se instala si ningún volcado empezó ni terminó entretanto.
+     */
+    private AtomicInteger contador(Clave clave) {
+        AtomicInteger contador = disponibles.get(clave);
+        if (contador != null) {
+            return contador;
+        }
+        while (true) {
+            long inicio;
+            synchronized (candado) {
+                contador = disponibles.get(clave);
+                if (contador != null) {
+                    return contador;
+                }
+                // Con un volcado en curso de esta clave no se sabe si la fila ya lo incluye
+                inicio = enVuelo.containsKey(clave) ? -1 : generacion;
+            }
+            if (inicio < 0) {
+                esperarVolcado();
+                continue;
+            }
+
+            // La fila debe existir antes de anotar cambios, aunque la transacción que llama se revierta
+            Integer stock = transaccionNueva.execute(estado -> {
+                if (productoRepository.findStockById(clave.idProducto) == null) {
+                    return null;
+                }
+                stockUbicacionRepository.crearSiNoExiste(clave.idProducto, clave.idUbicacion);
+                return stockUbicacionRepository.findStock(clave.idProducto, clave.idUbicacion);
+            });
+            if (stock == null) {
+                throw new RuntimeException("Producto no encontrado con ID: " + clave.idProducto);
+            }
+
+            synchronized (candado) {
+                contador = disponibles.get(clave);
+                if (contador != null) {
+                    return contador;
+                }
+                if (generacion == inicio) {
+                    Pendiente pendiente = pendientes.get(clave);
+                    contador = new AtomicInteger(stock + (pendiente != null ? pendiente.stock : 0));
+                    disponibles.put(clave, contador);
+                    return contador;
+                }
+            }
+            // Un volcado se cruzó con la lectura: se vuelve a leer
+        }
+    }
+
+    private static void esperarVolcado() {
+        try {
+            Thread.sleep(5);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrumpido esperando el volcado de stock", e);
+        }
+    }
+
+    /**
+     * Cambios de la transacción actual, registrados una sola vez como
+     * sincronización de esa transacción (las suspendidas no se ven).
+     */
+    private CambiosTransaccion cambiosDeLaTransaccion() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof CambiosTransaccion) {
+                return (CambiosTransaccion) sincronizacion;
+            }
+        }
+        CambiosTransaccion cambios = new CambiosTransaccion();
+        TransactionSynchronizationManager.registerSynchronization(cambios);
+        return cambios;
+    }
+
+    /**
+     * Escribe los cambios de una transacción en el diario con un número nuevo
+     * y lo deja registrado como escrito; no retorna hasta que están en disco.
+     */
+    private void escribir(CambiosTransaccion transaccion) {
+        long numero;
+        synchronized (candado) {
+            if (diario == null) {
+                throw new RuntimeException("El diario de stock no está disponible");
+            }
+            numero = secuencia + 1;
+            StringBuilder lineas = new StringBuilder();
+            for (Cambio cambio : transaccion.cambios) {
+                lineas.append(numero).append(';').append(cambio.tipo).append(';')
+                    .append(cambio.clave.idProducto).append(';').append(cambio.clave.idUbicacion).append(';')
+                    .append(cambio.cantidad).append('\n');
+            }
+            ByteBuffer contenido = StandardCharsets.UTF_8.encode(lineas.toString());
+            try {
+                while (contenido.hasRemaining()) {
+                    diario.write(contenido);
+                }
+            } catch (IOException e) {
+                // Unas líneas a medias no deben quedar pegadas a las siguientes
+                try {
+                    rotar();
+                } catch (IOException otro) {
+                    e.addSuppressed(otro);
+                }
+                throw new UncheckedIOException("No se pudo escribir en el diario de stock", e);
+            }
+            secuencia = numero;
+            escritas.add(numero);
+            transaccion.numero = numero;
+        }
+        asegurarEnDisco(numero);
+    }
+
+    /**
+     * Al terminar una transacción escrita en el diario: si confirmó, sus
+     * cambios pasan a pendientes y las sumas llegan a los contadores; si se
+     * revirtió, las reservas vuelven. Solo trabajo en memoria.
+     */
+    private void terminar(CambiosTransaccion transaccion, int estado) {
+        for (Cambio cambio : transaccion.cambios) {
+            if (cambio.enContador) {
+                sinConfirmar.get(cambio.clave.idProducto).addAndGet(-cambio.cantidad);
+            }
+        }
+        synchronized (candado) {
+            if (estado == TransactionSynchronization.STATUS_UNKNOWN && transaccion.numero > 0) {
+                // No se sabe si hubo commit: el diario se conserva hasta el próximo arranque
+                System.err.println("⚠️ Transacción de stock " + transaccion.numero
+                    + " con resultado desconocido; se resolverá al reiniciar");
+            } else {
+                escritas.remove(transaccion.numero);
+            }
+            boolean confirmada = estado == TransactionSynchronization.STATUS_COMMITTED;
+            for (Cambio cambio : transaccion.cambios) {
+                AtomicInteger contador = disponibles.get(cambio.clave);
+                if (confirmada) {
+                    acumular(pendientes, cambio.tipo, cambio.clave, cambio.cantidad);
+                    // Sin contador aún: al crearse ya incluirá este pendiente
+                    if (cambio.tipo == STOCK && !cambio.enContador && contador != null) {
+                        contador.addAndGet(cambio.cantidad);
+                    }
+                } else if (cambio.enContador && contador != null) {
+                    contador.addAndGet(-cambio.cantidad);
+                }
+            }
+            if (confirmada && transaccion.numero > 0) {
+                transaccionesPendientes.add(transaccion.numero);
+            }
+        }
+    }
+
+    /**
+     * fsync agrupado: el primer hilo sincroniza todo lo escrito hasta ese
+     * momento y los que esperaban con secuencias menores ya no repiten el fsync.
+     */
+    private void asegurarEnDisco(long numero) {
+        synchronized (candadoDisco) {
+            if (enDiscoHasta >= numero) {
+                return;
+            }
+            FileChannel canal;
+            long hasta;
+            synchronized (candado) {
+                canal = diario;
+                hasta = secuencia;
+            }
+            try {
+                canal.force(false);
+            } catch (ClosedChannelException e) {
+                // Se rotó: rotar() sincronizó el archivo antes de cerrarlo
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo sincronizar el diario de stock", e);
+            }
+            enDiscoHasta = hasta;
+        }
+    }
+
+    /**
+     * Borra los archivos cerrados cuyas transacciones ya están todas resueltas
+     * (volcadas o revertidas). Los nombres se eligen con el candado y se borran fuera.
+     */
+    private void borrarDiariosResueltos() {
+        List<Path> resueltos = new ArrayList<>();
+        synchronized (candado) {
+            long abierta = Long.MAX_VALUE;
+            if (!escritas.isEmpty()) {
+                abierta = escritas.first();
+            }
+            for (Long numero : transaccionesPendientes) {
+                abierta = Math.min(abierta, numero);
+            }
+            for (Long numero : transaccionesEnVuelo) {
+                abierta = Math.min(abierta, numero);
+            }
+            for (Iterator<ArchivoDiario> it = cerrados.iterator(); it.hasNext(); ) {
+                ArchivoDiario archivo = it.next();
+                if (archivo.ultimaSecuencia < abierta) {
+                    resueltos.add(archivo.ruta);
+                    it.remove();
+                }
+            }
+        }
+        for (Path ruta : resueltos) {
+            try {
+                Files.deleteIfExists(ruta);
+            } catch (IOException e) {
+                System.err.println("⚠️ No se pudo borrar " + ruta + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Abre un archivo de diario nuevo y cierra el actual (si tenía registros).
+     * Llamar con el candado del diario.
+     */
+    private void rotar() throws IOException {
+        if (diario != null && secuencia == secuenciaAlAbrir) {
+            return;
+        }
+        FileChannel anterior = diario;
+        Path rutaAnterior = archivoDiario;
+        abrirDiario();
+        if (anterior != null) {
+            anterior.force(false);
+            anterior.close();
+            // El archivo anterior termina en la secuencia actual
+            cerrados.add(new ArchivoDiario(rutaAnterior, secuencia));
+        }
+    }
+
+    private void abrirDiario() throws IOException {
+        Path ruta = directorio.resolve(PREFIJO_DIARIO + (secuencia + 1) + "-" + System.currentTimeMillis() + EXTENSION_DIARIO);
+        diario = FileChannel.open(ruta, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        archivoDiario = ruta;
+        secuenciaAlAbrir = secuencia;
+    }
+
+    private List<Path> listarDiarios() throws IOException {
+        List<Path> archivos = new ArrayList<>();
+        try (DirectoryStream<Path> contenido = Files.newDirectoryStream(directorio, PREFIJO_DIARIO + "*" + EXTENSION_DIARIO)) {
+            contenido.forEach(archivos::add);
+        }
+        return archivos;
+    }
+
+    private static boolean contieneProducto(Map<Clave, Pendiente> mapa, Long idProducto) {
+        for (Clave clave : mapa.keySet()) {
+            if (clave.idProducto.equals(idProducto)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void acumular(Map<Clave, Pendiente> destino, char tipo, Clave clave, int cantidad) {
+        if (cantidad == 0) {
+            return;
+        }
+        Pendiente pendiente = destino.computeIfAbsent(clave, c -> new Pendiente());
+        if (tipo == LOTES) {
+            pendiente.lotes += cantidad;
+        } else {
+            pendiente.stock += cantidad;
+        }
+    }
+
+    /**
+     * Cambios de stock de una transacción. Antes del commit se escriben en el
+     * diario y se inserta su número en transaccion_stock (si algo falla, la
+     * transacción se revierte); al terminar se aplican o se deshacen en memoria.
+     */
+    private final class CambiosTransaccion implements TransactionSynchronization {
+        private final List<Cambio> cambios = new ArrayList<>();
+        // Número en el diario (0 mientras no se escribe)
+        private long numero;
+
+        private void agregar(Cambio cambio) {
+            cambios.add(cambio);
+        }
+
+        @Override
+        public void beforeCommit(boolean soloLectura) {
+            escribir(this);
+            jdbcTemplate.update(SQL_CONFIRMAR, numero);
+        }
+
+        @Override
+        public void afterCompletion(int estado) {
+            terminar(this, estado);
+        }
+    }
+
+    private static final class Cambio {
+        private final char tipo;
+        private final Clave clave;
+        private final int cantidad;
+        // true si ya se aplicó al contador (reserva); si no, se aplica al confirmar
+        private final boolean enContador;
+
+        private Cambio(char tipo, Clave clave, int cantidad, boolean enContador) {
+            this.tipo = tipo;
+            this.clave = clave;
+            this.cantidad = cantidad;
+            this.enContador = enContador;
+        }
+    }
+
+    private static final class Clave {
+        private final Long idProducto;
+        private final Integer idUbicacion;
+
+        private Clave(Long idProducto, Integer idUbicacion) {
+            this.idProducto = idProducto;
+            this.idUbicacion = idUbicacion;
+        }
+
+        @Override
+        public boolean equals(Object otro) {
+            if (this == otro) {
+                return true;
+            }
+            if (!(otro instanceof Clave)) {
+                return false;
+            }
+            Clave clave = (Clave) otro;
+            return idProducto.equals(clave.idProducto) && idUbicacion.equals(clave.idUbicacion);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(idProducto, idUbicacion);
+        }
+    }
+
+    private static final class Pendiente {
+        private int stock;
+        private int lotes;
+    }
+
+    private static final class ArchivoDiario {
+        private final Path ruta;
+        // Mayor número de transacción escrito en el archivo
+        private final long ultimaSecuencia;
+
+        private ArchivoDiario(Path ruta, long ultimaSecuencia) {
+            this.ruta = ruta;
+            this.ultimaSecuencia = ultimaSecuencia;
+        }
+    }
+
+    /**
+     * Línea del diario: transaccion;tipo;idProducto;idUbicacion;cantidad
+     */
+    private static final class Registro {
+        private final long transaccion;
+        private final char tipo;
+        private final Clave clave;
+        private final int cantidad;
+
+        private Registro(long transaccion, char tipo, Clave clave, int cantidad) {
+            this.transaccion = transaccion;
+            this.tipo = tipo;
+            this.clave = clave;
+            this.cantidad = cantidad;
+        }
+
+        private static Registro leer(String linea) {
+            String[] partes = linea.split(";");
+            if (partes.length != 5 || partes[1].length() != 1) {
+                return null;
+            }
+            try {
+                return new Registro(Long.parseLong(partes[0]), partes[1].charAt(0),
+                    new Clave(Long.parseLong(partes[2]), Integer.parseInt(partes[3])), Integer.parseInt(partes[4]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,230 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.repository.ProductoRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportación del inventario completo (CSV o XLSX) para auditoría.
+ *
+ * Las filas se leen con un cursor de la base de datos (ProductoRepository.streamTodos)
+ * y se escriben directamente en la respuesta; cada entidad se separa del
+ * contexto de persistencia en cuanto se escribe, así la memoria usada no crece
+ * con el tamaño de la tabla.
+ *
+ * Las columnas coinciden con las de la importación CSV, de modo que un archivo
+ * exportado puede volver a importarse.
+ */
+@Service
+public class ExportacionProductosService {
+
+    private static final List<String> COLUMNAS = List.of(
+        "id_producto", "nombre", "descripcion", "costo_unitario", "stock",
+        "fecha_vencimiento", "categoria", "codigo_barras", "estado");
+
+    private final ProductoRepository productoRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public ExportacionProductosService(ProductoRepository productoRepository) {
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * CSV separado por comas, UTF-8 con BOM para que Excel respete las tildes.
+     */
+    @Transactional(readOnly = true)
+    public long exportarCsv(OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        writer.write(String.join(",", COLUMNAS));
+        writer.write("\r\n");
+
+        SimpleDateFormat formatoFecha = new SimpleDateFormat("yyyy-MM-dd");
+        long filas = recorrer(producto -> {
+            Object[] valores = valores(producto, formatoFecha);
+            for (int i = 0; i < valores.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(campoCsv(valores[i]));
+            }
+            writer.write("\r\n");
+        });
+        writer.flush();
+        System.out.println("📤 Exportación CSV terminada: " + filas + " productos");
+        return filas;
+    }
+
+    /**
+     * Libro XLSX de una hoja, escrito como SpreadsheetML directamente sobre el
+     * ZIP: no se arma el libro en memoria.
+     */
+    @Transactional(readOnly = true)
+    public long exportarXlsx(OutputStream salida) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(salida, StandardCharsets.UTF_8);
+        Writer writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+
+        escribirEntrada(zip, writer, "[Content_Types].xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+            "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+            "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+            "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>" +
+            "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>" +
+            "</Types>");
+        escribirEntrada(zip, writer, "_rels/.rels",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+            "</Relationships>");
+        escribirEntrada(zip, writer, "xl/workbook.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+            "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">" +
+            "<sheets><sheet name=\"Productos\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+        escribirEntrada(zip, writer, "xl/_rels/workbook.xml.rels",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">" +
+            "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+            "</Relationships>");
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>" +
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\"><sheetData>");
+        writer.write("<row>");
+        for (String columna : COLUMNAS) {
+            celdaXlsx(writer, columna);
+        }
+        writer.write("</row>");
+
+        SimpleDateFormat formatoFecha = new SimpleDateFormat("yyyy-MM-dd");
+        long filas = recorrer(producto -> {
+            writer.write("<row>");
+            for (Object valor : valores(producto, formatoFecha)) {
+                celdaXlsx(writer, valor);
+            }
+            writer.write("</row>");
+        });
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+        zip.finish();
+        System.out.println("📤 Exportación XLSX terminada: " + filas + " productos");
+        return filas;
+    }
+
+    @FunctionalInterface
+    private interface EscritorFila {
+        void escribir(Producto producto) throws IOException;
+    }
+
+    /**
+     * Recorre el cursor escribiendo cada producto y separándolo del contexto
+     * de persistencia para que pueda liberarse.
+     */
+    private long recorrer(EscritorFila escritor) throws IOException {
+        long filas = 0;
+        try (Stream<Producto> productos = productoRepository.streamTodos()) {
+            Iterator<Producto> iterador = productos.iterator();
+            while (iterador.hasNext()) {
+                Producto producto = iterador.next();
+                escritor.escribir(producto);
+                entityManager.detach(producto);
+                filas++;
+            }
+        }
+        return filas;
+    }
+
+    private static Object[] valores(Producto producto, SimpleDateFormat formatoFecha) {
+        Date vencimiento = producto.getFechaVencimiento();
+        return new Object[] {
+            producto.getIdProducto(),
+            producto.getNombre(),
+            producto.getDescripcion(),
+            producto.getCostoUnitario(),
+            producto.getStock(),
+            vencimiento != null ? formatoFecha.format(vencimiento) : null,
+            producto.getCategoria(),
+            producto.getCodigoBarras(),
+            producto.getEstado()
+        };
+    }
+
+    private static String campoCsv(Object valor) {
+        if (valor == null) {
+            return "";
+        }
+        String texto = texto(valor);
+        if (texto.indexOf(',') >= 0 || texto.indexOf('"') >= 0
+                || texto.indexOf('\n') >= 0 || texto.indexOf('\r') >= 0) {
+            return "\"" + texto.replace("\"", "\"\"") + "\"";
+        }
+        return texto;
+    }
+
+    private static String texto(Object valor) {
+        // BigDecimal.toString() puede usar notación científica
+        return valor instanceof BigDecimal ? ((BigDecimal) valor).toPlainString() : valor.toString();
+    }
+
+    private static void celdaXlsx(Writer writer, Object valor) throws IOException {
+        if (valor == null) {
+            writer.write("<c/>");
+        } else if (valor instanceof Number) {
+            writer.write("<c><v>" + texto(valor) + "</v></c>");
+        } else {
+            writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+            writer.write(escaparXml(valor.toString()));
+            writer.write("</t></is></c>");
+        }
+    }
+
+    private static String escaparXml(String texto) {
+        StringBuilder resultado = new StringBuilder(texto.length());
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '<' -> resultado.append("&lt;");
+                case '>' -> resultado.append("&gt;");
+                case '&' -> resultado.append("&amp;");
+                case '"' -> resultado.append("&quot;");
+                default -> {
+                    // Los caracteres de control (salvo tab y saltos de línea) no son XML válido
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') {
+                        resultado.append(c);
+                    }
+                }
+            }
+        }
+        return resultado.toString();
+    }
+
+    private static void escribirEntrada(ZipOutputStream zip, Writer writer, String nombre, String contenido)
+            throws IOException {
+        zip.putNextEntry(new ZipEntry(nombre));
+        writer.write(contenido);
+        writer.flush();
+        zip.closeEntry();
+    }
+}
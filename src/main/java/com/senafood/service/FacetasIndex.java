@@ -0,0 +1,388 @@
+package com.senafood.service;
+
+import com.senafood.model.ConteoFacetas;
+import com.senafood.model.FiltroCatalogo;
+import com.senafood.model.PaginaKeyset;
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.model.RangoPrecio;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Navegación por facetas del catálogo (categoría, banda de precio, stock y
+ * próximos a vencer) sobre los productos activos.
+ *
+ * Cada producto recibe un número de documento denso y cada valor de faceta
+ * guarda un BitSet con los documentos que lo tienen. Combinar filtros es
+ * intersectar bitsets y los conteos son cardinalidades, sin consultas a la base
+ * de datos ni una consulta derivada por combinación.
+ *
+ * Los números de documento siguen el orden de id, así que las páginas se leen
+ * del bitset resultado con nextSetBit/previousSetBit desde el cursor, sin
+ * ordenar los resultados.
+ */
+@Component
+public class FacetasIndex {
+
+    private static final int LOTE_CARGA = 1000;
+
+    private final ProductoRepository productoRepository;
+    // Días que definen la faceta "por vencer" (los mismos del aviso de vencimientos)
+    private final int diasAviso;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final VersionesProducto versiones = new VersionesProducto();
+
+    // Documentos en orden de id: id -> número de documento, número -> id y número -> producto.
+    // Un producto que sale del índice deja su documento vacío (null) y lo recupera si vuelve.
+    private final Map<Long, Integer> documentoPorId = new HashMap<>();
+    private long[] idPorDocumento = new long[LOTE_CARGA];
+    private final List<ProductoResumen> productos = new ArrayList<>();
+    private final BitSet vivos = new BitSet();
+
+    // Bitsets por valor de faceta
+    private final Map<String, BitSet> porCategoria = new TreeMap<>();
+    private final Map<RangoPrecio, BitSet> porRango = new EnumMap<>(RangoPrecio.class);
+    private final BitSet enStock = new BitSet();
+    private final BitSet porVencer = new BitSet();
+    // Día en que se calculó "porVencer"; se recalcula al cambiar la fecha
+    private volatile LocalDate porVencerCalculadoEl;
+
+    public FacetasIndex(ProductoRepository productoRepository,
+                        @Value("${senafood.vencimientos.dias-aviso:30}") int diasAviso) {
+        this.productoRepository = productoRepository;
+        this.diasAviso = diasAviso;
+        for (RangoPrecio rango : RangoPrecio.values()) {
+            porRango.put(rango, new BitSet());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        porVencerCalculadoEl = hoy();
+        cargarDesde(0L);
+        System.out.println("🧭 Facetas del catálogo cargadas: " + vivos.cardinality() + " productos activos");
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        cargarDesde(event.getDespuesDe());
+    }
+
+    private void cargarDesde(long despuesDe) {
+        List<ProductoResumen> lote;
+        do {
+            // La consulta se hace fuera del lock; solo la aplicación del lote lo toma
+            lote = productoRepository.findResumenPorEstadoDespuesDe("activo", despuesDe,
+                PageRequest.ofSize(LOTE_CARGA));
+            lock.writeLock().lock();
+            try {
+                for (ProductoResumen producto : lote) {
+                    quitar(producto.getIdProducto());
+                    agregar(producto);
+                    despuesDe = producto.getIdProducto();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (lote.size() == LOTE_CARGA);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoCambiado(ProductoCambiadoEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (!versiones.aceptar(event.getIdProducto(), event.getVersion())) {
+                // Llegó después de un cambio más reciente del mismo producto
+                return;
+            }
+            quitar(event.getIdProducto());
+            Producto producto = event.getProducto();
+            if (producto != null && "activo".equals(producto.getEstado())) {
+                agregar(ProductoResumen.de(producto));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Página de productos que cumplen el filtro, ordenada por id (keyset).
+     */
+    public PaginaKeyset<ProductoResumen> buscar(FiltroCatalogo filtro, Long despuesDe, Long antesDe, int tamano) {
+        actualizarPorVencerSiCambioElDia();
+        List<ProductoResumen> filas = new ArrayList<>(tamano + 1);
+        lock.readLock().lock();
+        try {
+            BitSet resultado = aplicar(filtro, null);
+            if (antesDe != null) {
+                // Hacia atrás desde el último documento con id < antesDe
+                for (int doc = resultado.previousSetBit(posicion(antesDe) - 1);
+                     doc >= 0 && filas.size() <= tamano; doc = resultado.previousSetBit(doc - 1)) {
+                    filas.add(productos.get(doc));
+                }
+            } else {
+                int inicio = despuesDe != null ? posicion(despuesDe + 1) : 0;
+                for (int doc = resultado.nextSetBit(inicio);
+                     doc >= 0 && filas.size() <= tamano; doc = resultado.nextSetBit(doc + 1)) {
+                    filas.add(productos.get(doc));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return antesDe != null
+            ? PaginaKeyset.atras(filas, tamano, ProductoResumen::getIdProducto)
+            : PaginaKeyset.adelante(filas, tamano, despuesDe == null, ProductoResumen::getIdProducto);
+    }
+
+    /**
+     * Conteos de cada faceta aplicando los demás filtros seleccionados.
+     */
+    public ConteoFacetas contar(FiltroCatalogo filtro) {
+        actualizarPorVencerSiCambioElDia();
+        lock.readLock().lock();
+        try {
+            Map<String, Long> categorias = new TreeMap<>();
+            BitSet sinCategoria = aplicar(filtro, Dimension.CATEGORIA);
+            for (Map.Entry<String, BitSet> entrada : porCategoria.entrySet()) {
+                long conteo = contarInterseccion(sinCategoria, entrada.getValue());
+                if (conteo > 0) {
+                    categorias.put(entrada.getKey(), conteo);
+                }
+            }
+
+            Map<RangoPrecio, Long> rangos = new EnumMap<>(RangoPrecio.class);
+            BitSet sinRango = aplicar(filtro, Dimension.RANGO);
+            for (Map.Entry<RangoPrecio, BitSet> entrada : porRango.entrySet()) {
+                rangos.put(entrada.getKey(), contarInterseccion(sinRango, entrada.getValue()));
+            }
+
+            BitSet sinStock = aplicar(filtro, Dimension.STOCK);
+            long disponibles = contarInterseccion(sinStock, enStock);
+            long agotados = sinStock.cardinality() - disponibles;
+
+            long proximos = contarInterseccion(aplicar(filtro, Dimension.POR_VENCER), porVencer);
+
+            return new ConteoFacetas(aplicar(filtro, null).cardinality(), categorias, rangos,
+                disponibles, agotados, proximos);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private enum Dimension {
+        CATEGORIA, RANGO, STOCK, POR_VENCER
+    }
+
+    /**
+     * Intersección de todos los filtros excepto el de la dimensión indicada.
+     * Debe llamarse con el lock de lectura tomado.
+     */
+    private BitSet aplicar(FiltroCatalogo filtro, Dimension excepto) {
+        BitSet resultado = (BitSet) vivos.clone();
+        if (excepto != Dimension.CATEGORIA && filtro.getCategoria() != null) {
+            resultado.and(porCategoria.getOrDefault(filtro.getCategoria(), new BitSet()));
+        }
+        if (excepto != Dimension.RANGO && filtro.getRango() != null) {
+            resultado.and(porRango.get(filtro.getRango()));
+        }
+        if (excepto != Dimension.STOCK && !filtro.isIncluirAgotados()) {
+            resultado.and(enStock);
+        }
+        if (excepto != Dimension.POR_VENCER && filtro.isPorVencer()) {
+            resultado.and(porVencer);
+        }
+        return resultado;
+    }
+
+    private static long contarInterseccion(BitSet a, BitSet b) {
+        BitSet interseccion = (BitSet) a.clone();
+        interseccion.and(b);
+        return interseccion.cardinality();
+    }
+
+    /**
+     * Primer documento con id >= al indicado (los documentos están en orden de id).
+     */
+    private int posicion(long id) {
+        int bajo = 0;
+        int alto = productos.size();
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (idPorDocumento[medio] < id) {
+                bajo = medio + 1;
+            } else {
+                alto = medio;
+            }
+        }
+        return bajo;
+    }
+
+    private void agregar(ProductoResumen producto) {
+        long id = producto.getIdProducto();
+        Integer doc = documentoPorId.get(id);
+        if (doc == null) {
+            int total = productos.size();
+            if (total > 0 && id < idPorDocumento[total - 1]) {
+                // Id antiguo que nunca estuvo activo: se renumera para conservar el orden
+                renumerar(producto);
+                return;
+            }
+            doc = total;
+            if (doc == idPorDocumento.length) {
+                idPorDocumento = Arrays.copyOf(idPorDocumento, doc * 2);
+            }
+            idPorDocumento[doc] = id;
+            productos.add(producto);
+            documentoPorId.put(id, doc);
+        } else {
+            productos.set(doc, producto);
+        }
+        marcar(doc, producto);
+    }
+
+    private void marcar(int doc, ProductoResumen producto) {
+        vivos.set(doc);
+
+        if (producto.getCategoria() != null && !producto.getCategoria().isEmpty()) {
+            porCategoria.computeIfAbsent(producto.getCategoria(), c -> new BitSet()).set(doc);
+        }
+        RangoPrecio rango = RangoPrecio.de(producto.getCostoUnitario());
+        if (rango != null) {
+            porRango.get(rango).set(doc);
+        }
+        if (producto.getStock() != null && producto.getStock() > 0) {
+            enStock.set(doc);
+        }
+        if (venceProntoDesde(producto, porVencerCalculadoEl)) {
+            porVencer.set(doc);
+        }
+    }
+
+    private void quitar(Long id) {
+        Integer doc = documentoPorId.get(id);
+        if (doc == null || productos.get(doc) == null) {
+            return;
+        }
+        ProductoResumen producto = productos.get(doc);
+        productos.set(doc, null);
+        vivos.clear(doc);
+
+        if (producto.getCategoria() != null) {
+            BitSet categoria = porCategoria.get(producto.getCategoria());
+            if (categoria != null) {
+                categoria.clear(doc);
+                if (categoria.isEmpty()) {
+                    porCategoria.remove(producto.getCategoria());
+                }
+            }
+        }
+        for (BitSet rango : porRango.values()) {
+            rango.clear(doc);
+        }
+        enStock.clear(doc);
+        porVencer.clear(doc);
+        // Si los documentos vacíos superan a los vivos, se compacta
+        int vacios = productos.size() - vivos.cardinality();
+        if (vacios > LOTE_CARGA && vacios > vivos.cardinality()) {
+            renumerar(null);
+        }
+    }
+
+    /**
+     * Reasigna los documentos en orden de id descartando los vacíos e incluyendo
+     * el producto indicado (si hay). Es O(productos); solo ocurre al activar un id
+     * antiguo o al compactar. Debe llamarse con el lock de escritura tomado.
+     */
+    private void renumerar(ProductoResumen nuevo) {
+        List<ProductoResumen> ordenados = new ArrayList<>(vivos.cardinality() + 1);
+        for (int doc = vivos.nextSetBit(0); doc >= 0; doc = vivos.nextSetBit(doc + 1)) {
+            ProductoResumen producto = productos.get(doc);
+            if (nuevo != null && producto.getIdProducto() > nuevo.getIdProducto()) {
+                ordenados.add(nuevo);
+                nuevo = null;
+            }
+            ordenados.add(producto);
+        }
+        if (nuevo != null) {
+            ordenados.add(nuevo);
+        }
+
+        documentoPorId.clear();
+        idPorDocumento = new long[Math.max(LOTE_CARGA, ordenados.size() * 2)];
+        productos.clear();
+        vivos.clear();
+        porCategoria.clear();
+        porRango.values().forEach(BitSet::clear);
+        enStock.clear();
+        porVencer.clear();
+        for (ProductoResumen producto : ordenados) {
+            agregar(producto);
+        }
+    }
+
+    /**
+     * "Por vencer" depende de la fecha actual: se recalcula una vez al día.
+     */
+    private void actualizarPorVencerSiCambioElDia() {
+        LocalDate hoy = hoy();
+        if (hoy.equals(porVencerCalculadoEl)) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (hoy.equals(porVencerCalculadoEl)) {
+                return;
+            }
+            porVencer.clear();
+            for (int doc = vivos.nextSetBit(0); doc >= 0; doc = vivos.nextSetBit(doc + 1)) {
+                if (venceProntoDesde(productos.get(doc), hoy)) {
+                    porVencer.set(doc);
+                }
+            }
+            porVencerCalculadoEl = hoy;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private boolean venceProntoDesde(ProductoResumen producto, LocalDate hoy) {
+        Date fecha = producto.getFechaVencimiento();
+        if (fecha == null) {
+            return false;
+        }
+        LocalDate vencimiento = aLocalDate(fecha);
+        return !vencimiento.isBefore(hoy) && !vencimiento.isAfter(hoy.plusDays(diasAviso));
+    }
+
+    private static LocalDate aLocalDate(Date fecha) {
+        // java.sql.Date no soporta toInstant()
+        if (fecha instanceof java.sql.Date) {
+            return ((java.sql.Date) fecha).toLocalDate();
+        }
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static LocalDate hoy() {
+        return LocalDate.now();
+    }
+}
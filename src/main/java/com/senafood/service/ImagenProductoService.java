@@ -0,0 +1,31 @@
+package com.senafood.service;
+
+import org.springframework.web.multipart.MultipartFile;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Almacén de imágenes de productos, direccionado por contenido: el nombre de
+ * cada imagen es el hash SHA-256 de lo subido, así una misma imagen se guarda
+ * una sola vez aunque la usen varios productos.
+ */
+public interface ImagenProductoService {
+    
+    // Deja la subida en un archivo temporal del almacén (rápido) y retorna su nombre
+    String recibir(MultipartFile imagenFile) throws IOException;
+    
+    // Procesa una subida recibida (o reutiliza la imagen existente) y retorna el valor para Producto.imagen
+    String procesar(String subida) throws IOException;
+    
+    // Descarta una subida que no llegó a procesarse
+    void descartar(String subida);
+    
+    // Elimina la imagen y sus variantes solo si ningún producto la referencia
+    void liberar(String imagen) throws IOException;
+    
+    // URL de una variante ("miniatura", "tarjeta" o "detalle") para las plantillas
+    String url(String imagen, String variante);
+    
+    // Archivo en disco de una imagen o variante del almacén (null si no existe)
+    Path ruta(String archivo);
+}
@@ -0,0 +1,539 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.model.VarianteImagen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.multipart.MultipartFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+/**
+ * Imágenes de productos con variantes pregeneradas (miniatura, tarjeta y
+ * detalle) en JPEG, guardadas por hash de contenido fuera del código fuente.
+ *
+ * La subida se recibe como un temporal del almacén y se procesa después, en
+ * segundo plano (ProcesadorImagenes): se calcula su SHA-256 y, si ese hash ya
+ * está en el almacén, se reutiliza la imagen sin decodificar ni escribir variantes. Los archivos se reparten en subdirectorios
+ * por los dos primeros caracteres del hash.
+ *
+ * El conteo de referencias es el número de productos con ese valor en
+ * producto.imagen: una imagen se borra solo cuando llega a cero, después de
+ * confirmarse el cambio que soltó la última referencia. Una imagen reutilizada
+ * aún no está asignada (asignarImagen confirma después), así que la
+ * reutilización renueva su fecha y liberar() no borra archivos dentro del
+ * periodo de gracia; ambos pasos toman el mismo candado por imagen y esas
+ * imágenes quedan para LimpiezaImagenes.
+ *
+ * Los formatos que ImageIO no decodifica (WebP, AVIF) se guardan tal cual, con
+ * su extensión y sin variantes: url() entrega el original para cualquier
+ * variante. Antes de decodificar se leen las dimensiones y se rechazan las
+ * imágenes de más de senafood.imagenes.max-pixeles.
+ *
+ * Las imágenes anteriores a este almacén (nombres que no son un hash) se siguen
+ * sirviendo desde /img/productos/; sus variantes, si se pudieron generar, se
+ * guardan en el almacén.
+ */
+@Service("imagenProductoService")
+public class ImagenProductoServiceImpl implements ImagenProductoService {
+
+    private static final String URL_BASE = "/imagenes/";
+    private static final String URL_BASE_ANTERIOR = "/img/productos/";
+    private static final String DIR_ANTERIOR = "src/main/resources/static/img/productos/";
+    private static final float CALIDAD_JPEG = 0.8f;
+
+    // 64 caracteres hexadecimales (SHA-256) + extensión
+    private static final Pattern NOMBRE_HASH = Pattern.compile("[0-9a-f]{64}\\.[a-z0-9]+");
+    private static final Pattern EXTENSION = Pattern.compile("\\.[a-z0-9]{1,8}");
+
+    // Subidas recibidas pendientes de procesar: "subida-<aleatorio>[.ext].tmp"
+    private static final String PREFIJO_SUBIDA = "subida-";
+    private static final String SUFIJO_SUBIDA = ".tmp";
+    private static final Pattern SUBIDA = Pattern.compile("subida-[0-9]+(\\.[a-z0-9]{1,8})?\\.tmp");
+
+    // Variantes que se derivan del archivo guardado, de mayor a menor
+    private static final List<VarianteImagen> VARIANTES_DERIVADAS =
+        List.of(VarianteImagen.TARJETA, VarianteImagen.MINIATURA);
+
+    // Formatos que se aceptan sin decodificar (se guardan y sirven como se subieron)
+    private static final Set<String> SIN_DECODIFICAR = Set.of(".webp", ".avif");
+
+    private final ProductoRepository productoRepository;
+    private final Executor imagenesExecutor;
+    private final Path directorio;
+    private final long maxPixeles;
+    private final Duration gracia;
+
+    // Candados por imagen (repartidos por hash del nombre) entre reutilizar y borrar
+    private final Object[] candados = new Object[64];
+
+    // Imágenes anteriores al almacén que tienen variantes generadas
+    private final Set<String> anterioresConVariantes = ConcurrentHashMap.newKeySet();
+
+    public ImagenProductoServiceImpl(ProductoRepository productoRepository,
+                                     @Qualifier("imagenesExecutor") Executor imagenesExecutor,
+                                     @Value("${senafood.imagenes.directorio:${user.home}/senafood/imagenes}") String directorio,
+                                     @Value("${senafood.imagenes.max-pixeles:40000000}") long maxPixeles,
+                                     @Value("${senafood.imagenes.limpieza.gracia-horas:24}") long graciaHoras) {
+        this.productoRepository = productoRepository;
+        this.imagenesExecutor = imagenesExecutor;
+        this.directorio = Paths.get(directorio).toAbsolutePath().normalize();
+        this.maxPixeles = maxPixeles;
+        this.gracia = Duration.ofHours(graciaHoras);
+        for (int i = 0; i < candados.length; i++) {
+            candados[i] = new Object();
+        }
+        createUploadDirectory();
+    }
+
+    /**
+     * Crea el directorio del almacén si no existe
+     */
+    private void createUploadDirectory() {
+        try {
+            if (!Files.exists(directorio)) {
+                Files.createDirectories(directorio);
+                System.out.println("✅ Directorio de imágenes creado: " + directorio);
+            }
+        } catch (IOException e) {
+            System.err.println("❌ Error creando directorio: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Genera en el almacén las variantes que falten para imágenes anteriores a
+     * él (solo si su directorio existe, es decir, al ejecutar desde el código).
+     * El directorio anterior solo se lee.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void generarVariantesFaltantes() {
+        Path anterior = Paths.get(DIR_ANTERIOR);
+        if (!Files.isDirectory(anterior)) {
+            return;
+        }
+        int generadas = 0;
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(anterior)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                if (!Files.isRegularFile(archivo) || VarianteImagen.esVarianteGenerada(nombre)) {
+                    continue;
+                }
+                boolean faltan = VARIANTES_DERIVADAS.stream()
+                    .anyMatch(v -> !Files.exists(resolver(v.nombreArchivo(nombre))));
+                if (!faltan) {
+                    anterioresConVariantes.add(nombre);
+                    continue;
+                }
+                try {
+                    if (generarDerivadas(archivo, nombre)) {
+                        anterioresConVariantes.add(nombre);
+                        generadas++;
+                    }
+                } catch (IOException e) {
+                    System.err.println("⚠️ No se pudieron generar variantes de " + nombre + ": " + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error recorriendo el directorio de imágenes: " + e.getMessage());
+        }
+        System.out.println("🖼️ Variantes de imagen generadas para " + generadas + " imágenes existentes");
+    }
+
+    /**
+     * Mueve la subida a un temporal del almacén. Tomcat ya la tiene en disco,
+     * así que normalmente es un renombrado y no una copia de hasta 10 MB.
+     * La extensión original se conserva en el nombre para procesar().
+     */
+    @Override
+    public String recibir(MultipartFile imagenFile) throws IOException {
+        String ext = extension(imagenFile.getOriginalFilename());
+        if (!EXTENSION.matcher(ext).matches()) {
+            ext = "";
+        }
+        Path temporal = Files.createTempFile(directorio, PREFIJO_SUBIDA, ext + SUFIJO_SUBIDA);
+        imagenFile.transferTo(temporal.toFile());
+        return temporal.getFileName().toString();
+    }
+
+    /**
+     * Guarda una subida como variante de detalle (JPEG, máx. 1200 px) y genera
+     * la tarjeta y la miniatura, o reutiliza la ya guardada con el mismo
+     * contenido. El temporal se elimina siempre. Retorna el nombre para Producto.imagen.
+     */
+    @Override
+    public String procesar(String subida) throws IOException {
+        Path temporal = resolverSubida(subida);
+        if (temporal == null || !Files.isRegularFile(temporal)) {
+            throw new IOException("Subida no encontrada: " + subida);
+        }
+        try {
+            String hash;
+            try (InputStream entrada = new DigestInputStream(Files.newInputStream(temporal), sha256())) {
+                entrada.transferTo(OutputStream.nullOutputStream());
+                hash = HexFormat.of().formatHex(((DigestInputStream) entrada).getMessageDigest().digest());
+            }
+
+            String ext = extensionDeSubida(subida);
+            String existente = reutilizar(hash, ext);
+            if (existente != null) {
+                System.out.println("♻️ Imagen ya almacenada, se reutiliza: " + existente);
+                return existente;
+            }
+
+            BufferedImage original = leer(temporal);
+            if (original == null) {
+                // Formato que ImageIO no decodifica: solo los conocidos se guardan tal cual
+                if (!SIN_DECODIFICAR.contains(ext)) {
+                    throw new IOException("Formato de imagen no soportado: " + (ext.isEmpty() ? "sin extensión" : ext));
+                }
+                String nombre = hash + ext;
+                Path destino = resolver(nombre);
+                Files.createDirectories(destino.getParent());
+                Files.move(temporal, destino, StandardCopyOption.REPLACE_EXISTING);
+                System.out.println("⚠️ Imagen no decodificable, guardada sin variantes: " + nombre);
+                return nombre;
+            }
+
+            String nombre = hash + ".jpg";
+            Files.createDirectories(resolver(nombre).getParent());
+            // Las variantes se escriben antes que el detalle: buscarExistente() mira
+            // el detalle, así un proceso interrumpido no deja una imagen incompleta
+            BufferedImage detalle = escalar(original, VarianteImagen.DETALLE.getLado());
+            BufferedImage actual = detalle;
+            for (VarianteImagen variante : VARIANTES_DERIVADAS) {
+                // Cada variante se escala desde la anterior, que ya es más pequeña
+                actual = escalar(actual, variante.getLado());
+                escribirJpeg(actual, resolver(variante.nombreArchivo(nombre)));
+            }
+            escribirJpeg(detalle, resolver(nombre));
+            System.out.println("✅ Imagen guardada con variantes: " + nombre + " ("
+                + original.getWidth() + "x" + original.getHeight() + ")");
+            return nombre;
+        } finally {
+            Files.deleteIfExists(temporal);
+        }
+    }
+
+    @Override
+    public void descartar(String subida) {
+        Path temporal = resolverSubida(subida);
+        if (temporal == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(temporal);
+        } catch (IOException e) {
+            System.err.println("⚠️ No se pudo descartar la subida " + subida + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Elimina la imagen y todas sus variantes si ya ningún producto la usa.
+     */
+    @Override
+    public void liberar(String imagen) throws IOException {
+        if (imagen == null || imagen.isEmpty()) {
+            return;
+        }
+        boolean existia = false;
+        synchronized (candado(imagen)) {
+            long referencias = productoRepository.countByImagen(imagen);
+            if (referencias > 0) {
+                System.out.println("📎 Imagen conservada, aún la usan " + referencias + " productos: " + imagen);
+                return;
+            }
+
+            // Las variantes siempre están en el almacén; el original anterior, en su directorio
+            Path detalle = esDelAlmacen(imagen) ? resolver(imagen) : Paths.get(DIR_ANTERIOR).resolve(imagen);
+            if (Files.exists(detalle) && Files.getLastModifiedTime(detalle).toMillis()
+                    > System.currentTimeMillis() - gracia.toMillis()) {
+                // Reciente o recién reutilizada: puede estar por asignarse a otro producto
+                System.out.println("⏳ Imagen sin referencias pero reciente, la borrará la limpieza: " + imagen);
+                return;
+            }
+            for (VarianteImagen variante : VarianteImagen.values()) {
+                String archivo = variante.nombreArchivo(imagen);
+                existia |= Files.deleteIfExists(variante == VarianteImagen.DETALLE ? detalle : resolver(archivo));
+            }
+            anterioresConVariantes.remove(imagen);
+        }
+        if (existia) {
+            System.out.println("🗑️ Imagen eliminada: " + imagen);
+        } else {
+            System.out.println("⚠️ Imagen no encontrada para eliminar: " + imagen);
+        }
+    }
+
+    /**
+     * Cuando un cambio confirmado suelta la imagen anterior de un producto
+     * (reemplazo o eliminación), se libera en segundo plano si era la última
+     * referencia.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoCambiado(ProductoCambiadoEvent event) {
+        Producto anterior = event.getAnterior();
+        if (anterior == null || anterior.getImagen() == null || anterior.getImagen().isEmpty()) {
+            return;
+        }
+        Producto producto = event.getProducto();
+        if (producto != null && anterior.getImagen().equals(producto.getImagen())) {
+            return;
+        }
+        String imagen = anterior.getImagen();
+        imagenesExecutor.execute(() -> {
+            try {
+                liberar(imagen);
+            } catch (IOException e) {
+                System.err.println("⚠️ Error liberando imagen: " + e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * URL de la variante pedida ("miniatura", "tarjeta" o "detalle"), o null
+     * si el producto no tiene imagen. Uso en plantillas:
+     * th:src="@{${@imagenProductoService.url(producto.imagen, 'tarjeta')}}"
+     */
+    @Override
+    public String url(String imagen, String variante) {
+        if (imagen == null || imagen.isEmpty()) {
+            return null;
+        }
+        // Sin variantes generadas (formato no decodificable) se entrega el original
+        VarianteImagen pedida = tieneVariantes(imagen) ? VarianteImagen.de(variante) : VarianteImagen.DETALLE;
+        String archivo = pedida.nombreArchivo(imagen);
+        if (!esDelAlmacen(imagen) && pedida == VarianteImagen.DETALLE) {
+            return URL_BASE_ANTERIOR + archivo;
+        }
+        return URL_BASE + archivo.substring(0, 2) + "/" + archivo;
+    }
+
+    @Override
+    public Path ruta(String archivo) {
+        if (archivo == null || archivo.length() < 2) {
+            return null;
+        }
+        Path ruta = resolver(archivo);
+        // Evita salir del almacén con nombres como "../"
+        if (!ruta.startsWith(directorio) || !Files.isRegularFile(ruta)) {
+            return null;
+        }
+        return ruta;
+    }
+
+    private Path resolverSubida(String subida) {
+        if (subida == null || !SUBIDA.matcher(subida).matches()) {
+            return null;
+        }
+        return directorio.resolve(subida);
+    }
+
+    // "subida-123.png.tmp" -> ".png"
+    private static String extensionDeSubida(String subida) {
+        String sinSufijo = subida.substring(0, subida.length() - SUFIJO_SUBIDA.length());
+        int punto = sinSufijo.lastIndexOf('.');
+        return punto > 0 ? sinSufijo.substring(punto) : "";
+    }
+
+    private Path resolver(String archivo) {
+        return directorio.resolve(archivo.substring(0, 2)).resolve(archivo).normalize();
+    }
+
+    /**
+     * Renueva la fecha de la imagen reutilizada y sus variantes: si estaba
+     * huérfana, el periodo de gracia de LimpiezaImagenes vuelve a protegerla
+     * mientras se asigna al producto.
+     */
+    private void tocar(String imagen) throws IOException {
+        FileTime ahora = FileTime.fromMillis(System.currentTimeMillis());
+        for (VarianteImagen variante : VarianteImagen.values()) {
+            Path archivo = resolver(variante.nombreArchivo(imagen));
+            if (Files.exists(archivo)) {
+                Files.setLastModifiedTime(archivo, ahora);
+            }
+        }
+    }
+
+    /**
+     * Imagen ya guardada con el mismo contenido, con su fecha renovada, o null.
+     * Va bajo el candado de la imagen para no cruzarse con un liberar().
+     */
+    private String reutilizar(String hash, String extensionOriginal) throws IOException {
+        String existente = buscarExistente(hash, extensionOriginal);
+        if (existente == null) {
+            return null;
+        }
+        synchronized (candado(existente)) {
+            if (!Files.exists(resolver(existente))) {
+                return null;
+            }
+            tocar(existente);
+            return existente;
+        }
+    }
+
+    private Object candado(String imagen) {
+        return candados[Math.floorMod(imagen.hashCode(), candados.length)];
+    }
+
+    private String buscarExistente(String hash, String extensionOriginal) {
+        for (String candidato : List.of(hash + ".jpg", hash + extensionOriginal)) {
+            if (NOMBRE_HASH.matcher(candidato).matches() && Files.exists(resolver(candidato))) {
+                return candidato;
+            }
+        }
+        return null;
+    }
+
+    private boolean tieneVariantes(String imagen) {
+        return esDelAlmacen(imagen) ? imagen.endsWith(".jpg") : anterioresConVariantes.contains(imagen);
+    }
+
+    private static boolean esDelAlmacen(String imagen) {
+        return NOMBRE_HASH.matcher(imagen).matches();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Escribe en el almacén las variantes de una imagen anterior. Retorna false
+     * si el formato no se puede decodificar (se sigue sirviendo el original).
+     */
+    private boolean generarDerivadas(Path archivo, String nombre) throws IOException {
+        BufferedImage actual = leer(archivo);
+        if (actual == null) {
+            return false;
+        }
+        Files.createDirectories(resolver(nombre).getParent());
+        for (VarianteImagen variante : VARIANTES_DERIVADAS) {
+            actual = escalar(actual, variante.getLado());
+            escribirJpeg(actual, resolver(variante.nombreArchivo(nombre)));
+        }
+        return true;
+    }
+
+    /**
+     * Decodifica la imagen, o retorna null si ningún lector de ImageIO reconoce
+     * el formato. Las dimensiones se leen del encabezado antes de decodificar:
+     * un archivo pequeño puede declarar millones de píxeles (bomba de
+     * descompresión) y agotar la memoria al crear el BufferedImage.
+     */
+    private BufferedImage leer(Path archivo) throws IOException {
+        try (ImageInputStream entrada = ImageIO.createImageInputStream(archivo.toFile())) {
+            Iterator<ImageReader> lectores = entrada != null ? ImageIO.getImageReaders(entrada) : null;
+            if (lectores == null || !lectores.hasNext()) {
+                return null;
+            }
+            ImageReader lector = lectores.next();
+            try {
+                lector.setInput(entrada, true, true);
+                int ancho = lector.getWidth(0);
+                int alto = lector.getHeight(0);
+                if ((long) ancho * alto > maxPixeles) {
+                    throw new IOException("Imagen demasiado grande: " + ancho + "x" + alto + " píxeles");
+                }
+                return lector.read(0);
+            } finally {
+                lector.dispose();
+            }
+        }
+    }
+
+    /**
+     * Reduce la imagen para que quepa en un cuadrado de "lado" píxeles (nunca
+     * la amplía). Se reduce a la mitad por pasos para evitar el aliasing de un
+     * único escalado bilineal grande. El resultado es RGB sobre fondo blanco.
+     */
+    private static BufferedImage escalar(BufferedImage origen, int lado) {
+        double factor = Math.min(1.0, (double) lado / Math.max(origen.getWidth(), origen.getHeight()));
+        int ancho = Math.max(1, (int) Math.round(origen.getWidth() * factor));
+        int alto = Math.max(1, (int) Math.round(origen.getHeight() * factor));
+
+        BufferedImage actual = origen;
+        do {
+            int w = Math.max(ancho, actual.getWidth() / 2);
+            int h = Math.max(alto, actual.getHeight() / 2);
+            actual = dibujar(actual, w, h);
+        } while (actual.getWidth() > ancho || actual.getHeight() > alto);
+        return actual;
+    }
+
+    private static BufferedImage dibujar(BufferedImage origen, int ancho, int alto) {
+        BufferedImage destino = new BufferedImage(ancho, alto, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = destino.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            // Las transparencias (PNG) quedan sobre blanco, JPEG no tiene canal alfa
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, ancho, alto);
+            g.drawImage(origen, 0, 0, ancho, alto, null);
+        } finally {
+            g.dispose();
+        }
+        return destino;
+    }
+
+    private static void escribirJpeg(BufferedImage imagen, Path destino) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam parametros = writer.getDefaultWriteParam();
+        parametros.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        parametros.setCompressionQuality(CALIDAD_JPEG);
+        try (OutputStream archivo = Files.newOutputStream(destino);
+             ImageOutputStream salida = ImageIO.createImageOutputStream(archivo)) {
+            writer.setOutput(salida);
+            writer.write(null, new IIOImage(imagen, null, null), parametros);
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    private static String extension(String nombreOriginal) {
+        if (nombreOriginal != null && nombreOriginal.contains(".")) {
+            return nombreOriginal.substring(nombreOriginal.lastIndexOf(".")).toLowerCase(Locale.ROOT);
+        }
+        return "";
+    }
+}
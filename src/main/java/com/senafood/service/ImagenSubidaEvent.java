@@ -0,0 +1,25 @@
+package com.senafood.service;
+
+/**
+ * Se publica al guardar un producto con una imagen nueva recibida. La imagen
+ * se procesa (variantes, deduplicación) en segundo plano tras el commit.
+ */
+public class ImagenSubidaEvent {
+
+    private final Long idProducto;
+    // Archivo temporal devuelto por ImagenProductoService.recibir()
+    private final String subida;
+
+    public ImagenSubidaEvent(Long idProducto, String subida) {
+        this.idProducto = idProducto;
+        this.subida = subida;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    public String getSubida() {
+        return subida;
+    }
+}
@@ -0,0 +1,308 @@
+package com.senafood.service;
+
+import com.senafood.model.ResultadoImportacion;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Importación masiva de productos desde un CSV (catálogo de un proveedor).
+ *
+ * El archivo se lee como flujo, línea por línea, y las filas válidas se
+ * insertan por lotes con JDBC batch: la tabla usa IDENTITY, lo que impide que
+ * Hibernate agrupe los INSERT. Cada lote verifica los códigos de barras
+ * duplicados con una sola consulta IN y se confirma en su propia transacción,
+ * por lo que la memoria usada depende del tamaño del lote y no del archivo.
+ *
+ * Columnas (la primera fila es el encabezado, en cualquier orden, separadas
+ * por coma o punto y coma): nombre, descripcion, costo_unitario, stock,
+ * fecha_vencimiento (yyyy-MM-dd), categoria, codigo_barras y opcionalmente estado.
+ */
+@Service
+public class ImportacionProductosService {
+
+    private static final String SQL_INSERT =
+        "INSERT INTO producto (nombre, descripcion, costo_unitario, stock, id_inventario, fecha_vencimiento, " +
+        "categoria, codigo_barras, estado, create_at, update_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final List<String> COLUMNAS_OBLIGATORIAS =
+        List.of("nombre", "costo_unitario", "stock", "fecha_vencimiento");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductoRepository productoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final UbicacionService ubicacionService;
+    private final int tamanoLote;
+
+    public ImportacionProductosService(JdbcTemplate jdbcTemplate,
+                                       TransactionTemplate transactionTemplate,
+                                       ProductoRepository productoRepository,
+                                       ApplicationEventPublisher eventPublisher,
+                                       UbicacionService ubicacionService,
+                                       @Value("${senafood.importacion.tamano-lote:500}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productoRepository = productoRepository;
+        this.eventPublisher = eventPublisher;
+        this.ubicacionService = ubicacionService;
+        this.tamanoLote = tamanoLote;
+    }
+
+    public ResultadoImportacion importarCsv(InputStream entrada) throws IOException {
+        ResultadoImportacion resultado = new ResultadoImportacion();
+        long maxIdAnterior = productoRepository.findMaxIdProducto();
+
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8))) {
+            String encabezado = lector.readLine();
+            if (encabezado == null) {
+                resultado.registrarError(1, "El archivo está vacío");
+                return resultado;
+            }
+            // Quitar el BOM que agrega Excel al guardar en UTF-8
+            if (encabezado.startsWith("\uFEFF")) {
+                encabezado = encabezado.substring(1);
+            }
+            char separador = encabezado.indexOf(';') >= 0 && encabezado.indexOf(',') < 0 ? ';' : ',';
+            Map<String, Integer> columnas = leerEncabezado(encabezado, separador);
+            for (String obligatoria : COLUMNAS_OBLIGATORIAS) {
+                if (!columnas.containsKey(obligatoria)) {
+                    resultado.registrarError(1, "Falta la columna obligatoria '" + obligatoria + "'");
+                    return resultado;
+                }
+            }
+
+            List<FilaProducto> lote = new ArrayList<>(tamanoLote);
+            String linea;
+            long numeroLinea = 1;
+            while ((linea = lector.readLine()) != null) {
+                numeroLinea++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                resultado.contarFilaLeida();
+                try {
+                    lote.add(convertir(numeroLinea, leerCampos(linea, separador), columnas));
+                } catch (IllegalArgumentException e) {
+                    resultado.registrarError(numeroLinea, e.getMessage());
+                }
+                if (lote.size() == tamanoLote) {
+                    insertarLote(lote, resultado);
+                    lote.clear();
+                }
+            }
+            if (!lote.isEmpty()) {
+                insertarLote(lote, resultado);
+            }
+        } finally {
+            if (resultado.getInsertados() > 0) {
+                eventPublisher.publishEvent(new ProductosImportadosEvent(maxIdAnterior, resultado.getInsertados()));
+            }
+        }
+
+        System.out.println("📥 Importación terminada: " + resultado.getInsertados() + " insertados, "
+            + resultado.getConError() + " con error");
+        return resultado;
+    }
+
+    /**
+     * Descarta los duplicados del lote (contra la BD y dentro del mismo lote) y
+     * lo inserta con un único executeBatch en su propia transacción.
+     */
+    private void insertarLote(List<FilaProducto> lote, ResultadoImportacion resultado) {
+        Set<String> codigos = new HashSet<>();
+        for (FilaProducto fila : lote) {
+            if (fila.codigoBarras != null) {
+                codigos.add(fila.codigoBarras);
+            }
+        }
+        Set<String> existentes = codigos.isEmpty()
+            ? Set.of()
+            : new HashSet<>(productoRepository.findCodigosBarrasExistentes(codigos));
+
+        List<FilaProducto> validas = new ArrayList<>(lote.size());
+        Set<String> vistos = new HashSet<>();
+        for (FilaProducto fila : lote) {
+            if (fila.codigoBarras != null && existentes.contains(fila.codigoBarras)) {
+                resultado.registrarError(fila.linea, "Ya existe un producto con el código de barras " + fila.codigoBarras);
+            } else if (fila.codigoBarras != null && !vistos.add(fila.codigoBarras)) {
+                resultado.registrarError(fila.linea, "Código de barras repetido en el archivo: " + fila.codigoBarras);
+            } else {
+                validas.add(fila);
+            }
+        }
+        if (validas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(estado ->
+                jdbcTemplate.batchUpdate(SQL_INSERT, parametros(validas)));
+            resultado.sumarInsertados(validas.size());
+        } catch (DataAccessException e) {
+            // Algún registro del lote falló (p. ej. un duplicado insertado en paralelo):
+            // se reintenta fila por fila para reportar el error exacto.
+            System.err.println("⚠️ Lote rechazado, reintentando fila por fila: " + e.getMessage());
+            for (FilaProducto fila : validas) {
+                try {
+                    transactionTemplate.executeWithoutResult(estado ->
+                        jdbcTemplate.update(SQL_INSERT, parametros(fila)));
+                    resultado.sumarInsertados(1);
+                } catch (DataAccessException errorFila) {
+                    resultado.registrarError(fila.linea, errorFila.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+
+    private List<Object[]> parametros(List<FilaProducto> filas) {
+        List<Object[]> parametros = new ArrayList<>(filas.size());
+        for (FilaProducto fila : filas) {
+            parametros.add(parametros(fila));
+        }
+        return parametros;
+    }
+
+    private Object[] parametros(FilaProducto fila) {
+        Timestamp ahora = new Timestamp(System.currentTimeMillis());
+        return new Object[] {
+            fila.nombre, fila.descripcion, fila.costoUnitario, fila.stock, ubicacionService.getPrincipal(),
+            java.sql.Date.valueOf(fila.fechaVencimiento), fila.categoria, fila.codigoBarras,
+            fila.estado, ahora, ahora
+        };
+    }
+
+    private static Map<String, Integer> leerEncabezado(String encabezado, char separador) {
+        Map<String, Integer> columnas = new HashMap<>();
+        List<String> nombres = leerCampos(encabezado, separador);
+        for (int i = 0; i < nombres.size(); i++) {
+            columnas.put(nombres.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        return columnas;
+    }
+
+    /**
+     * Valida una fila y la convierte. Lanza IllegalArgumentException con un
+     * mensaje para el usuario si algún valor no es válido.
+     */
+    private static FilaProducto convertir(long linea, List<String> campos, Map<String, Integer> columnas) {
+        FilaProducto fila = new FilaProducto();
+        fila.linea = linea;
+
+        fila.nombre = campo(campos, columnas, "nombre");
+        if (fila.nombre == null) {
+            throw new IllegalArgumentException("El nombre es obligatorio");
+        }
+        if (fila.nombre.length() > 255) {
+            throw new IllegalArgumentException("El nombre no puede exceder 255 caracteres");
+        }
+
+        fila.descripcion = campo(campos, columnas, "descripcion");
+        if (fila.descripcion != null && fila.descripcion.length() > 500) {
+            throw new IllegalArgumentException("La descripción no puede exceder 500 caracteres");
+        }
+
+        try {
+            fila.costoUnitario = new BigDecimal(campo(campos, columnas, "costo_unitario"));
+        } catch (NumberFormatException | NullPointerException e) {
+            throw new IllegalArgumentException("Costo unitario inválido");
+        }
+        if (fila.costoUnitario.signum() <= 0) {
+            throw new IllegalArgumentException("El costo unitario debe ser mayor que 0");
+        }
+
+        try {
+            fila.stock = Integer.parseInt(campo(campos, columnas, "stock"));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Stock inválido");
+        }
+        if (fila.stock < 0) {
+            throw new IllegalArgumentException("El stock no puede ser negativo");
+        }
+
+        try {
+            fila.fechaVencimiento = LocalDate.parse(campo(campos, columnas, "fecha_vencimiento"));
+        } catch (DateTimeParseException | NullPointerException e) {
+            throw new IllegalArgumentException("Fecha de vencimiento inválida (use yyyy-MM-dd)");
+        }
+
+        fila.categoria = campo(campos, columnas, "categoria");
+        fila.codigoBarras = campo(campos, columnas, "codigo_barras");
+        String estado = campo(campos, columnas, "estado");
+        fila.estado = estado != null ? estado : "activo";
+        return fila;
+    }
+
+    private static String campo(List<String> campos, Map<String, Integer> columnas, String nombre) {
+        Integer indice = columnas.get(nombre);
+        if (indice == null || indice >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    /**
+     * Separa una línea CSV respetando comillas dobles ("a, b" y "" escapadas).
+     */
+    private static List<String> leerCampos(String linea, char separador) {
+        List<String> campos = new ArrayList<>();
+        StringBuilder actual = new StringBuilder();
+        boolean entreComillas = false;
+        for (int i = 0; i < linea.length(); i++) {
+            char c = linea.charAt(i);
+            if (entreComillas) {
+                if (c == '"' && i + 1 < linea.length() && linea.charAt(i + 1) == '"') {
+                    actual.append('"');
+                    i++;
+                } else if (c == '"') {
+                    entreComillas = false;
+                } else {
+                    actual.append(c);
+                }
+            } else if (c == '"') {
+                entreComillas = true;
+            } else if (c == separador) {
+                campos.add(actual.toString());
+                actual.setLength(0);
+            } else {
+                actual.append(c);
+            }
+        }
+        campos.add(actual.toString());
+        return campos;
+    }
+
+    private static final class FilaProducto {
+        private long linea;
+        private String nombre;
+        private String descripcion;
+        private BigDecimal costoUnitario;
+        private int stock;
+        private LocalDate fechaVencimiento;
+        private String categoria;
+        private String codigoBarras;
+        private String estado;
+    }
+}
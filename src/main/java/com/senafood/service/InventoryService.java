@@ -1,5 +1,450 @@
 package com.senafood.service;
 
+import com.senafood.model.Lote;
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.model.ReservaStock;
+import com.senafood.model.ResumenUbicacion;
+import com.senafood.model.StockUbicacion;
+import com.senafood.model.Ubicacion;
+import com.senafood.repository.ProductoRepository;
+import com.senafood.repository.ReservaStockRepository;
+import com.senafood.repository.StockUbicacionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Motor de inventario: reserva, confirma y libera stock de productos por ubicación.
+ *
+ * Cada producto tiene un registro de stock por ubicación (StockUbicacion) y
+ * Producto.stock es el total de todas, mantenido con el mismo cambio. Reservar
+ * descuenta con un UPDATE condicional (stock = stock - n WHERE stock >= n): la
+ * base de datos decide en una sola sentencia si alcanza, sin leer la fila antes
+ * ni bloquearla con SELECT ... FOR UPDATE, así que no hay sobreventa ni
+ * actualizaciones perdidas y el bloqueo dura solo lo que tarda la transacción
+ * corta. Las reservas de varios productos se aplican en orden de id para que
+ * dos compras concurrentes no se bloqueen mutuamente.
+ *
+ * Confirmar una reserva consume los lotes en orden FEFO (LoteService);
+ * liberarla devuelve el stock. Las pendientes que expiran se liberan solas.
+ *
+ * Con la escritura diferida activa (EscrituraDiferidaStock) los cambios de
+ * stock se aplican en contadores en memoria con diario en disco y se vuelcan
+ * a la base de datos por lotes; la reserva sigue siendo todo o nada.
+ */
+@Service
+@Transactional
 public class InventoryService {
-    
+
+    private static final int LOTE_LIBERACION = 100;
+
+    private final ProductoRepository productoRepository;
+    private final ReservaStockRepository reservaStockRepository;
+    private final StockUbicacionRepository stockUbicacionRepository;
+    private final UbicacionService ubicacionService;
+    private final LoteService loteService;
+    private final EscrituraDiferidaStock escrituraDiferida;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final long duracionReservaMs;
+
+    public InventoryService(ProductoRepository productoRepository,
+                            ReservaStockRepository reservaStockRepository,
+                            StockUbicacionRepository stockUbicacionRepository,
+                            UbicacionService ubicacionService,
+                            LoteService loteService,
+                            EscrituraDiferidaStock escrituraDiferida,
+                            ApplicationEventPublisher eventPublisher,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${senafood.inventario.reserva-minutos:15}") long reservaMinutos) {
+        this.productoRepository = productoRepository;
+        this.reservaStockRepository = reservaStockRepository;
+        this.stockUbicacionRepository = stockUbicacionRepository;
+        this.ubicacionService = ubicacionService;
+        this.loteService = loteService;
+        this.escrituraDiferida = escrituraDiferida;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.duracionReservaMs = reservaMinutos * 60_000L;
+    }
+
+    /**
+     * Al arrancar, los productos sin registros por ubicación reciben uno en su
+     * ubicación principal con su stock actual.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void crearRegistrosIniciales() {
+        int creados = stockUbicacionRepository.crearRegistrosIniciales(0L);
+        System.out.println("📍 Registros de stock por ubicación creados: " + creados);
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        stockUbicacionRepository.crearRegistrosIniciales(event.getDespuesDe());
+    }
+
+    /**
+     * Registro de stock de un producto recién creado, en su ubicación principal.
+     */
+    public void crearRegistroInicial(Producto producto) {
+        StockUbicacion registro = new StockUbicacion();
+        registro.setIdProducto(producto.getIdProducto());
+        registro.setIdUbicacion(producto.getIdInventario() != null
+            ? producto.getIdInventario() : ubicacionService.getPrincipal());
+        registro.setStock(producto.getStock() != null ? producto.getStock() : 0);
+        stockUbicacionRepository.save(registro);
+    }
+
+    public void eliminarRegistros(Long idProducto) {
+        stockUbicacionRepository.deleteByIdProducto(idProducto);
+    }
+
+    /**
+     * Reserva unidades de un producto en la ubicación principal.
+     */
+    public ReservaStock reservar(Long idProducto, int cantidad) {
+        return reservar(idProducto, ubicacionService.getPrincipal(), cantidad);
+    }
+
+    /**
+     * Reserva unidades de un producto en una ubicación. Lanza RuntimeException
+     * si la ubicación no tiene stock suficiente.
+     */
+    public ReservaStock reservar(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (cantidad <= 0) {
+            throw new RuntimeException("La cantidad a reservar debe ser mayor que 0");
+        }
+        if (!descontar(idProducto, idUbicacion, cantidad)) {
+            throw new RuntimeException("Stock insuficiente para el producto " + idProducto
+                + " en " + ubicacionService.nombre(idUbicacion));
+        }
+        return reservaStockRepository.save(new ReservaStock(idProducto, idUbicacion, cantidad,
+            new Date(System.currentTimeMillis() + duracionReservaMs)));
+    }
+
+    public List<ReservaStock> reservar(Map<Long, Integer> cantidades) {
+        return reservar(cantidades, ubicacionService.getPrincipal());
+    }
+
+    /**
+     * Reserva varios productos (id -> cantidad) de una ubicación en una sola
+     * transacción: si alguno no alcanza, no queda ninguno reservado.
+     */
+    public List<ReservaStock> reservar(Map<Long, Integer> cantidades, Integer idUbicacion) {
+        List<ReservaStock> reservas = new ArrayList<>(cantidades.size());
+        // Orden fijo por id: las filas se bloquean siempre en el mismo orden
+        for (Map.Entry<Long, Integer> linea : new TreeMap<>(cantidades).entrySet()) {
+            reservas.add(reservar(linea.getKey(), idUbicacion, linea.getValue()));
+        }
+        return reservas;
+    }
+
+    /**
+     * Descuenta de una vez las líneas de un pedido (id -> cantidad), sin pasar
+     * por reservas: todas o ninguna. Si alguna no alcanza se devuelven las ya
+     * descontadas y retorna false, sin lanzar excepción, para que la transacción
+     * que agrupa varios pedidos (ProcesadorPedidos) siga con los demás.
+     */
+    public boolean vender(Map<Long, Integer> cantidades, Integer idUbicacion) {
+        List<Map.Entry<Long, Integer>> descontadas = new ArrayList<>(cantidades.size());
+        // Orden fijo por id, igual que las reservas
+        for (Map.Entry<Long, Integer> linea : new TreeMap<>(cantidades).entrySet()) {
+            if (linea.getValue() <= 0 || !descontar(linea.getKey(), idUbicacion, linea.getValue())) {
+                for (Map.Entry<Long, Integer> descontada : descontadas) {
+                    sumar(descontada.getKey(), idUbicacion, descontada.getValue());
+                }
+                return false;
+            }
+            descontadas.add(linea);
+        }
+        for (Map.Entry<Long, Integer> linea : descontadas) {
+            retirarDeLotes(linea.getKey(), idUbicacion, linea.getValue());
+        }
+        return true;
+    }
+
+    /**
+     * Confirma la reserva: las unidades salen de los lotes que vencen primero.
+     * Retorna false si la reserva ya no estaba pendiente (expiró o se liberó).
+     */
+    public boolean confirmar(Long idReserva) {
+        ReservaStock reserva = reservaStockRepository.findById(idReserva).orElse(null);
+        if (reserva == null || reservaStockRepository.cambiarEstado(
+                idReserva, ReservaStock.PENDIENTE, ReservaStock.CONFIRMADA) == 0) {
+            return false;
+        }
+        retirarDeLotes(reserva.getIdProducto(), ubicacionDe(reserva), reserva.getCantidad());
+        return true;
+    }
+
+    /**
+     * Libera la reserva y devuelve su stock a la ubicación. Retorna false si ya
+     * estaba confirmada o liberada.
+     */
+    public boolean liberar(Long idReserva) {
+        ReservaStock reserva = reservaStockRepository.findById(idReserva).orElse(null);
+        if (reserva == null || reservaStockRepository.cambiarEstado(
+                idReserva, ReservaStock.PENDIENTE, ReservaStock.LIBERADA) == 0) {
+            return false;
+        }
+        sumar(reserva.getIdProducto(), ubicacionDe(reserva), reserva.getCantidad());
+        return true;
+    }
+
+    /**
+     * Ajusta el stock de un producto en una ubicación en una diferencia
+     * (positiva o negativa) sin sobrescribir el valor: lo agregado entra como
+     * lote nuevo y lo retirado sale de los lotes en orden FEFO.
+     */
+    public void ajustarStock(Long idProducto, Integer idUbicacion, int diferencia, Date fechaVencimientoLote) {
+        if (diferencia > 0) {
+            loteService.agregarLote(productoRepository.getReferenceById(idProducto), diferencia, fechaVencimientoLote);
+            loteService.sincronizarVencimiento(idProducto);
+            sumar(idProducto, idUbicacion, diferencia);
+        } else if (diferencia < 0) {
+            if (!descontar(idProducto, idUbicacion, -diferencia)) {
+                throw new RuntimeException("No hay stock disponible suficiente en " + ubicacionService.nombre(idUbicacion)
+                    + " para retirar " + (-diferencia) + " unidades (puede haber unidades reservadas)");
+            }
+            retirarDeLotes(idProducto, idUbicacion, -diferencia);
+        }
+    }
+
+    /**
+     * Registra un lote recibido en una ubicación y suma su cantidad al stock.
+     */
+    public Lote registrarLote(Long idProducto, Integer idUbicacion, int cantidad, Date fechaVencimiento) {
+        LoteService.validarLote(cantidad, fechaVencimiento);
+        Producto producto = productoRepository.findById(idProducto)
+            .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + idProducto));
+        Integer destino = idUbicacion != null ? idUbicacion : producto.getIdInventario();
+        Lote lote = loteService.agregarLote(producto, cantidad, fechaVencimiento);
+        loteService.sincronizarVencimiento(idProducto);
+        sumar(idProducto, destino, cantidad);
+        System.out.println("📦 Lote registrado para producto " + idProducto + " en "
+            + ubicacionService.nombre(destino) + ": " + cantidad + " unidades");
+        return lote;
+    }
+
+    /**
+     * Mueve unidades entre ubicaciones; el total del producto no cambia.
+     */
+    public void transferir(Long idProducto, Integer origen, Integer destino, int cantidad) {
+        if (cantidad <= 0) {
+            throw new RuntimeException("La cantidad a transferir debe ser mayor que 0");
+        }
+        if (origen.equals(destino)) {
+            throw new RuntimeException("La ubicación de origen y destino es la misma");
+        }
+        if (escrituraDiferida.isActivo()) {
+            if (!escrituraDiferida.reservar(idProducto, origen, cantidad)) {
+                throw new RuntimeException("Stock insuficiente en " + ubicacionService.nombre(origen));
+            }
+            escrituraDiferida.sumar(idProducto, destino, cantidad);
+            return;
+        }
+        if (stockUbicacionRepository.descontar(idProducto, origen, cantidad) == 0) {
+            throw new RuntimeException("Stock insuficiente en " + ubicacionService.nombre(origen));
+        }
+        stockUbicacionRepository.crearSiNoExiste(idProducto, destino);
+        stockUbicacionRepository.sumar(idProducto, destino, cantidad);
+    }
+
+    /**
+     * Libera en segundo plano las reservas pendientes que pasaron su expiración,
+     * cada una en su propia transacción.
+     */
+    @Scheduled(fixedDelayString = "${senafood.inventario.liberacion-ms:60000}")
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void liberarVencidas() {
+        int liberadas = 0;
+        List<Long> vencidas;
+        int liberadasEnLote;
+        do {
+            vencidas = reservaStockRepository.findPendientesVencidas(new Date(), PageRequest.ofSize(LOTE_LIBERACION));
+            liberadasEnLote = 0;
+            for (Long idReserva : vencidas) {
+                try {
+                    if (Boolean.TRUE.equals(transactionTemplate.execute(estado -> liberar(idReserva)))) {
+                        liberadasEnLote++;
+                    }
+                } catch (RuntimeException e) {
+                    System.err.println("⚠️ No se pudo liberar la reserva " + idReserva + ": " + e.getMessage());
+                }
+            }
+            liberadas += liberadasEnLote;
+            // Si ninguna del lote se pudo liberar se reintenta en la próxima ejecución
+        } while (vencidas.size() == LOTE_LIBERACION && liberadasEnLote > 0);
+        if (liberadas > 0) {
+            System.out.println("⏱️ Reservas de stock vencidas liberadas: " + liberadas);
+        }
+    }
+
+    /**
+     * Stock disponible total del producto (ya descontadas las reservas pendientes).
+     */
+    @Transactional(readOnly = true)
+    public int disponible(Long idProducto) {
+        if (escrituraDiferida.isActivo()) {
+            return escrituraDiferida.disponibleTotal(idProducto);
+        }
+        Integer stock = productoRepository.findStockById(idProducto);
+        return stock != null ? stock : 0;
+    }
+
+    /**
+     * Stock disponible del producto en una ubicación.
+     */
+    @Transactional(readOnly = true)
+    public int disponible(Long idProducto, Integer idUbicacion) {
+        if (escrituraDiferida.isActivo()) {
+            return escrituraDiferida.disponible(idProducto, idUbicacion);
+        }
+        Integer stock = stockUbicacionRepository.findStock(idProducto, idUbicacion);
+        return stock != null ? stock : 0;
+    }
+
+    /**
+     * Registros de stock del producto, uno por ubicación.
+     */
+    @Transactional(readOnly = true)
+    public List<StockUbicacion> stockPorUbicacion(Long idProducto) {
+        return stockUbicacionRepository.findByIdProductoOrderByIdUbicacionAsc(idProducto);
+    }
+
+    /**
+     * Productos con stock bajo en una ubicación, del menor al mayor.
+     */
+    @Transactional(readOnly = true)
+    public List<StockUbicacion> stockBajo(Integer idUbicacion, int umbral, int limite) {
+        return stockUbicacionRepository.findStockBajo(idUbicacion, umbral, PageRequest.ofSize(limite));
+    }
+
+    /**
+     * Totales por ubicación calculados en una sola consulta agregada, sin
+     * importar cuántas ubicaciones haya. Las ubicaciones sin registros salen en cero.
+     */
+    @Transactional(readOnly = true)
+    public List<ResumenUbicacion> resumenPorUbicacion(int umbralStockBajo) {
+        Map<Integer, Object[]> filas = new HashMap<>();
+        for (Object[] fila : stockUbicacionRepository.resumirPorUbicacion(umbralStockBajo)) {
+            filas.put((Integer) fila[0], fila);
+        }
+        List<ResumenUbicacion> resumen = new ArrayList<>();
+        for (Ubicacion ubicacion : ubicacionService.listarTodas()) {
+            Object[] fila = filas.get(ubicacion.getIdUbicacion());
+            resumen.add(new ResumenUbicacion(ubicacion.getIdUbicacion(), ubicacion.getNombre(),
+                fila != null ? ((Number) fila[1]).longValue() : 0L,
+                fila != null ? ((Number) fila[2]).longValue() : 0L,
+                fila != null ? ((Number) fila[3]).longValue() : 0L));
+        }
+        return resumen;
+    }
+
+    /**
+     * Descuenta unidades de la ubicación y del total del producto si la
+     * ubicación tiene suficientes. Retorna false si no alcanzan.
+     */
+    private boolean descontar(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (escrituraDiferida.isActivo()) {
+            // Sin tocar las filas: el volcado agrupa los descuentos
+            return escrituraDiferida.reservar(idProducto, idUbicacion, cantidad);
+        }
+        if (stockUbicacionRepository.descontar(idProducto, idUbicacion, cantidad) == 0) {
+            return false;
+        }
+        productoRepository.sumarStock(idProducto, -cantidad);
+        publicarCambioStock(idProducto, -cantidad);
+        return true;
+    }
+
+    private void sumar(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (escrituraDiferida.isActivo()) {
+            escrituraDiferida.sumar(idProducto, idUbicacion, cantidad);
+            return;
+        }
+        stockUbicacionRepository.crearSiNoExiste(idProducto, idUbicacion);
+        stockUbicacionRepository.sumar(idProducto, idUbicacion, cantidad);
+        productoRepository.sumarStock(idProducto, cantidad);
+        publicarCambioStock(idProducto, cantidad);
+    }
+
+    private void retirarDeLotes(Long idProducto, Integer idUbicacion, int cantidad) {
+        if (escrituraDiferida.isActivo()) {
+            escrituraDiferida.retirarDeLotes(idProducto, idUbicacion, cantidad);
+            return;
+        }
+        loteService.retirar(idProducto, cantidad);
+        publicarCambioStock(idProducto, 0);
+    }
+
+    private Integer ubicacionDe(ReservaStock reserva) {
+        // Reservas anteriores al inventario por ubicación
+        return reserva.getIdUbicacion() != null ? reserva.getIdUbicacion() : ubicacionService.getPrincipal();
+    }
+
+    /**
+     * Anota el cambio para los índices en memoria. No se lee nada por línea: las
+     * diferencias se acumulan por producto y, antes del commit, se leen todos
+     * los productos tocados en una sola consulta y se publica un evento por
+     * producto. Las filas ya están bloqueadas por los UPDATE de la transacción,
+     * así que lo leído es lo que se confirma.
+     */
+    private void publicarCambioStock(Long idProducto, int diferencia) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            publicar(Map.of(idProducto, diferencia));
+            return;
+        }
+        cambiosDeLaTransaccion().diferencias.merge(idProducto, diferencia, Integer::sum);
+    }
+
+    private void publicar(Map<Long, Integer> diferencias) {
+        for (ProductoResumen actual : productoRepository.findResumenesPorId(diferencias.keySet())) {
+            eventPublisher.publishEvent(
+                ProductoCambiadoEvent.stock(actual, diferencias.get(actual.getIdProducto())));
+        }
+    }
+
+    private CambiosStock cambiosDeLaTransaccion() {
+        for (TransactionSynchronization sincronizacion : TransactionSynchronizationManager.getSynchronizations()) {
+            if (sincronizacion instanceof CambiosStock) {
+                return (CambiosStock) sincronizacion;
+            }
+        }
+        CambiosStock cambios = new CambiosStock();
+        TransactionSynchronizationManager.registerSynchronization(cambios);
+        return cambios;
+    }
+
+    /**
+     * Diferencias de stock por producto de una transacción, publicadas antes
+     * del commit (si se revierte no se publica nada).
+     */
+    private final class CambiosStock implements TransactionSynchronization {
+        private final Map<Long, Integer> diferencias = new LinkedHashMap<>();
+
+        @Override
+        public void beforeCommit(boolean soloLectura) {
+            publicar(diferencias);
+        }
+    }
 }
@@ -0,0 +1,173 @@
+package com.senafood.service;
+
+import com.senafood.model.VarianteImagen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+/**
+ * Limpieza programada de imágenes huérfanas: archivos en disco que ningún
+ * producto referencia en la columna imagen (fallos a mitad de una
+ * actualización, subidas nunca confirmadas, filas borradas fuera de la app).
+ *
+ * Es incremental: cada ejecución revisa solo algunas de las 256 carpetas del
+ * almacén (por prefijo del hash) y, al completar la vuelta, los directorios
+ * anteriores al almacén. Las referencias se leen con una proyección id/imagen
+ * por cursor, sin cargar entidades Producto, y solo se guardan en memoria las
+ * de las carpetas revisadas. Nunca se borran archivos más nuevos que el periodo
+ * de gracia, para no competir con subidas y cambios en curso.
+ */
+@Component
+public class LimpiezaImagenes {
+
+    private static final int TOTAL_CARPETAS = 256;
+    private static final String PREFIJO_SUBIDA = "subida-";
+
+    // Directorios usados antes del almacén por hash
+    private static final List<String> DIRECTORIOS_ANTERIORES = List.of(
+        "src/main/resources/static/img/productos/",
+        "src/main/resources/static/uploads/productos/");
+
+    private final ProductoRepository productoRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Path directorio;
+    private final int carpetasPorEjecucion;
+    private final Duration gracia;
+    private final boolean incluirAnteriores;
+
+    // Primera carpeta (0-255) de la próxima ejecución
+    private int siguienteCarpeta = 0;
+
+    public LimpiezaImagenes(ProductoRepository productoRepository,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${senafood.imagenes.directorio:${user.home}/senafood/imagenes}") String directorio,
+                            @Value("${senafood.imagenes.limpieza.carpetas-por-ejecucion:32}") int carpetasPorEjecucion,
+                            @Value("${senafood.imagenes.limpieza.gracia-horas:24}") long graciaHoras,
+                            @Value("${senafood.imagenes.limpieza.directorios-anteriores:true}") boolean incluirAnteriores) {
+        this.productoRepository = productoRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.directorio = Paths.get(directorio).toAbsolutePath().normalize();
+        this.carpetasPorEjecucion = Math.max(1, Math.min(carpetasPorEjecucion, TOTAL_CARPETAS));
+        this.gracia = Duration.ofHours(graciaHoras);
+        this.incluirAnteriores = incluirAnteriores;
+    }
+
+    @Scheduled(initialDelayString = "${senafood.imagenes.limpieza.retraso-inicial-ms:300000}",
+               fixedDelayString = "${senafood.imagenes.limpieza.intervalo-ms:3600000}")
+    public void ejecutar() {
+        try {
+            limpiar();
+        } catch (RuntimeException e) {
+            // Sin la lista completa de referencias no se borra nada
+            System.err.println("⚠️ Limpieza de imágenes omitida: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Revisa el siguiente grupo de carpetas. Retorna los bytes liberados.
+     */
+    public synchronized long limpiar() {
+        int inicio = siguienteCarpeta;
+        Set<String> carpetas = new HashSet<>();
+        for (int i = 0; i < carpetasPorEjecucion; i++) {
+            carpetas.add(String.format("%02x", (inicio + i) % TOTAL_CARPETAS));
+        }
+        // Los directorios anteriores se revisan una vez por vuelta completa (al pasar por "00")
+        boolean revisarAnteriores = incluirAnteriores && carpetas.contains("00");
+
+        Set<String> referenciadas = cargarReferencias(imagen ->
+            revisarAnteriores || (imagen.length() >= 2 && carpetas.contains(imagen.substring(0, 2))));
+
+        FileTime limite = FileTime.fromMillis(System.currentTimeMillis() - gracia.toMillis());
+        Resultado resultado = new Resultado();
+
+        // Subidas recibidas cuyo producto nunca se confirmó
+        barrer(directorio, nombre -> nombre.startsWith(PREFIJO_SUBIDA), limite, resultado);
+
+        for (String carpeta : carpetas) {
+            barrer(directorio.resolve(carpeta), nombre -> !referenciadas.contains(nombre), limite, resultado);
+        }
+        if (revisarAnteriores) {
+            for (String anterior : DIRECTORIOS_ANTERIORES) {
+                barrer(Paths.get(anterior), nombre -> !referenciadas.contains(nombre), limite, resultado);
+            }
+        }
+
+        siguienteCarpeta = (inicio + carpetasPorEjecucion) % TOTAL_CARPETAS;
+        System.out.println("🧹 Limpieza de imágenes (carpetas " + String.format("%02x", inicio) + "-"
+            + String.format("%02x", (inicio + carpetasPorEjecucion - 1) % TOTAL_CARPETAS)
+            + (revisarAnteriores ? " y directorios anteriores" : "") + "): "
+            + resultado.archivos + " archivos huérfanos eliminados, "
+            + String.format(Locale.ROOT, "%.1f", resultado.bytes / (1024.0 * 1024.0)) + " MB liberados");
+        return resultado.bytes;
+    }
+
+    /**
+     * Nombres de archivo (imagen y variantes) referenciados por algún producto,
+     * limitados a las imágenes que cumplen el filtro.
+     */
+    private Set<String> cargarReferencias(Predicate<String> filtro) {
+        Set<String> referenciadas = new HashSet<>();
+        transactionTemplate.executeWithoutResult(estado -> {
+            try (Stream<Object[]> filas = productoRepository.streamImagenes()) {
+                filas.forEach(fila -> {
+                    String imagen = (String) fila[1];
+                    if (imagen != null && !imagen.isEmpty() && filtro.test(imagen)) {
+                        for (VarianteImagen variante : VarianteImagen.values()) {
+                            referenciadas.add(variante.nombreArchivo(imagen));
+                        }
+                    }
+                });
+            }
+        });
+        return referenciadas;
+    }
+
+    private static void barrer(Path carpeta, Predicate<String> huerfano, FileTime limite, Resultado resultado) {
+        if (!Files.isDirectory(carpeta)) {
+            return;
+        }
+        try (DirectoryStream<Path> archivos = Files.newDirectoryStream(carpeta)) {
+            for (Path archivo : archivos) {
+                String nombre = archivo.getFileName().toString();
+                if (nombre.startsWith(".") || !huerfano.test(nombre)) {
+                    continue;
+                }
+                BasicFileAttributes atributos = Files.readAttributes(archivo, BasicFileAttributes.class);
+                if (!atributos.isRegularFile() || atributos.lastModifiedTime().compareTo(limite) > 0) {
+                    continue;
+                }
+                if (Files.deleteIfExists(archivo)) {
+                    resultado.archivos++;
+                    resultado.bytes += atributos.size();
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("⚠️ Error limpiando " + carpeta + ": " + e.getMessage());
+        }
+    }
+
+    private static final class Resultado {
+        private int archivos;
+        private long bytes;
+    }
+}
@@ -0,0 +1,147 @@
+package com.senafood.service;
+
+import com.senafood.model.Lote;
+import com.senafood.model.Producto;
+import com.senafood.repository.LoteRepository;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Inventario por lotes con asignación FEFO (primero en vencer, primero en salir).
+ *
+ * Cada producto tiene sus lotes ordenados por vencimiento en el índice
+ * idx_lote_producto_vencimiento. Producto.fechaVencimiento (vencimiento más
+ * próximo con existencias) es un agregado mantenido aquí con UPDATE directos,
+ * de modo que leer el próximo vencimiento no recorre lotes en cada consulta.
+ * Los lotes son del producto, no de una ubicación: el stock por ubicación lo
+ * lleva InventoryService y la salida FEFO toma del lote que vence primero.
+ */
+@Service
+@Transactional
+public class LoteService {
+
+    // Relecturas máximas cuando otro proceso consume los mismos lotes a la vez
+    private static final int MAX_INTENTOS = 5;
+
+    private final LoteRepository loteRepository;
+    private final ProductoRepository productoRepository;
+
+    public LoteService(LoteRepository loteRepository,
+                       ProductoRepository productoRepository) {
+        this.loteRepository = loteRepository;
+        this.productoRepository = productoRepository;
+    }
+
+    /**
+     * Al arrancar, los productos con stock y sin lotes reciben un lote inicial
+     * con su stock y fecha de vencimiento actuales.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void crearLotesIniciales() {
+        int creados = loteRepository.crearLotesIniciales(0L);
+        System.out.println("📦 Lotes iniciales creados: " + creados);
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        loteRepository.crearLotesIniciales(event.getDespuesDe());
+    }
+
+    static void validarLote(int cantidad, Date fechaVencimiento) {
+        if (cantidad <= 0) {
+            throw new RuntimeException("La cantidad del lote debe ser mayor que 0");
+        }
+        if (fechaVencimiento == null) {
+            throw new RuntimeException("La fecha de vencimiento del lote es obligatoria");
+        }
+    }
+
+    /**
+     * Saca unidades ya descontadas del stock (InventoryService) de los lotes que
+     * vencen primero y actualiza el vencimiento más próximo del producto.
+     */
+    public void retirar(Long idProducto, int cantidad) {
+        int pendiente = descontarLotes(idProducto, cantidad);
+        if (pendiente > 0) {
+            // Stock y lotes desalineados (p. ej. ajustes hechos fuera de la aplicación)
+            System.err.println("⚠️ Los lotes del producto " + idProducto + " no cubrieron " + pendiente + " unidades");
+        }
+        sincronizarVencimiento(idProducto);
+    }
+
+    /**
+     * Descuenta unidades de los lotes en orden FEFO, sin tocar el stock del
+     * producto. Cada lote se descuenta con un UPDATE condicional; si otro proceso
+     * lo consumió antes, se releen las existencias. Retorna las unidades que no
+     * se pudieron cubrir.
+     */
+    public int descontarLotes(Long idProducto, int cantidad) {
+        int pendiente = cantidad;
+        for (int intento = 0; pendiente > 0 && intento < MAX_INTENTOS; intento++) {
+            List<Object[]> existencias = loteRepository.findExistenciasFefo(idProducto);
+            if (existencias.isEmpty()) {
+                break;
+            }
+            for (Object[] existencia : existencias) {
+                Long idLote = (Long) existencia[0];
+                int disponible = ((Number) existencia[1]).intValue();
+                int tomar = Math.min(disponible, pendiente);
+                if (loteRepository.descontar(idLote, tomar) == 0) {
+                    // El lote cambió desde la lectura: se relee en orden FEFO
+                    break;
+                }
+                pendiente -= tomar;
+                if (pendiente == 0) {
+                    break;
+                }
+            }
+        }
+        return pendiente;
+    }
+
+    /**
+     * Agrega la fila del lote sin modificar los agregados del producto.
+     */
+    public Lote agregarLote(Producto producto, int cantidad, Date fechaVencimiento) {
+        return loteRepository.save(new Lote(producto, cantidad, fechaVencimiento));
+    }
+
+    /**
+     * Lotes con existencias del producto, del que vence primero al último.
+     */
+    @Transactional(readOnly = true)
+    public List<Lote> findLotes(Long idProducto) {
+        return loteRepository.findDisponiblesFefo(idProducto);
+    }
+
+    /**
+     * Vencimiento más próximo entre los lotes con existencias (null si no hay).
+     */
+    @Transactional(readOnly = true)
+    public Date proximoVencimiento(Long idProducto) {
+        List<Date> fechas = loteRepository.findVencimientosDisponibles(idProducto, PageRequest.ofSize(1));
+        return fechas.isEmpty() ? null : fechas.get(0);
+    }
+
+    public void eliminarLotes(Long idProducto) {
+        loteRepository.deleteByIdProducto(idProducto);
+    }
+
+    /**
+     * Lleva el vencimiento más próximo de los lotes al producto. Sin existencias
+     * se conserva la última fecha (la columna no admite nulos).
+     */
+    public void sincronizarVencimiento(Long idProducto) {
+        Date proximo = proximoVencimiento(idProducto);
+        if (proximo != null) {
+            productoRepository.actualizarVencimiento(idProducto, proximo);
+        }
+    }
+}
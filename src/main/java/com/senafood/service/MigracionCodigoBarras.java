@@ -0,0 +1,75 @@
+package com.senafood.service;
+
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Crea el índice único uk_producto_codigo_barras de forma explícita.
+ *
+ * ddl-auto no puede crearlo si hay códigos repetidos o vacíos ('' cuenta como
+ * valor, NULL no) y solo deja una advertencia en el log. Antes de crearlo se
+ * recortan los espacios, los códigos vacíos pasan a NULL y se informan los
+ * repetidos; con repetidos el índice no se crea hasta corregirlos.
+ *
+ * Corre como ApplicationRunner: antes de ApplicationReadyEvent, cuando se
+ * cargan los índices en memoria (CodigoBarrasIndex).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class MigracionCodigoBarras implements ApplicationRunner {
+
+    private static final String INDICE = "uk_producto_codigo_barras";
+
+    private static final int MAX_REPETIDOS_INFORMADOS = 20;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public MigracionCodigoBarras(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (existeIndice()) {
+            return;
+        }
+
+        int recortados = jdbcTemplate.update(
+            "UPDATE producto SET codigo_barras = TRIM(codigo_barras) WHERE codigo_barras <> TRIM(codigo_barras)");
+        int vacios = jdbcTemplate.update(
+            "UPDATE producto SET codigo_barras = NULL WHERE TRIM(codigo_barras) = ''");
+        if (recortados > 0 || vacios > 0) {
+            System.out.println("🏷️ Códigos de barras normalizados: " + recortados + " recortados, "
+                + vacios + " vacíos pasados a NULL");
+        }
+
+        List<Map<String, Object>> repetidos = jdbcTemplate.queryForList(
+            "SELECT codigo_barras, COUNT(*) AS productos FROM producto WHERE codigo_barras IS NOT NULL " +
+            "GROUP BY codigo_barras HAVING COUNT(*) > 1 ORDER BY codigo_barras LIMIT " + MAX_REPETIDOS_INFORMADOS);
+        if (!repetidos.isEmpty()) {
+            System.out.println("⚠️ No se creó " + INDICE + ": hay códigos de barras repetidos");
+            for (Map<String, Object> fila : repetidos) {
+                System.out.println("   - " + fila.get("codigo_barras") + " (" + fila.get("productos") + " productos)");
+            }
+            return;
+        }
+
+        jdbcTemplate.execute("CREATE UNIQUE INDEX " + INDICE + " ON producto (codigo_barras)");
+        System.out.println("🏷️ Índice único " + INDICE + " creado");
+    }
+
+    private boolean existeIndice() {
+        Integer indices = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.statistics " +
+            "WHERE table_schema = DATABASE() AND table_name = 'producto' AND index_name = ?",
+            Integer.class, INDICE);
+        return indices != null && indices > 0;
+    }
+}
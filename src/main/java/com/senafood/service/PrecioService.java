@@ -0,0 +1,325 @@
+package com.senafood.service;
+
+import com.senafood.model.Promocion;
+import com.senafood.model.VigenciaPromocion;
+import com.senafood.repository.PromocionRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precio que paga el cliente: el precio del producto menos el descuento de la
+ * promoción que aplica ese día.
+ *
+ * Las promociones se guardan en memoria en un índice de intervalos por
+ * producto: la línea de tiempo del producto se divide en tramos donde la
+ * promoción ganadora no cambia (la de mayor descuento si se superponen), y los
+ * tramos quedan en un TreeMap por fecha de inicio. Resolver el precio de
+ * cualquier fecha es un floorEntry, O(log n) en los tramos del producto, sin
+ * consultar la base de datos ni hacer un join por producto al mostrar el
+ * catálogo o el carrito.
+ *
+ * Para detectar superposiciones, cada producto tiene además un índice de
+ * intervalos: las promociones ordenadas por inicio con el mayor fin acumulado,
+ * así saber si un rango choca con alguna es una búsqueda binaria.
+ *
+ * Se carga al arrancar y se actualiza desde PromocionService al guardar o
+ * eliminar; cada cambio reconstruye solo los índices del producto afectado.
+ * El conjunto de promociones activas hoy queda materializado y se recalcula
+ * en cada cambio y cuando PromocionService revisa los límites de fechas.
+ */
+@Service
+public class PrecioService {
+
+    private final PromocionRepository promocionRepository;
+
+    // Promociones por producto y por id
+    private final Map<Long, Map<Integer, VigenciaPromocion>> porProducto = new HashMap<>();
+    private final Map<Integer, VigenciaPromocion> porId = new HashMap<>();
+
+    // Inicio de cada tramo -> promoción del tramo (null = sin promoción). Cada
+    // TreeMap es inmutable una vez publicado: los lectores no se bloquean.
+    private final Map<Long, NavigableMap<LocalDate, VigenciaPromocion>> tramosPorProducto = new ConcurrentHashMap<>();
+    private final Map<Long, Intervalos> intervalosPorProducto = new ConcurrentHashMap<>();
+
+    // Promociones activas el día diaActivas, inmutable
+    private volatile List<VigenciaPromocion> activas = List.of();
+    private LocalDate diaActivas;
+
+    public PrecioService(PromocionRepository promocionRepository) {
+        this.promocionRepository = promocionRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void cargar() {
+        porProducto.clear();
+        porId.clear();
+        tramosPorProducto.clear();
+        intervalosPorProducto.clear();
+        List<VigenciaPromocion> vigencias = promocionRepository.findVigencias();
+        for (VigenciaPromocion vigencia : vigencias) {
+            agregar(vigencia);
+        }
+        for (Long idProducto : porProducto.keySet()) {
+            reconstruir(idProducto);
+        }
+        recalcularActivas(LocalDate.now());
+        System.out.println("🏷️ Índice de precios cargado: " + vigencias.size() + " promociones de "
+            + porProducto.size() + " productos");
+    }
+
+    /**
+     * Refleja una promoción guardada (nueva o editada, incluso si cambió de producto).
+     */
+    public synchronized void actualizar(Promocion promocion) {
+        VigenciaPromocion nueva = VigenciaPromocion.de(promocion);
+        VigenciaPromocion anterior = retirar(nueva.getIdPromocion());
+        if (nueva.getIdProducto() != null) {
+            agregar(nueva);
+            reconstruir(nueva.getIdProducto());
+        }
+        if (anterior != null && !anterior.getIdProducto().equals(nueva.getIdProducto())) {
+            reconstruir(anterior.getIdProducto());
+        }
+        recalcularActivas(diaActivas != null ? diaActivas : LocalDate.now());
+    }
+
+    public synchronized void quitar(Integer idPromocion) {
+        VigenciaPromocion anterior = retirar(idPromocion);
+        if (anterior != null) {
+            reconstruir(anterior.getIdProducto());
+            recalcularActivas(diaActivas != null ? diaActivas : LocalDate.now());
+        }
+    }
+
+    /**
+     * Recalcula el conjunto de promociones activas para el día indicado.
+     */
+    public synchronized void recalcularActivas(LocalDate hoy) {
+        List<VigenciaPromocion> vigentes = new ArrayList<>();
+        for (VigenciaPromocion promocion : porId.values()) {
+            if (promocion.aplica(hoy)) {
+                vigentes.add(promocion);
+            }
+        }
+        vigentes.sort((a, b) -> a.getIdPromocion().compareTo(b.getIdPromocion()));
+        diaActivas = hoy;
+        activas = List.copyOf(vigentes);
+    }
+
+    /**
+     * Promociones activas hoy, sin consultar la base de datos.
+     */
+    public List<VigenciaPromocion> getActivas() {
+        return activas;
+    }
+
+    /**
+     * Alguna promoción del producto, distinta de excluir, que se superpone con
+     * el rango [inicio, fin] (null = sin límite), o null si no hay ninguna.
+     */
+    public VigenciaPromocion buscarSuperpuesta(Long idProducto, LocalDate inicio, LocalDate fin, Integer excluir) {
+        Intervalos intervalos = intervalosPorProducto.get(idProducto);
+        if (intervalos == null) {
+            return null;
+        }
+        return intervalos.buscarSuperpuesta(inicio != null ? inicio : LocalDate.MIN,
+            fin != null ? fin : LocalDate.MAX, excluir);
+    }
+
+    /**
+     * Promoción que aplica al producto en la fecha, o null si no hay ninguna.
+     */
+    public VigenciaPromocion promocionVigente(Long idProducto, LocalDate fecha) {
+        NavigableMap<LocalDate, VigenciaPromocion> tramos = tramosPorProducto.get(idProducto);
+        if (tramos == null) {
+            return null;
+        }
+        Map.Entry<LocalDate, VigenciaPromocion> tramo = tramos.floorEntry(fecha);
+        return tramo != null ? tramo.getValue() : null;
+    }
+
+    /**
+     * Precio con el descuento vigente en la fecha; nunca menor que cero.
+     */
+    public BigDecimal precioEfectivo(Long idProducto, BigDecimal precioBase, LocalDate fecha) {
+        if (precioBase == null) {
+            return null;
+        }
+        VigenciaPromocion promocion = promocionVigente(idProducto, fecha);
+        if (promocion == null) {
+            return precioBase;
+        }
+        return precioBase.subtract(promocion.getDescuento()).max(BigDecimal.ZERO);
+    }
+
+    public BigDecimal precioHoy(Long idProducto, BigDecimal precioBase) {
+        return precioEfectivo(idProducto, precioBase, LocalDate.now());
+    }
+
+    public boolean tienePromocionHoy(Long idProducto) {
+        return promocionVigente(idProducto, LocalDate.now()) != null;
+    }
+
+    /**
+     * Promociones registradas de un producto (cualquier fecha).
+     */
+    public synchronized List<VigenciaPromocion> promocionesDe(Long idProducto) {
+        Map<Integer, VigenciaPromocion> promociones = porProducto.get(idProducto);
+        return promociones != null ? new ArrayList<>(promociones.values()) : Collections.emptyList();
+    }
+
+    private void agregar(VigenciaPromocion vigencia) {
+        if (vigencia.getIdProducto() == null) {
+            return;
+        }
+        porId.put(vigencia.getIdPromocion(), vigencia);
+        porProducto.computeIfAbsent(vigencia.getIdProducto(), id -> new HashMap<>())
+            .put(vigencia.getIdPromocion(), vigencia);
+    }
+
+    private VigenciaPromocion retirar(Integer idPromocion) {
+        VigenciaPromocion anterior = porId.remove(idPromocion);
+        if (anterior != null) {
+            Map<Integer, VigenciaPromocion> promociones = porProducto.get(anterior.getIdProducto());
+            promociones.remove(idPromocion);
+            if (promociones.isEmpty()) {
+                porProducto.remove(anterior.getIdProducto());
+            }
+        }
+        return anterior;
+    }
+
+    /**
+     * Recalcula los tramos de un producto: cada inicio de promoción y cada día
+     * siguiente a un fin abre un tramo, con la promoción ganadora de ese día.
+     * Los tramos contiguos con la misma ganadora se unen.
+     */
+    private void reconstruir(Long idProducto) {
+        Map<Integer, VigenciaPromocion> promociones = porProducto.get(idProducto);
+        if (promociones == null || promociones.isEmpty()) {
+            tramosPorProducto.remove(idProducto);
+            intervalosPorProducto.remove(idProducto);
+            return;
+        }
+        intervalosPorProducto.put(idProducto, new Intervalos(promociones.values()));
+        TreeSet<LocalDate> limites = new TreeSet<>();
+        for (VigenciaPromocion promocion : promociones.values()) {
+            limites.add(promocion.getFechaInicio() != null ? promocion.getFechaInicio() : LocalDate.MIN);
+            if (promocion.getFechaFin() != null && promocion.getFechaFin().isBefore(LocalDate.MAX)) {
+                limites.add(promocion.getFechaFin().plusDays(1));
+            }
+        }
+        TreeMap<LocalDate, VigenciaPromocion> tramos = new TreeMap<>();
+        VigenciaPromocion actual = null;
+        for (LocalDate limite : limites) {
+            VigenciaPromocion ganadora = ganadora(promociones.values(), limite);
+            if (tramos.isEmpty() || ganadora != actual) {
+                tramos.put(limite, ganadora);
+                actual = ganadora;
+            }
+        }
+        tramosPorProducto.put(idProducto, Collections.unmodifiableNavigableMap(tramos));
+    }
+
+    // Mayor descuento; a igual descuento, la promoción más antigua
+    private static VigenciaPromocion ganadora(Collection<VigenciaPromocion> promociones, LocalDate fecha) {
+        VigenciaPromocion mejor = null;
+        for (VigenciaPromocion promocion : promociones) {
+            if (!promocion.aplica(fecha)) {
+                continue;
+            }
+            if (mejor == null) {
+                mejor = promocion;
+                continue;
+            }
+            int comparacion = promocion.getDescuento().compareTo(mejor.getDescuento());
+            if (comparacion > 0 || (comparacion == 0 && promocion.getIdPromocion() < mejor.getIdPromocion())) {
+                mejor = promocion;
+            }
+        }
+        return mejor;
+    }
+
+    private static LocalDate inicioDe(VigenciaPromocion promocion) {
+        return promocion.getFechaInicio() != null ? promocion.getFechaInicio() : LocalDate.MIN;
+    }
+
+    private static LocalDate finDe(VigenciaPromocion promocion) {
+        return promocion.getFechaFin() != null ? promocion.getFechaFin() : LocalDate.MAX;
+    }
+
+    /**
+     * Índice de intervalos inmutable de un producto: promociones ordenadas por
+     * inicio y, para cada posición, las dos de mayor fin entre las anteriores.
+     * Un rango [a, b] se superpone con alguna si, entre las que empiezan hasta
+     * b, la de mayor fin termina en a o después. Se guardan dos para poder
+     * excluir la promoción que se está editando.
+     */
+    private static final class Intervalos {
+        private final LocalDate[] inicios;
+        private final VigenciaPromocion[] mayorFin;
+        private final VigenciaPromocion[] segundoFin;
+
+        private Intervalos(Collection<VigenciaPromocion> promociones) {
+            List<VigenciaPromocion> ordenadas = new ArrayList<>(promociones);
+            ordenadas.sort((a, b) -> inicioDe(a).compareTo(inicioDe(b)));
+            int total = ordenadas.size();
+            inicios = new LocalDate[total];
+            mayorFin = new VigenciaPromocion[total];
+            segundoFin = new VigenciaPromocion[total];
+
+            VigenciaPromocion primera = null;
+            VigenciaPromocion segunda = null;
+            for (int i = 0; i < total; i++) {
+                VigenciaPromocion promocion = ordenadas.get(i);
+                inicios[i] = inicioDe(promocion);
+                if (primera == null || finDe(promocion).isAfter(finDe(primera))) {
+                    segunda = primera;
+                    primera = promocion;
+                } else if (segunda == null || finDe(promocion).isAfter(finDe(segunda))) {
+                    segunda = promocion;
+                }
+                mayorFin[i] = primera;
+                segundoFin[i] = segunda;
+            }
+        }
+
+        private VigenciaPromocion buscarSuperpuesta(LocalDate inicio, LocalDate fin, Integer excluir) {
+            // Última posición que empieza en fin o antes
+            int bajo = 0;
+            int alto = inicios.length - 1;
+            int posicion = -1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                if (inicios[medio].isAfter(fin)) {
+                    alto = medio - 1;
+                } else {
+                    posicion = medio;
+                    bajo = medio + 1;
+                }
+            }
+            if (posicion < 0) {
+                return null;
+            }
+            VigenciaPromocion candidata = mayorFin[posicion];
+            if (excluir != null && excluir.equals(candidata.getIdPromocion())) {
+                candidata = segundoFin[posicion];
+            }
+            return candidata != null && !finDe(candidata).isBefore(inicio) ? candidata : null;
+        }
+    }
+}
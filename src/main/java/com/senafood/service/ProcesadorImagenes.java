@@ -0,0 +1,96 @@
+package com.senafood.service;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Procesa en segundo plano las imágenes subidas con un producto.
+ *
+ * Al confirmarse el guardado, la subida pasa al executor acotado de imágenes
+ * (BeansConfig.imagenesExecutor); cuando está lista se asigna al producto y su
+ * estadoImagen pasa de "pendiente" a "lista" (o "error"). Si la cola está
+ * llena, la tarea la ejecuta el hilo que la envía, lo que frena a los
+ * productores en vez de acumular subidas sin límite.
+ */
+@Component
+public class ProcesadorImagenes {
+
+    private final ImagenProductoService imagenProductoService;
+    private final ProductoService productoService;
+    private final Executor imagenesExecutor;
+
+    // Última subida de cada producto: una subida reemplazada no pisa a la más reciente
+    private final Map<Long, String> ultimaSubida = new ConcurrentHashMap<>();
+
+    public ProcesadorImagenes(ImagenProductoService imagenProductoService,
+                              ProductoService productoService,
+                              @Qualifier("imagenesExecutor") Executor imagenesExecutor) {
+        this.imagenProductoService = imagenProductoService;
+        this.productoService = productoService;
+        this.imagenesExecutor = imagenesExecutor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onImagenSubida(ImagenSubidaEvent event) {
+        ultimaSubida.put(event.getIdProducto(), event.getSubida());
+        imagenesExecutor.execute(() -> procesar(event.getIdProducto(), event.getSubida()));
+    }
+
+    /**
+     * Si el guardado del producto se revierte, la subida ya no tiene dueño.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_ROLLBACK)
+    public void onImagenSubidaRevertida(ImagenSubidaEvent event) {
+        imagenProductoService.descartar(event.getSubida());
+    }
+
+    private void procesar(Long idProducto, String subida) {
+        String imagen;
+        try {
+            imagen = imagenProductoService.procesar(subida);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("❌ Error procesando imagen del producto " + idProducto + ": " + e.getMessage());
+            if (ultimaSubida.remove(idProducto, subida)) {
+                marcarError(idProducto);
+            }
+            return;
+        }
+
+        if (!ultimaSubida.remove(idProducto, subida)) {
+            System.out.println("⏭️ Imagen reemplazada por una subida más reciente: " + imagen);
+            liberar(imagen);
+            return;
+        }
+        try {
+            productoService.asignarImagen(idProducto, imagen);
+            System.out.println("🖼️ Imagen lista para el producto " + idProducto + ": " + imagen);
+        } catch (RuntimeException e) {
+            // El producto se eliminó mientras se procesaba la imagen
+            System.err.println("⚠️ No se pudo asignar la imagen al producto " + idProducto + ": " + e.getMessage());
+            liberar(imagen);
+        }
+    }
+
+    private void marcarError(Long idProducto) {
+        try {
+            productoService.marcarErrorImagen(idProducto);
+        } catch (RuntimeException e) {
+            System.err.println("⚠️ No se pudo marcar el error de imagen: " + e.getMessage());
+        }
+    }
+
+    private void liberar(String imagen) {
+        try {
+            imagenProductoService.liberar(imagen);
+        } catch (IOException e) {
+            System.err.println("⚠️ Error liberando imagen: " + e.getMessage());
+        }
+    }
+}
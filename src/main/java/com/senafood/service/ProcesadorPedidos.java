@@ -0,0 +1,235 @@
+package com.senafood.service;
+
+import com.senafood.model.DetallePedido;
+import com.senafood.model.Pedido;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confirmación de pedidos con commit agrupado.
+ *
+ * Los pedidos confirmados desde el carrito entran a una cola acotada y un solo
+ * hilo los toma en grupos de hasta tamano-grupo: cada grupo descuenta el stock
+ * de todos sus pedidos (InventoryService.vender) e inserta pedidos y detalles
+ * con JDBC batch en una sola transacción, así el costo del commit y del fsync
+ * del log de la base de datos se reparte entre los pedidos del grupo. No se
+ * espera a que el grupo se llene: mientras se confirma un grupo, los pedidos
+ * que llegan se acumulan en la cola y forman el siguiente, de modo que con
+ * poca carga cada pedido sale solo y con mucha los grupos crecen.
+ *
+ * Cada llamador recibe un CompletableFuture de su pedido, que se completa
+ * después del commit. Un pedido sin stock suficiente se rechaza sin afectar a
+ * los demás del grupo. Si la transacción del grupo falla, se reintenta pedido
+ * por pedido para aislar el que falló.
+ */
+@Component
+public class ProcesadorPedidos {
+
+    private static final String SQL_PEDIDO =
+        "INSERT INTO pedido (usuario, id_ubicacion, total, unidades, estado, create_at) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SQL_DETALLE =
+        "INSERT INTO pedido_detalle (id_pedido, id_producto, cantidad, precio_unitario, subtotal) VALUES (?, ?, ?, ?, ?)";
+
+    private final InventoryService inventoryService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Solicitud> cola;
+    private final int tamanoGrupo;
+
+    private volatile boolean activo;
+    private Thread hilo;
+
+    public ProcesadorPedidos(InventoryService inventoryService,
+                             JdbcTemplate jdbcTemplate,
+                             TransactionTemplate transactionTemplate,
+                             @Value("${senafood.pedidos.tamano-grupo:32}") int tamanoGrupo,
+                             @Value("${senafood.pedidos.cola-max:2000}") int colaMax) {
+        this.inventoryService = inventoryService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.tamanoGrupo = Math.max(1, tamanoGrupo);
+        this.cola = new ArrayBlockingQueue<>(Math.max(1, colaMax));
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        activo = true;
+        hilo = new Thread(this::ejecutar, "pedidos");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Deja de tomar pedidos; los que quedaron en la cola se rechazan.
+     */
+    @PreDestroy
+    public void detener() throws InterruptedException {
+        activo = false;
+        hilo.join(TimeUnit.SECONDS.toMillis(10));
+        List<Solicitud> pendientes = new ArrayList<>();
+        cola.drainTo(pendientes);
+        for (Solicitud solicitud : pendientes) {
+            solicitud.resultado.completeExceptionally(new RuntimeException("La aplicación se está deteniendo"));
+        }
+    }
+
+    /**
+     * Encola un pedido con sus detalles. El future se completa con el pedido
+     * ya guardado (con id) o con la causa del rechazo.
+     */
+    public CompletableFuture<Pedido> encolar(Pedido pedido) {
+        if (pedido.getDetalles().isEmpty()) {
+            return CompletableFuture.failedFuture(new RuntimeException("El pedido no tiene productos"));
+        }
+        Solicitud solicitud = new Solicitud(pedido);
+        if (!activo || !cola.offer(solicitud)) {
+            return CompletableFuture.failedFuture(
+                new RuntimeException("Hay demasiados pedidos en proceso, intente de nuevo en unos segundos"));
+        }
+        return solicitud.resultado;
+    }
+
+    public int getEnCola() {
+        return cola.size();
+    }
+
+    private void ejecutar() {
+        List<Solicitud> grupo = new ArrayList<>(tamanoGrupo);
+        while (activo) {
+            try {
+                Solicitud primera = cola.poll(500, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                grupo.add(primera);
+                cola.drainTo(grupo, tamanoGrupo - 1);
+                procesar(grupo);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Nunca deja el hilo muerto: el grupo ya se completó en procesar
+                System.err.println("⚠️ Error en el procesador de pedidos: " + e.getMessage());
+            } finally {
+                grupo.clear();
+            }
+        }
+    }
+
+    private void procesar(List<Solicitud> grupo) {
+        List<Solicitud> aceptadas;
+        try {
+            aceptadas = transactionTemplate.execute(estado -> confirmarGrupo(grupo));
+        } catch (RuntimeException e) {
+            if (grupo.size() == 1) {
+                System.err.println("❌ Pedido de " + grupo.get(0).pedido.getUsuario() + " no confirmado: " + e.getMessage());
+                grupo.get(0).resultado.completeExceptionally(
+                    new RuntimeException("No se pudo confirmar el pedido: " + e.getMessage(), e));
+                return;
+            }
+            System.err.println("⚠️ Grupo de " + grupo.size() + " pedidos rechazado, reintentando uno por uno: " + e.getMessage());
+            for (Solicitud solicitud : grupo) {
+                procesar(List.of(solicitud));
+            }
+            return;
+        }
+
+        // Después del commit
+        for (Solicitud solicitud : grupo) {
+            if (aceptadas.contains(solicitud)) {
+                solicitud.resultado.complete(solicitud.pedido);
+            } else {
+                solicitud.resultado.completeExceptionally(
+                    new RuntimeException("Stock insuficiente para uno o más productos del pedido"));
+            }
+        }
+        if (grupo.size() > 1) {
+            System.out.println("🧾 Grupo de pedidos confirmado: " + aceptadas.size() + " de " + grupo.size());
+        }
+    }
+
+    private List<Solicitud> confirmarGrupo(List<Solicitud> grupo) {
+        List<Solicitud> aceptadas = new ArrayList<>(grupo.size());
+        for (Solicitud solicitud : grupo) {
+            Pedido pedido = solicitud.pedido;
+            if (inventoryService.vender(pedido.cantidadesPorProducto(), pedido.getIdUbicacion())) {
+                aceptadas.add(solicitud);
+            }
+        }
+        if (!aceptadas.isEmpty()) {
+            insertarPedidos(aceptadas);
+            insertarDetalles(aceptadas);
+        }
+        return aceptadas;
+    }
+
+    /**
+     * INSERT por lotes de los pedidos, leyendo los ids generados en el mismo orden.
+     */
+    private void insertarPedidos(List<Solicitud> aceptadas) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) conexion -> {
+            try (PreparedStatement sentencia = conexion.prepareStatement(SQL_PEDIDO, Statement.RETURN_GENERATED_KEYS)) {
+                for (Solicitud solicitud : aceptadas) {
+                    Pedido pedido = solicitud.pedido;
+                    sentencia.setString(1, pedido.getUsuario());
+                    sentencia.setInt(2, pedido.getIdUbicacion());
+                    sentencia.setBigDecimal(3, pedido.getTotal());
+                    sentencia.setInt(4, pedido.getUnidades());
+                    sentencia.setString(5, pedido.getEstado());
+                    sentencia.setTimestamp(6, new Timestamp(pedido.getCreateAt().getTime()));
+                    sentencia.addBatch();
+                }
+                sentencia.executeBatch();
+                try (ResultSet claves = sentencia.getGeneratedKeys()) {
+                    for (Solicitud solicitud : aceptadas) {
+                        if (!claves.next()) {
+                            throw new IllegalStateException("La base de datos no devolvió el id de todos los pedidos");
+                        }
+                        solicitud.pedido.setIdPedido(claves.getLong(1));
+                    }
+                }
+            }
+            return null;
+        });
+    }
+
+    private void insertarDetalles(List<Solicitud> aceptadas) {
+        List<Object[]> filas = new ArrayList<>();
+        for (Solicitud solicitud : aceptadas) {
+            for (DetallePedido detalle : solicitud.pedido.getDetalles()) {
+                detalle.setIdPedido(solicitud.pedido.getIdPedido());
+                filas.add(new Object[] {
+                    detalle.getIdPedido(), detalle.getIdProducto(), detalle.getCantidad(),
+                    detalle.getPrecioUnitario(), detalle.getSubtotal()
+                });
+            }
+        }
+        jdbcTemplate.batchUpdate(SQL_DETALLE, filas);
+    }
+
+    private static final class Solicitud {
+        private final Pedido pedido;
+        private final CompletableFuture<Pedido> resultado = new CompletableFuture<>();
+
+        private Solicitud(Pedido pedido) {
+            this.pedido = pedido;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evento publicado por ProductoServiceImpl cada vez que un producto se crea,
+ * se actualiza o se elimina. Los índices en memoria lo escuchan después del
+ * commit para mantenerse sincronizados con la base de datos.
+ *
+ * Los listeners corren en el hilo de cada transacción, así que dos cambios del
+ * mismo producto pueden llegar en otro orden que sus commits. Cada evento lleva
+ * una versión creciente tomada al crearlo, con la fila del producto ya escrita
+ * (y bloqueada) por la transacción: para un mismo producto, el orden de las
+ * versiones es el de los commits y los índices descartan las que llegan tarde
+ * (VersionesProducto).
+ */
+public class ProductoCambiadoEvent {
+
+    public enum Tipo {
+        GUARDADO,
+        // Solo cambió el stock (y el vencimiento, que sale de los lotes): los
+        // índices de texto pueden ignorarlo o actualizar el resumen sin reindexar
+        STOCK,
+        ELIMINADO
+    }
+
+    private static final AtomicLong SECUENCIA = new AtomicLong();
+
+    private final long version;
+    private final Tipo tipo;
+    private final Long idProducto;
+    private final Producto producto;
+    private final Producto anterior;
+
+    private ProductoCambiadoEvent(Tipo tipo, Long idProducto, Producto producto, Producto anterior) {
+        this.version = SECUENCIA.incrementAndGet();
+        this.tipo = tipo;
+        this.idProducto = idProducto;
+        this.producto = producto;
+        this.anterior = anterior;
+    }
+
+    /**
+     * @param producto entidad recién guardada
+     * @param anterior copia del producto antes del cambio (null si es nuevo)
+     */
+    public static ProductoCambiadoEvent guardado(Producto producto, Producto anterior) {
+        return new ProductoCambiadoEvent(Tipo.GUARDADO, producto.getIdProducto(), producto.copiar(), anterior);
+    }
+
+    /**
+     * Cambio de stock hecho por el inventario (ventas, reservas, lotes, volcados).
+     *
+     * @param actual     estado del producto leído después de aplicar el cambio
+     * @param diferencia unidades sumadas (negativo si se descontaron)
+     */
+    public static ProductoCambiadoEvent stock(ProductoResumen actual, int diferencia) {
+        Producto anterior = Producto.desde(actual);
+        anterior.setStock(actual.getStock() - diferencia);
+        return new ProductoCambiadoEvent(Tipo.STOCK, actual.getIdProducto(), Producto.desde(actual), anterior);
+    }
+
+    public static ProductoCambiadoEvent eliminado(Producto anterior) {
+        return new ProductoCambiadoEvent(Tipo.ELIMINADO, anterior.getIdProducto(), null, anterior.copiar());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public Long getIdProducto() {
+        return idProducto;
+    }
+
+    /**
+     * Copia desacoplada del producto tal como quedó guardado (null si fue eliminado).
+     */
+    public Producto getProducto() {
+        return producto;
+    }
+
+    /**
+     * Copia del producto antes del cambio (null si es un producto nuevo).
+     */
+    public Producto getAnterior() {
+        return anterior;
+    }
+}
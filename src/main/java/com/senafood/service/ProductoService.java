@@ -1,9 +1,16 @@
 package com.senafood.service;
 
+import com.senafood.model.ConteoFacetas;
+import com.senafood.model.FiltroCatalogo;
+import com.senafood.model.LineaEscaneo;
+import com.senafood.model.PaginaKeyset;
 import com.senafood.model.Producto;
+import com.senafood.model.ProductoEstadisticas;
+import com.senafood.model.ProductoResumen;
 import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public interface ProductoService {
@@ -17,18 +24,33 @@ public interface ProductoService {
     
     // Métodos de búsqueda
     List<Producto> searchByNombre(String nombre);
+    List<ProductoResumen> buscar(String texto, int limite);
+    List<ProductoResumen> buscarAproximado(String texto, int limite);
+    List<String> autocompletar(String prefijo, int limite);
     List<Producto> findByCategoria(String categoria);
     Optional<Producto> findByCodigoBarras(String codigoBarras);
+    List<LineaEscaneo> escanear(List<String> codigosBarras);
+    
+    // Listado paginado por clave (keyset) y contadores agregados
+    PaginaKeyset<ProductoResumen> findPagina(Long despuesDe, Long antesDe, int tamano);
+    ProductoEstadisticas obtenerEstadisticas();
     
     // Métodos especiales
+    PaginaKeyset<ProductoResumen> findCatalogo(FiltroCatalogo filtro, Long despuesDe, Long antesDe, int tamano);
+    ConteoFacetas contarFacetas(FiltroCatalogo filtro);
     List<Producto> findProductosConStockBajo(Integer stockMinimo);
     List<Producto> findProductosProximosAVencer();
+    List<ProductoResumen> findResumenProximosAVencer(int dias);
+    List<Producto> findProductosVencidos();
     
-    // Métodos para manejo de imágenes
+    // Métodos para manejo de imágenes (saveImage recibe la subida; se procesa tras guardar el producto)
     String saveImage(MultipartFile imagenFile) throws IOException;
     void deleteImage(String imagenName) throws IOException;
+    void asignarImagen(Long id, String imagen);
+    void marcarErrorImagen(Long id);
     
     // Métodos utilitarios
     boolean existsByCodigoBarras(String codigoBarras);
     List<String> findAllCategorias();
+    Map<String, Long> contarPorCategoria();
 }
\ No newline at end of file
@@ -1,53 +1,81 @@
 package com.senafood.service;
 
+import com.senafood.model.ConteoFacetas;
+import com.senafood.model.FiltroCatalogo;
+import com.senafood.model.LineaEscaneo;
+import com.senafood.model.PaginaKeyset;
 import com.senafood.model.Producto;
+import com.senafood.model.ProductoEstadisticas;
+import com.senafood.model.ProductoResumen;
 import com.senafood.repository.ProductoRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.UUID;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class ProductoServiceImpl implements ProductoService {
     
     private final ProductoRepository productoRepository;
+    private final CatalogoCache catalogoCache;
+    private final CategoriaIndex categoriaIndex;
+    private final BusquedaIndex busquedaIndex;
+    private final AutocompletadoIndex autocompletadoIndex;
+    private final FacetasIndex facetasIndex;
+    private final CodigoBarrasIndex codigoBarrasIndex;
+    private final VencimientosIndex vencimientosIndex;
+    private final LoteService loteService;
+    private final InventoryService inventoryService;
+    private final UbicacionService ubicacionService;
+    private final ImagenProductoService imagenProductoService;
+    private final ApplicationEventPublisher eventPublisher;
     
-    // DIRECTORIO ACTUALIZADO: Cambiado a la ruta solicitada: static/img/productos/
-    private static final String UPLOAD_DIR = "src/main/resources/static/img/productos/";
+    // Umbral usado por el listado para contar productos con stock bajo
+    private static final int STOCK_BAJO = 10;
     
-    public ProductoServiceImpl(ProductoRepository productoRepository) {
+    public ProductoServiceImpl(ProductoRepository productoRepository,
+                               CatalogoCache catalogoCache,
+                               CategoriaIndex categoriaIndex,
+                               BusquedaIndex busquedaIndex,
+                               AutocompletadoIndex autocompletadoIndex,
+                               FacetasIndex facetasIndex,
+                               CodigoBarrasIndex codigoBarrasIndex,
+                               VencimientosIndex vencimientosIndex,
+                               LoteService loteService,
+                               InventoryService inventoryService,
+                               UbicacionService ubicacionService,
+                               ImagenProductoService imagenProductoService,
+                               ApplicationEventPublisher eventPublisher) {
         this.productoRepository = productoRepository;
-        createUploadDirectory();
+        this.catalogoCache = catalogoCache;
+        this.categoriaIndex = categoriaIndex;
+        this.busquedaIndex = busquedaIndex;
+        this.autocompletadoIndex = autocompletadoIndex;
+        this.facetasIndex = facetasIndex;
+        this.codigoBarrasIndex = codigoBarrasIndex;
+        this.vencimientosIndex = vencimientosIndex;
+        this.loteService = loteService;
+        this.inventoryService = inventoryService;
+        this.ubicacionService = ubicacionService;
+        this.imagenProductoService = imagenProductoService;
+        this.eventPublisher = eventPublisher;
         System.out.println("✅ ProductoServiceImpl inicializado");
     }
     
-    /**
-     * Crea el directorio de uploads si no existe
-     */
-    private void createUploadDirectory() {
-        try {
-            Path uploadPath = Paths.get(UPLOAD_DIR);
-            if (!Files.exists(uploadPath)) {
-                Files.createDirectories(uploadPath);
-                System.out.println("✅ Directorio de imágenes creado: " + uploadPath.toAbsolutePath());
-            }
-        } catch (IOException e) {
-            System.err.println("❌ Error creando directorio: " + e.getMessage());
-        }
-    }
-    
     @Override
     public List<Producto> findAll() {
         System.out.println("🔍 Buscando todos los productos...");
@@ -61,6 +89,47 @@ public class ProductoServiceImpl implements ProductoService {
         return productos;
     }
     
+    @Override
+    @Transactional(readOnly = true)
+    public PaginaKeyset<ProductoResumen> findPagina(Long despuesDe, Long antesDe, int tamano) {
+        // Se pide una fila extra para saber si existe otra página
+        PageRequest limite = PageRequest.ofSize(tamano + 1);
+        
+        if (antesDe != null) {
+            List<ProductoResumen> filas = productoRepository.findResumenAntesDe(antesDe, limite);
+            return PaginaKeyset.atras(filas, tamano, ProductoResumen::getIdProducto);
+        }
+        
+        List<ProductoResumen> filas = productoRepository.findResumenDespuesDe(
+            despuesDe != null ? despuesDe : 0L, limite);
+        return PaginaKeyset.adelante(filas, tamano, despuesDe == null, ProductoResumen::getIdProducto);
+    }
+    
+    @Override
+    @Transactional(readOnly = true)
+    public ProductoEstadisticas obtenerEstadisticas() {
+        return productoRepository.obtenerEstadisticas(STOCK_BAJO);
+    }
+    
+    /**
+     * Catálogo público servido desde memoria (sin consultar la BD): la instantánea
+     * del catálogo si no hay filtros, o el índice de facetas si los hay.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public PaginaKeyset<ProductoResumen> findCatalogo(FiltroCatalogo filtro, Long despuesDe, Long antesDe, int tamano) {
+        if (filtro == null || filtro.isVacio()) {
+            return catalogoCache.getPagina(despuesDe, antesDe, tamano);
+        }
+        return facetasIndex.buscar(filtro, despuesDe, antesDe, tamano);
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public ConteoFacetas contarFacetas(FiltroCatalogo filtro) {
+        return facetasIndex.contar(filtro);
+    }
+    
     @Override
     public Optional<Producto> findById(Long id) {
         System.out.println("🔍 Buscando producto con ID: " + id);
@@ -71,12 +140,11 @@ public class ProductoServiceImpl implements ProductoService {
     public Producto save(Producto producto) {
         System.out.println("💾 Guardando nuevo producto: " + producto.getNombre());
         
-        // Validar que el código de barras no exista (si se proporciona)
-        if (producto.getCodigoBarras() != null && !producto.getCodigoBarras().isEmpty()) {
-            Optional<Producto> existente = productoRepository.findByCodigoBarras(producto.getCodigoBarras());
-            if (existente.isPresent()) {
-                throw new RuntimeException("Ya existe un producto con el código de barras: " + producto.getCodigoBarras());
-            }
+        // Validar que el código de barras no exista (si se proporciona).
+        // El índice único uk_producto_codigo_barras cubre las carreras entre escrituras.
+        producto.setCodigoBarras(normalizarCodigoBarras(producto.getCodigoBarras()));
+        if (producto.getCodigoBarras() != null && codigoBarrasIndex.existe(producto.getCodigoBarras())) {
+            throw new RuntimeException("Ya existe un producto con el código de barras: " + producto.getCodigoBarras());
         }
         
         // Establecer valores por defecto
@@ -84,14 +152,28 @@ public class ProductoServiceImpl implements ProductoService {
             producto.setEstado("activo");
         }
         if (producto.getIdInventario() == null) {
-            producto.setIdInventario(1); // Valor por defecto para cumplir con la BD
+            producto.setIdInventario(ubicacionService.getPrincipal());
         }
         if (producto.getCreateAt() == null) {
             producto.setCreateAt(new Date());
         }
         producto.setUpdateAt(new Date());
         
+        // La imagen recibida se procesa en segundo plano después del commit
+        if (producto.getImagenSubida() != null) {
+            producto.setEstadoImagen(Producto.IMAGEN_PENDIENTE);
+        }
+        
         Producto saved = productoRepository.save(producto);
+        // El stock inicial queda como primer lote, con la fecha de vencimiento del producto
+        if (saved.getStock() != null && saved.getStock() > 0) {
+            loteService.agregarLote(saved, saved.getStock(), saved.getFechaVencimiento());
+        }
+        inventoryService.crearRegistroInicial(saved);
+        eventPublisher.publishEvent(ProductoCambiadoEvent.guardado(saved, null));
+        if (producto.getImagenSubida() != null) {
+            eventPublisher.publishEvent(new ImagenSubidaEvent(saved.getIdProducto(), producto.getImagenSubida()));
+        }
         System.out.println("✅ Producto guardado con ID: " + saved.getIdProducto());
         return saved;
     }
@@ -103,31 +185,66 @@ public class ProductoServiceImpl implements ProductoService {
         return productoRepository.findById(id)
             .map(productoExistente -> {
                 System.out.println("📝 Producto encontrado: " + productoExistente.getNombre());
+                Producto anterior = productoExistente.copiar();
+                // Diferencia respecto del stock que mostraba el formulario: las ventas y
+                // reservas hechas mientras se editaba no se sobrescriben
+                int stockBase = productoData.getStockAnterior() != null
+                    ? productoData.getStockAnterior() : valorStock(productoExistente.getStock());
+                int diferenciaStock = valorStock(productoData.getStock()) - stockBase;
                 
                 // Actualizar solo los campos que pueden cambiar
                 productoExistente.setNombre(productoData.getNombre());
                 productoExistente.setDescripcion(productoData.getDescripcion());
                 productoExistente.setCostoUnitario(productoData.getCostoUnitario());
-                productoExistente.setStock(productoData.getStock());
-                productoExistente.setFechaVencimiento(productoData.getFechaVencimiento());
                 productoExistente.setCategoria(productoData.getCategoria());
                 productoExistente.setEstado(productoData.getEstado());
                 productoExistente.setUpdateAt(new Date());
                 
-                // Actualizar código de barras solo si es diferente y no existe otro producto con él
-                if (productoData.getCodigoBarras() != null && 
-                    !productoData.getCodigoBarras().equals(productoExistente.getCodigoBarras())) {
-                    productoExistente.setCodigoBarras(productoData.getCodigoBarras());
-                }
+                // Código de barras vacío se guarda como null para no chocar con el índice único
+                productoExistente.setCodigoBarras(normalizarCodigoBarras(productoData.getCodigoBarras()));
                 
-                // Actualizar imagen solo si se proporciona una nueva
-                if (productoData.getImagen() != null && !productoData.getImagen().isEmpty()) {
+                // Con una imagen nueva se conserva la actual hasta que la nueva esté lista;
+                // si no, se guarda la indicada (null = imagen eliminada)
+                if (productoData.getImagenSubida() != null) {
+                    productoExistente.setEstadoImagen(Producto.IMAGEN_PENDIENTE);
+                } else if (productoData.getImagen() == null || productoData.getImagen().isEmpty()) {
+                    productoExistente.setImagen(null);
+                    productoExistente.setEstadoImagen(null);
+                } else {
                     productoExistente.setImagen(productoData.getImagen());
                 }
                 
-                Producto updated = productoRepository.save(productoExistente);
-                System.out.println("✅ Producto actualizado: " + updated.getNombre());
-                return updated;
+                // Con el flush la fila queda bloqueada hasta el commit: la versión del
+                // evento sigue el orden de los commits (ver ProductoCambiadoEvent)
+                Producto updated = productoRepository.saveAndFlush(productoExistente);
+                
+                // El cambio de stock se aplica con UPDATE atómicos (InventoryService): lo
+                // agregado entra como lote nuevo con la fecha indicada y lo retirado sale
+                // en orden FEFO. La fecha del producto queda como el vencimiento más
+                // próximo de sus lotes.
+                if (diferenciaStock != 0) {
+                    inventoryService.ajustarStock(id, productoExistente.getIdInventario(),
+                        diferenciaStock, productoData.getFechaVencimiento());
+                }
+                Date proximoVencimiento = loteService.proximoVencimiento(id);
+                if (proximoVencimiento != null && !proximoVencimiento.equals(updated.getFechaVencimiento())) {
+                    productoRepository.actualizarVencimiento(id, proximoVencimiento);
+                }
+                
+                // Stock y vencimiento no los escribe este guardado (van por UPDATE directos
+                // y la entidad cargada no se refresca): se publican los de la base, con
+                // la fila ya bloqueada
+                Producto publicado = updated.copiar();
+                publicado.setStock(productoRepository.findStockById(id));
+                if (proximoVencimiento != null) {
+                    publicado.setFechaVencimiento(proximoVencimiento);
+                }
+                eventPublisher.publishEvent(ProductoCambiadoEvent.guardado(publicado, anterior));
+                if (productoData.getImagenSubida() != null) {
+                    eventPublisher.publishEvent(new ImagenSubidaEvent(id, productoData.getImagenSubida()));
+                }
+                System.out.println("✅ Producto actualizado: " + publicado.getNombre());
+                return publicado;
             })
             .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
     }
@@ -141,17 +258,14 @@ public class ProductoServiceImpl implements ProductoService {
         
         System.out.println("Producto a eliminar: " + producto.getNombre());
         
-        // Eliminar la imagen asociada si existe
-        if (producto.getImagen() != null && !producto.getImagen().isEmpty()) {
-            try {
-                deleteImage(producto.getImagen());
-                System.out.println("🗑️ Imagen eliminada: " + producto.getImagen());
-            } catch (IOException e) {
-                System.err.println("⚠️ Error eliminando imagen: " + e.getMessage());
-            }
-        }
-        
+        // La imagen se libera tras confirmar la eliminación (ImagenProductoService),
+        // solo si ningún otro producto la usa
+        loteService.eliminarLotes(id);
+        inventoryService.eliminarRegistros(id);
         productoRepository.delete(producto);
+        // El evento se crea con la fila ya borrada (ver ProductoCambiadoEvent)
+        productoRepository.flush();
+        eventPublisher.publishEvent(ProductoCambiadoEvent.eliminado(producto));
         System.out.println("✅ Producto eliminado ID: " + id);
     }
     
@@ -161,6 +275,36 @@ public class ProductoServiceImpl implements ProductoService {
         return productoRepository.findByNombreContainingIgnoreCase(nombre);
     }
     
+    /**
+     * Búsqueda por nombre, descripción y categoría resuelta en el índice invertido
+     * en memoria, ordenada por relevancia.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ProductoResumen> buscar(String texto, int limite) {
+        System.out.println("🔍 Buscando en el índice: " + texto);
+        return busquedaIndex.buscar(texto, limite);
+    }
+    
+    /**
+     * Búsqueda tolerante a tildes y errores de tipeo ("platano", "arequpie").
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ProductoResumen> buscarAproximado(String texto, int limite) {
+        System.out.println("🔍 Búsqueda aproximada en el índice: " + texto);
+        return busquedaIndex.buscarTolerante(texto, limite);
+    }
+    
+    /**
+     * Nombres de productos para el autocompletado, resueltos en memoria.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<String> autocompletar(String prefijo, int limite) {
+        return autocompletadoIndex.sugerir(prefijo, limite);
+    }
+    
     @Override
     public List<Producto> findByCategoria(String categoria) {
         System.out.println("🔍 Buscando productos por categoría: " + categoria);
@@ -170,7 +314,33 @@ public class ProductoServiceImpl implements ProductoService {
     @Override
     public Optional<Producto> findByCodigoBarras(String codigoBarras) {
         System.out.println("🔍 Buscando producto por código de barras: " + codigoBarras);
-        return productoRepository.findByCodigoBarras(codigoBarras);
+        // El índice en memoria resuelve el id; la entidad se carga por clave primaria
+        ProductoResumen resumen = codigoBarrasIndex.buscar(codigoBarras);
+        return resumen != null ? productoRepository.findById(resumen.getIdProducto()) : Optional.empty();
+    }
+    
+    /**
+     * Resuelve una canasta escaneada completa en una sola llamada, sin consultas
+     * a la base de datos. Los códigos repetidos se agrupan en una línea con su
+     * cantidad, respetando el orden del primer escaneo.
+     */
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<LineaEscaneo> escanear(List<String> codigosBarras) {
+        Map<String, Integer> cantidades = new LinkedHashMap<>();
+        for (String codigo : codigosBarras) {
+            String normalizado = normalizarCodigoBarras(codigo);
+            if (normalizado != null) {
+                cantidades.merge(normalizado, 1, Integer::sum);
+            }
+        }
+        
+        List<LineaEscaneo> lineas = new ArrayList<>(cantidades.size());
+        for (Map.Entry<String, Integer> entrada : cantidades.entrySet()) {
+            lineas.add(new LineaEscaneo(entrada.getKey(), entrada.getValue(),
+                codigoBarrasIndex.buscar(entrada.getKey())));
+        }
+        return lineas;
     }
     
     @Override
@@ -179,10 +349,23 @@ public class ProductoServiceImpl implements ProductoService {
         return productoRepository.findByStockLessThan(stockMinimo);
     }
     
+    /**
+     * Productos que vencen en los próximos días de aviso, incluidos los ya
+     * vencidos. Los ids salen del índice de vencimientos; solo se cargan las
+     * entidades de esos productos, ordenadas por fecha de vencimiento.
+     */
     @Override
+    @Transactional(readOnly = true)
     public List<Producto> findProductosProximosAVencer() {
         System.out.println("🔍 Buscando productos próximos a vencer");
-        return productoRepository.findProductosProximosAVencer();
+        return cargarEnOrden(vencimientosIndex.vencenHasta(
+            LocalDate.now().plusDays(vencimientosIndex.getDiasAviso())));
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public List<ProductoResumen> findResumenProximosAVencer(int dias) {
+        return vencimientosIndex.proximosAVencer(dias);
     }
     
     @Override
@@ -194,59 +377,69 @@ public class ProductoServiceImpl implements ProductoService {
         
         System.out.println("📸 Guardando imagen: " + imagenFile.getOriginalFilename());
         
-        // Generar un nombre único para la imagen
-        String originalFileName = imagenFile.getOriginalFilename();
-        String fileExtension = "";
-        
-        if (originalFileName != null && originalFileName.contains(".")) {
-            fileExtension = originalFileName.substring(originalFileName.lastIndexOf("."));
-        }
-        
-        String fileName = UUID.randomUUID().toString() + fileExtension;
-        
-        // Ruta completa del archivo
-        Path filePath = Paths.get(UPLOAD_DIR + fileName);
-        
-        // Guardar la imagen
-        Files.copy(imagenFile.getInputStream(), filePath);
-        
-        System.out.println("✅ Imagen guardada: " + fileName + " en " + filePath);
-        
-        // Retornar solo el nombre del archivo (sin la ruta completa)
-        return fileName;
+        // Solo se deja la subida en el almacén; las variantes se generan en segundo
+        // plano cuando se confirma el producto (ver ProcesadorImagenes)
+        return imagenProductoService.recibir(imagenFile);
     }
     
     @Override
     public void deleteImage(String imagenName) throws IOException {
-        if (imagenName != null && !imagenName.isEmpty()) {
-            Path filePath = Paths.get(UPLOAD_DIR + imagenName);
-            if (Files.exists(filePath)) {
-                Files.delete(filePath);
-                System.out.println("🗑️ Imagen eliminada: " + imagenName);
-            } else {
-                System.out.println("⚠️ Imagen no encontrada para eliminar: " + imagenName);
-            }
+        // Solo borra el archivo si ya ningún producto lo referencia
+        imagenProductoService.liberar(imagenName);
+    }
+    
+    @Override
+    public void asignarImagen(Long id, String imagen) {
+        Producto producto = productoRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Producto no encontrado con ID: " + id));
+        Producto anterior = producto.copiar();
+        
+        // UPDATE dirigido: corre en los hilos de imágenes y no debe pisar el stock
+        // ni los demás campos que cambien mientras se procesaba
+        if (productoRepository.actualizarImagen(id, imagen, Producto.IMAGEN_LISTA) == 0) {
+            // Eliminado mientras se procesaba la imagen
+            return;
         }
+        // Se relee con la fila ya bloqueada: el stock pudo cambiar mientras se procesaba
+        productoRepository.findById(id).ifPresent(actual ->
+            eventPublisher.publishEvent(ProductoCambiadoEvent.guardado(actual, anterior)));
+    }
+    
+    @Override
+    public void marcarErrorImagen(Long id) {
+        productoRepository.actualizarEstadoImagen(id, Producto.IMAGEN_ERROR);
     }
     
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public boolean existsByCodigoBarras(String codigoBarras) {
-        return productoRepository.findByCodigoBarras(codigoBarras).isPresent();
+        return codigoBarrasIndex.existe(codigoBarras);
     }
     
+    private static String normalizarCodigoBarras(String codigoBarras) {
+        if (codigoBarras == null || codigoBarras.isBlank()) {
+            return null;
+        }
+        return codigoBarras.trim();
+    }
+    
+    /**
+     * Categorías servidas desde el índice en memoria (se mantiene con cada escritura).
+     */
     @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
     public List<String> findAllCategorias() {
-        System.out.println("🔍 Obteniendo todas las categorías...");
-        List<String> categorias = productoRepository.findAll()
-            .stream()
-            .map(Producto::getCategoria)
-            .filter(categoria -> categoria != null && !categoria.isEmpty())
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
-        
-        System.out.println("📊 Categorías encontradas: " + categorias);
-        return categorias;
+        return categoriaIndex.getCategorias();
+    }
+    
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS)
+    public Map<String, Long> contarPorCategoria() {
+        return categoriaIndex.getConteos();
+    }
+    
+    private static int valorStock(Integer stock) {
+        return stock != null ? stock : 0;
     }
     
     // Método utilitario que podría usarse en el futuro
@@ -257,10 +450,34 @@ public class ProductoServiceImpl implements ProductoService {
             .toLocalDate();
     }
     
-    // Nuevo método: Buscar productos vencidos
+    // Nuevo método: Buscar productos vencidos (ids desde el índice de vencimientos)
+    @Override
+    @Transactional(readOnly = true)
     public List<Producto> findProductosVencidos() {
         System.out.println("🔍 Buscando productos vencidos");
-        return productoRepository.findProductosVencidos();
+        return cargarEnOrden(vencimientosIndex.vencidos());
+    }
+    
+    /**
+     * Carga las entidades de los resúmenes conservando el orden del índice.
+     */
+    private List<Producto> cargarEnOrden(List<ProductoResumen> resumenes) {
+        List<Long> ids = new ArrayList<>(resumenes.size());
+        for (ProductoResumen resumen : resumenes) {
+            ids.add(resumen.getIdProducto());
+        }
+        Map<Long, Producto> porId = new HashMap<>();
+        for (Producto producto : productoRepository.findAllById(ids)) {
+            porId.put(producto.getIdProducto(), producto);
+        }
+        List<Producto> productos = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Producto producto = porId.get(id);
+            if (producto != null) {
+                productos.add(producto);
+            }
+        }
+        return productos;
     }
     
     // Nuevo método: Verificar si hay datos en la base de datos
@@ -0,0 +1,39 @@
+package com.senafood.service;
+
+import com.senafood.model.ProductoResumen;
+
+import java.time.LocalDate;
+
+/**
+ * Evento publicado por VencimientosIndex cuando un producto cruza un umbral de
+ * vencimiento: entra en la ventana de aviso o queda vencido.
+ */
+public class ProductoVencimientoEvent {
+
+    public enum Tipo {
+        POR_VENCER,
+        VENCIDO
+    }
+
+    private final Tipo tipo;
+    private final ProductoResumen producto;
+    private final LocalDate fechaVencimiento;
+
+    public ProductoVencimientoEvent(Tipo tipo, ProductoResumen producto, LocalDate fechaVencimiento) {
+        this.tipo = tipo;
+        this.producto = producto;
+        this.fechaVencimiento = fechaVencimiento;
+    }
+
+    public Tipo getTipo() {
+        return tipo;
+    }
+
+    public ProductoResumen getProducto() {
+        return producto;
+    }
+
+    public LocalDate getFechaVencimiento() {
+        return fechaVencimiento;
+    }
+}
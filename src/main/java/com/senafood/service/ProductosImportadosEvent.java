@@ -0,0 +1,26 @@
+package com.senafood.service;
+
+/**
+ * Evento publicado al terminar una importación masiva de productos. Las filas
+ * se insertan por JDBC sin pasar por ProductoServiceImpl, así que los índices en
+ * memoria cargan los productos nuevos a partir de "despuesDe" (el mayor
+ * id_producto que existía antes de importar).
+ */
+public class ProductosImportadosEvent {
+
+    private final long despuesDe;
+    private final int insertados;
+
+    public ProductosImportadosEvent(long despuesDe, int insertados) {
+        this.despuesDe = despuesDe;
+        this.insertados = insertados;
+    }
+
+    public long getDespuesDe() {
+        return despuesDe;
+    }
+
+    public int getInsertados() {
+        return insertados;
+    }
+}
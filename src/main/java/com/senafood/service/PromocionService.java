@@ -1,12 +1,23 @@
 package com.senafood.service;
 
+import com.senafood.model.OpcionProducto;
+import com.senafood.model.ProductoResumen;
 import com.senafood.model.Promocion;
-import com.senafood.model.Producto; 
+import com.senafood.model.VigenciaPromocion;
 import com.senafood.repository.PromocionRepository;
 import com.senafood.repository.ProductoRepository; 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,17 +30,55 @@ public class PromocionService {
     @Autowired
     private ProductoRepository productoRepository; // Necesario para el formulario
 
-    public List<Promocion> listarTodas() {
-        return promocionRepository.findAll();
+    @Autowired
+    private ProductoService productoService; // Búsqueda de productos en memoria
+
+    @Autowired
+    private PrecioService precioService; // Índice de precios en memoria
+
+    // Página de promociones con su producto cargado en la misma consulta
+    public Page<Promocion> listarTodas(Pageable pagina) {
+        return promocionRepository.findTodas(pagina);
     }
 
-    public Promocion guardar(Promocion promocion) {
+    // Promociones activas y programadas (sin las finalizadas)
+    public Page<Promocion> listarNoFinalizadas(Pageable pagina) {
+        return promocionRepository.findNoFinalizadas(pagina);
+    }
+
+    // Activas hoy, leídas del conjunto materializado en memoria
+    public List<VigenciaPromocion> listarActivas() {
+        return precioService.getActivas();
+    }
+
+    // Sincronizado: la verificación de superposición y el guardado no se intercalan
+    public synchronized Promocion guardar(Promocion promocion) {
+        VigenciaPromocion superpuesta = buscarSuperpuesta(promocion);
+        if (superpuesta != null) {
+            throw new RuntimeException("Se superpone con la promoción " + superpuesta.getIdPromocion()
+                + " del mismo producto");
+        }
         // Establecer fechas de auditoría
         if (promocion.getIdPromocion() == null) {
             promocion.setCreateAt(LocalDateTime.now());
         }
         promocion.setUpdateAt(LocalDateTime.now());
-        return promocionRepository.save(promocion);
+        promocion.setEstado(promocion.estadoPara(LocalDate.now()));
+        Promocion guardada = promocionRepository.save(promocion);
+        precioService.actualizar(guardada);
+        return guardada;
+    }
+
+    /**
+     * Otra promoción del mismo producto cuyas fechas se cruzan con las de esta,
+     * resuelta con el índice de intervalos en memoria (sin recorrer la tabla).
+     */
+    public VigenciaPromocion buscarSuperpuesta(Promocion promocion) {
+        if (promocion.getProducto() == null || promocion.getProducto().getIdProducto() == null) {
+            return null;
+        }
+        return precioService.buscarSuperpuesta(promocion.getProducto().getIdProducto(),
+            promocion.getFechaInicio(), promocion.getFechaFin(), promocion.getIdPromocion());
     }
 
     public Optional<Promocion> buscarPorId(Integer id) {
@@ -38,10 +87,44 @@ public class PromocionService {
 
     public void eliminar(Integer id) {
         promocionRepository.deleteById(id);
+        precioService.quitar(id);
+    }
+
+    /**
+     * Activa y finaliza las promociones que cruzaron un límite de fechas. Las
+     * fechas son por día, así que los límites caen a medianoche: corre a esa
+     * hora y al arrancar, para ponerse al día si la aplicación estuvo detenida.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${senafood.promociones.revision-cron:0 0 0 * * *}")
+    @Transactional
+    public void revisarEstados() {
+        LocalDate hoy = LocalDate.now();
+        promocionRepository.finalizarVencidas(hoy);
+        promocionRepository.activarVigentes(hoy);
+        promocionRepository.programarFuturas(hoy);
+        precioService.recalcularActivas(hoy);
     }
     
-    // Método para obtener la lista de productos (para el select del formulario)
-    public List<Producto> listarTodosLosProductos() {
-        return productoRepository.findAll();
+    /**
+     * Opciones iniciales del selector de productos: los primeros por nombre
+     * (solo id y nombre) más el seleccionado, si no está entre ellos. El resto
+     * se encuentra con buscarProductos.
+     */
+    public List<OpcionProducto> opcionesProducto(Long seleccionado, int limite) {
+        List<OpcionProducto> opciones = new ArrayList<>(productoRepository.findOpciones(PageRequest.ofSize(limite)));
+        if (seleccionado != null && opciones.stream().noneMatch(o -> o.getIdProducto().equals(seleccionado))) {
+            productoRepository.findOpcion(seleccionado).ifPresent(opcion -> opciones.add(0, opcion));
+        }
+        return opciones;
+    }
+
+    // Búsqueda del selector, resuelta con el índice de búsqueda en memoria
+    public List<OpcionProducto> buscarProductos(String texto, int limite) {
+        List<OpcionProducto> opciones = new ArrayList<>();
+        for (ProductoResumen producto : productoService.buscar(texto, limite)) {
+            opciones.add(new OpcionProducto(producto.getIdProducto(), producto.getNombre()));
+        }
+        return opciones;
     }
-}
\ No newline at end of file
+}
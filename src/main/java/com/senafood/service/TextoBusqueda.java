@@ -0,0 +1,132 @@
+package com.senafood.service;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Utilidades de texto compartidas por los índices de búsqueda de productos.
+ */
+final class TextoBusqueda {
+
+    private static final Pattern SEPARADORES = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+
+    private TextoBusqueda() {
+    }
+
+    /**
+     * Normaliza un texto para indexarlo o consultarlo: minúsculas y sin tildes
+     * ni diéresis ("Plátano" y "platano" quedan iguales).
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String descompuesto = Normalizer.normalize(texto, Normalizer.Form.NFD);
+        return MARCAS_DIACRITICAS.matcher(descompuesto).replaceAll("").toLowerCase(Locale.ROOT).trim();
+    }
+
+    /**
+     * Divide el texto normalizado en palabras, sin repetidos y en orden de aparición.
+     */
+    static List<String> tokenizar(String texto) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : SEPARADORES.split(normalizar(texto))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Número de errores tolerados según el largo de la palabra: las palabras
+     * cortas deben escribirse bien, las largas admiten hasta dos errores.
+     */
+    static int erroresPermitidos(String palabra) {
+        if (palabra.length() <= 3) {
+            return 0;
+        }
+        return palabra.length() <= 6 ? 1 : 2;
+    }
+
+    /**
+     * Variantes de la palabra con hasta "maximo" letras borradas (diccionario
+     * de borrados). Dos palabras a distancia d comparten alguna variante con
+     * a lo sumo d borrados en cada una.
+     */
+    static Set<String> borrados(String palabra, int maximo) {
+        Set<String> variantes = new LinkedHashSet<>();
+        variantes.add(palabra);
+        Set<String> nivel = Set.of(palabra);
+        for (int d = 0; d < maximo; d++) {
+            Set<String> siguiente = new LinkedHashSet<>();
+            for (String variante : nivel) {
+                if (variante.length() <= 1) {
+                    continue;
+                }
+                for (int i = 0; i < variante.length(); i++) {
+                    String borrada = variante.substring(0, i) + variante.substring(i + 1);
+                    if (variantes.add(borrada)) {
+                        siguiente.add(borrada);
+                    }
+                }
+            }
+            nivel = siguiente;
+        }
+        return variantes;
+    }
+
+    /**
+     * Distancia de edición (inserción, borrado, sustitución y transposición de
+     * letras vecinas). Devuelve maximo + 1 en cuanto se sabe que la supera.
+     */
+    static int distancia(String a, String b, int maximo) {
+        if (Math.abs(a.length() - b.length()) > maximo) {
+            return maximo + 1;
+        }
+        int[] antepenultima = new int[b.length() + 1];
+        int[] anterior = new int[b.length() + 1];
+        int[] actual = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            anterior[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            actual[0] = i;
+            int minimoFila = actual[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int costo = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int valor = Math.min(Math.min(anterior[j] + 1, actual[j - 1] + 1), anterior[j - 1] + costo);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    valor = Math.min(valor, antepenultima[j - 2] + 1);
+                }
+                actual[j] = valor;
+                minimoFila = Math.min(minimoFila, valor);
+            }
+            if (minimoFila > maximo) {
+                return maximo + 1;
+            }
+            int[] temporal = antepenultima;
+            antepenultima = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return Math.min(anterior[b.length()], maximo + 1);
+    }
+
+    /**
+     * Trigramas de una palabra, usados para resolver búsquedas por subcadena.
+     */
+    static Set<String> trigramas(String token) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        for (int i = 0; i + 3 <= token.length(); i++) {
+            trigramas.add(token.substring(i, i + 3));
+        }
+        return trigramas;
+    }
+}
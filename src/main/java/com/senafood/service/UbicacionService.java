@@ -0,0 +1,75 @@
+package com.senafood.service;
+
+import com.senafood.model.Ubicacion;
+import com.senafood.repository.UbicacionRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Ubicaciones de inventario (cafeterías y bodegas). Son pocas y casi no
+ * cambian: la lista se guarda en memoria y se recarga al guardar una.
+ */
+@Service
+public class UbicacionService {
+
+    private final UbicacionRepository ubicacionRepository;
+    private final Integer principal;
+
+    private volatile List<Ubicacion> ubicaciones = List.of();
+
+    public UbicacionService(UbicacionRepository ubicacionRepository,
+                            @Value("${senafood.inventario.ubicacion-principal:1}") Integer principal) {
+        this.ubicacionRepository = ubicacionRepository;
+        this.principal = principal;
+    }
+
+    /**
+     * Crea la ubicación principal si la tabla está vacía (instalaciones
+     * anteriores al inventario por ubicación).
+     */
+    @PostConstruct
+    public void inicializar() {
+        if (ubicacionRepository.count() == 0) {
+            ubicacionRepository.save(new Ubicacion("Principal", Ubicacion.CAFETERIA));
+            System.out.println("📍 Ubicación principal creada");
+        }
+        recargar();
+    }
+
+    /**
+     * Ubicación donde entra el stock cuando no se indica otra.
+     */
+    public Integer getPrincipal() {
+        return principal;
+    }
+
+    public List<Ubicacion> listarTodas() {
+        return ubicaciones;
+    }
+
+    public List<Ubicacion> listarActivas() {
+        return ubicaciones.stream().filter(u -> "activo".equals(u.getEstado())).toList();
+    }
+
+    public Optional<Ubicacion> buscarPorId(Integer idUbicacion) {
+        return ubicaciones.stream().filter(u -> u.getIdUbicacion().equals(idUbicacion)).findFirst();
+    }
+
+    public String nombre(Integer idUbicacion) {
+        return buscarPorId(idUbicacion).map(Ubicacion::getNombre).orElse("Ubicación " + idUbicacion);
+    }
+
+    public Ubicacion guardar(Ubicacion ubicacion) {
+        Ubicacion guardada = ubicacionRepository.save(ubicacion);
+        recargar();
+        return guardada;
+    }
+
+    private void recargar() {
+        this.ubicaciones = List.copyOf(ubicacionRepository.findAllByOrderByNombreAsc());
+    }
+}
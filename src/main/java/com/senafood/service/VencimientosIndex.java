@@ -0,0 +1,240 @@
+package com.senafood.service;
+
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Índice en memoria de fechas de vencimiento, agrupado por día.
+ *
+ * Cada día con vencimientos es una cubeta (mapa ordenado por fecha) con los
+ * productos que vencen ese día, así que "vencen en los próximos N días" y
+ * "ya vencidos" son recorridos de un subrango, sin calcular DATE_ADD en la
+ * base de datos en cada consulta. Una tarea diaria avanza el día actual y
+ * publica un ProductoVencimientoEvent por cada producto que entra en la
+ * ventana de aviso o queda vencido; los cambios de producto que lo mueven a
+ * uno de esos umbrales también lo publican.
+ */
+@Component
+public class VencimientosIndex {
+
+    private static final int LOTE_CARGA = 1000;
+
+    private final ProductoRepository productoRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int diasAviso;
+
+    // Día -> productos que vencen ese día (ordenados por id)
+    private final ConcurrentSkipListMap<LocalDate, ConcurrentSkipListMap<Long, ProductoResumen>> porDia =
+        new ConcurrentSkipListMap<>();
+    // Id -> día en que está registrado, para moverlo o retirarlo en los cambios
+    private final Map<Long, LocalDate> diaPorId = new ConcurrentHashMap<>();
+
+    private final VersionesProducto versiones = new VersionesProducto();
+
+    // Último día para el que ya se publicaron los cruces de umbral
+    private LocalDate ultimoDiaRevisado;
+
+    public VencimientosIndex(ProductoRepository productoRepository,
+                             ApplicationEventPublisher eventPublisher,
+                             @Value("${senafood.vencimientos.dias-aviso:30}") int diasAviso) {
+        this.productoRepository = productoRepository;
+        this.eventPublisher = eventPublisher;
+        this.diasAviso = diasAviso;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargar() {
+        synchronized (this) {
+            // Lo que ya estaba vencido o por vencer al arrancar no se anuncia de nuevo
+            ultimoDiaRevisado = hoy();
+        }
+        cargarDesde(0L);
+        System.out.println("⏳ Índice de vencimientos cargado: " + diaPorId.size() + " productos en "
+            + porDia.size() + " días");
+    }
+
+    @EventListener
+    public void onProductosImportados(ProductosImportadosEvent event) {
+        cargarDesde(event.getDespuesDe());
+    }
+
+    private synchronized void cargarDesde(long despuesDe) {
+        List<ProductoResumen> lote;
+        do {
+            lote = productoRepository.findResumenDespuesDe(despuesDe, PageRequest.ofSize(LOTE_CARGA));
+            for (ProductoResumen producto : lote) {
+                registrar(producto);
+                despuesDe = producto.getIdProducto();
+            }
+        } while (lote.size() == LOTE_CARGA);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductoCambiado(ProductoCambiadoEvent event) {
+        ProductoVencimientoEvent aviso = null;
+        synchronized (this) {
+            if (!versiones.aceptar(event.getIdProducto(), event.getVersion())) {
+                // Llegó después de un cambio más reciente del mismo producto
+                return;
+            }
+            LocalDate antes = retirar(event.getIdProducto());
+            Producto producto = event.getProducto();
+            if (producto != null) {
+                ProductoResumen resumen = ProductoResumen.de(producto);
+                LocalDate despues = registrar(resumen);
+                ProductoVencimientoEvent.Tipo tipoAntes = tipoEn(antes, hoy());
+                ProductoVencimientoEvent.Tipo tipoDespues = tipoEn(despues, hoy());
+                // Solo se avisa cuando el cambio lo lleva a un umbral en el que no estaba
+                if (tipoDespues != null && tipoDespues != tipoAntes) {
+                    aviso = new ProductoVencimientoEvent(tipoDespues, resumen, despues);
+                }
+            }
+        }
+        if (aviso != null) {
+            eventPublisher.publishEvent(aviso);
+        }
+    }
+
+    /**
+     * Avanza el día actual: publica los productos que entraron en la ventana de
+     * aviso y los que vencieron desde la última revisión. Si la aplicación
+     * estuvo detenida a medianoche, se ponen al día todos los días pendientes.
+     */
+    @Scheduled(cron = "${senafood.vencimientos.revision-cron:0 0 0 * * *}")
+    public void revisar() {
+        List<ProductoVencimientoEvent> avisos = new ArrayList<>();
+        synchronized (this) {
+            LocalDate hoy = hoy();
+            if (ultimoDiaRevisado == null || !hoy.isAfter(ultimoDiaRevisado)) {
+                return;
+            }
+            // Vencieron: fecha en [último día revisado, hoy)
+            agregarAvisos(porDia.subMap(ultimoDiaRevisado, true, hoy, false),
+                ProductoVencimientoEvent.Tipo.VENCIDO, avisos);
+            // Entraron en la ventana: fecha en (último + aviso, hoy + aviso]
+            agregarAvisos(porDia.subMap(ultimoDiaRevisado.plusDays(diasAviso), false, hoy.plusDays(diasAviso), true),
+                ProductoVencimientoEvent.Tipo.POR_VENCER, avisos);
+            ultimoDiaRevisado = hoy;
+        }
+        avisos.forEach(eventPublisher::publishEvent);
+        System.out.println("⏳ Revisión de vencimientos: " + avisos.size() + " productos cruzaron un umbral");
+    }
+
+    /**
+     * Productos que vencen entre hoy y dentro de {@code dias} días (inclusive),
+     * ordenados por fecha de vencimiento.
+     */
+    public List<ProductoResumen> proximosAVencer(int dias) {
+        LocalDate hoy = hoy();
+        return aplanar(porDia.subMap(hoy, true, hoy.plusDays(Math.max(0, dias)), true));
+    }
+
+    /**
+     * Productos con fecha de vencimiento anterior a hoy, del más antiguo al más reciente.
+     */
+    public List<ProductoResumen> vencidos() {
+        return aplanar(porDia.headMap(hoy(), false));
+    }
+
+    /**
+     * Productos que vencen hasta la fecha indicada (inclusive), incluidos los ya vencidos.
+     */
+    public List<ProductoResumen> vencenHasta(LocalDate fecha) {
+        return aplanar(porDia.headMap(fecha, true));
+    }
+
+    public int getDiasAviso() {
+        return diasAviso;
+    }
+
+    private LocalDate registrar(ProductoResumen producto) {
+        LocalDate dia = aLocalDate(producto.getFechaVencimiento());
+        LocalDate anterior = diaPorId.remove(producto.getIdProducto());
+        if (anterior != null && !anterior.equals(dia)) {
+            quitarDeCubeta(anterior, producto.getIdProducto());
+        }
+        if (dia == null) {
+            return null;
+        }
+        porDia.computeIfAbsent(dia, d -> new ConcurrentSkipListMap<>()).put(producto.getIdProducto(), producto);
+        diaPorId.put(producto.getIdProducto(), dia);
+        return dia;
+    }
+
+    private LocalDate retirar(Long idProducto) {
+        LocalDate dia = diaPorId.remove(idProducto);
+        if (dia != null) {
+            quitarDeCubeta(dia, idProducto);
+        }
+        return dia;
+    }
+
+    private void quitarDeCubeta(LocalDate dia, Long idProducto) {
+        porDia.computeIfPresent(dia, (d, cubeta) -> {
+            cubeta.remove(idProducto);
+            return cubeta.isEmpty() ? null : cubeta;
+        });
+    }
+
+    private ProductoVencimientoEvent.Tipo tipoEn(LocalDate dia, LocalDate hoy) {
+        if (dia == null) {
+            return null;
+        }
+        if (dia.isBefore(hoy)) {
+            return ProductoVencimientoEvent.Tipo.VENCIDO;
+        }
+        return dia.isAfter(hoy.plusDays(diasAviso)) ? null : ProductoVencimientoEvent.Tipo.POR_VENCER;
+    }
+
+    private static void agregarAvisos(NavigableMap<LocalDate, ConcurrentSkipListMap<Long, ProductoResumen>> rango,
+                                      ProductoVencimientoEvent.Tipo tipo,
+                                      List<ProductoVencimientoEvent> avisos) {
+        for (Map.Entry<LocalDate, ConcurrentSkipListMap<Long, ProductoResumen>> cubeta : rango.entrySet()) {
+            for (ProductoResumen producto : cubeta.getValue().values()) {
+                avisos.add(new ProductoVencimientoEvent(tipo, producto, cubeta.getKey()));
+            }
+        }
+    }
+
+    private static List<ProductoResumen> aplanar(NavigableMap<LocalDate, ConcurrentSkipListMap<Long, ProductoResumen>> rango) {
+        List<ProductoResumen> productos = new ArrayList<>();
+        for (ConcurrentSkipListMap<Long, ProductoResumen> cubeta : rango.values()) {
+            productos.addAll(cubeta.values());
+        }
+        return productos;
+    }
+
+    private static LocalDate aLocalDate(Date fecha) {
+        if (fecha == null) {
+            return null;
+        }
+        // java.sql.Date no soporta toInstant()
+        if (fecha instanceof java.sql.Date) {
+            return ((java.sql.Date) fecha).toLocalDate();
+        }
+        return fecha.toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    private static LocalDate hoy() {
+        return LocalDate.now();
+    }
+}
@@ -0,0 +1,44 @@
+package com.senafood.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Última versión de ProductoCambiadoEvent aplicada por un índice a cada
+ * producto. Un evento con una versión anterior llegó tarde (otra
+ * transacción del mismo producto confirmó después y ya se aplicó) y se
+ * descarta. Las versiones de los productos eliminados se conservan para que un
+ * evento atrasado no los vuelva a agregar.
+ */
+public class VersionesProducto {
+
+    // Versión de las cargas desde la base de datos: no pisan lo que ya aplicó
+    // un evento, pero sí otra carga
+    public static final long CARGA = 0L;
+
+    private final Map<Long, Long> versiones = new ConcurrentHashMap<>();
+
+    /**
+     * Registra la versión y retorna true si no es anterior a la última aplicada
+     * al producto. Para índices que aplican sus cambios bajo su propio candado;
+     * los que no tienen uno usan aplicar().
+     */
+    public boolean aceptar(Long idProducto, long version) {
+        return versiones.merge(idProducto, version, Math::max) == version;
+    }
+
+    /**
+     * Ejecuta el cambio si la versión no es anterior a la última aplicada al
+     * producto. Se hace de forma atómica por producto: dos eventos del mismo
+     * producto no se aplican a la vez.
+     */
+    public void aplicar(Long idProducto, long version, Runnable cambio) {
+        versiones.compute(idProducto, (id, ultima) -> {
+            if (ultima != null && ultima > version) {
+                return ultima;
+            }
+            cambio.run();
+            return version;
+        });
+    }
+}
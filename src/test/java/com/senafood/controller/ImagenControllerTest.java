@@ -0,0 +1,165 @@
+package com.senafood.controller;
+
+import com.senafood.service.ImagenProductoService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Respuestas condicionales y por rango de /imagenes: 304 con If-None-Match,
+ * 206 con Range e If-Range, y 416 cuando el rango cae fuera del archivo.
+ */
+class ImagenControllerTest {
+
+	private static final String CARPETA = "ab";
+	private static final String ARCHIVO = "abcdef-400.jpg";
+	private static final String ETAG = "\"abcdef-400\"";
+	private static final byte[] CONTENIDO = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+	@TempDir
+	Path almacen;
+
+	private final ImagenProductoService imagenProductoService = mock(ImagenProductoService.class);
+	private final ImagenController controller = new ImagenController(imagenProductoService);
+
+	@BeforeEach
+	void preparar() throws Exception {
+		Path ruta = Files.write(almacen.resolve(ARCHIVO), CONTENIDO);
+		when(imagenProductoService.ruta(ARCHIVO)).thenReturn(ruta);
+	}
+
+	@Test
+	void sinEncabezadosEnviaElArchivoCompleto() throws Exception {
+		MockHttpServletResponse response = servir(get());
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo(ETAG);
+		assertThat(response.getContentType()).isEqualTo("image/jpeg");
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENIDO);
+	}
+
+	@Test
+	void etagConocidoResponde304SinCuerpo() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"otro\", W/" + ETAG);
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(304);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void rangoAcotadoResponde206() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 2-5/10");
+		assertThat(response.getContentLengthLong()).isEqualTo(4);
+		assertThat(response.getContentAsByteArray()).containsExactly(2, 3, 4, 5);
+	}
+
+	@Test
+	void rangoSufijoEnviaLosUltimosBytes() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, "bytes=-3");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 7-9/10");
+		assertThat(response.getContentAsByteArray()).containsExactly(7, 8, 9);
+	}
+
+	@Test
+	void rangoFueraDelArchivoResponde416() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(416);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */10");
+	}
+
+	@Test
+	void ifRangeConOtraVersionEnviaElArchivoCompleto() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+		request.addHeader(HttpHeaders.IF_RANGE, "\"otra-version\"");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENIDO);
+	}
+
+	@Test
+	void variosRangosSeIgnoranYSeEnviaCompleto() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, "bytes=0-1,4-5");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENIDO);
+	}
+
+	@Test
+	void rangoInvertidoSeIgnoraYSeEnviaCompleto() throws Exception {
+		MockHttpServletRequest request = get();
+		request.addHeader(HttpHeaders.RANGE, "bytes=500-100");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(200);
+		assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isNull();
+		assertThat(response.getContentAsByteArray()).isEqualTo(CONTENIDO);
+	}
+
+	@Test
+	void conSendfileDelegaElRangoAlConector() throws Exception {
+		MockHttpServletRequest request = get();
+		request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+		request.addHeader(HttpHeaders.RANGE, "bytes=2-5");
+
+		MockHttpServletResponse response = servir(request);
+
+		assertThat(response.getStatus()).isEqualTo(206);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(2L);
+		assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(6L);
+		assertThat(response.getContentAsByteArray()).isEmpty();
+	}
+
+	@Test
+	void archivoDeOtraCarpetaResponde404() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.servir("zz", ARCHIVO, get(), response);
+
+		assertThat(response.getStatus()).isEqualTo(404);
+	}
+
+	private MockHttpServletRequest get() {
+		return new MockHttpServletRequest("GET", "/imagenes/" + CARPETA + "/" + ARCHIVO);
+	}
+
+	private MockHttpServletResponse servir(MockHttpServletRequest request) throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.servir(CARPETA, ARCHIVO, request, response);
+		return response;
+	}
+}
@@ -0,0 +1,89 @@
+package com.senafood.service;
+
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.PedidoRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Límites del almacén de carritos: actualizar respeta los mismos topes que
+ * agregar y el carrito de uso más antiguo se descarta al llegar al máximo.
+ */
+class CarritoServiceTest {
+
+	private static final int MAX_CARRITOS = 2;
+	private static final int MAX_LINEAS = 2;
+	private static final int MAX_CANTIDAD = 5;
+
+	private final CatalogoCache catalogoCache = mock(CatalogoCache.class);
+	private final CarritoService carritoService = new CarritoService(catalogoCache, mock(PrecioService.class),
+		mock(ProcesadorPedidos.class), mock(PedidoRepository.class), mock(UbicacionService.class),
+		1000, 120, MAX_CARRITOS, MAX_LINEAS, MAX_CANTIDAD);
+
+	@BeforeEach
+	void preparar() {
+		for (long id = 1; id <= 3; id++) {
+			when(catalogoCache.buscar(id)).thenReturn(producto(id, 3));
+		}
+	}
+
+	@Test
+	void actualizarSinCarritoNoLoCrea() {
+		carritoService.actualizar("ana", 1L, 2);
+
+		assertThat(carritoService.getTotalCarritos()).isZero();
+	}
+
+	@Test
+	void actualizarProductoFueraDelCatalogoLoQuita() {
+		carritoService.agregar("ana", 1L, 1);
+		when(catalogoCache.buscar(anyLong())).thenReturn(null);
+
+		carritoService.actualizar("ana", 1L, 2);
+		carritoService.actualizar("ana", 999L, 50);
+
+		assertThat(carritoService.ver("ana").isVacio()).isTrue();
+	}
+
+	@Test
+	void actualizarRespetaLineasYCantidad() {
+		carritoService.agregar("ana", 1L, 1);
+		carritoService.actualizar("ana", 2L, 1);
+
+		assertThatThrownBy(() -> carritoService.actualizar("ana", 3L, 1))
+			.hasMessageContaining("hasta " + MAX_LINEAS);
+
+		// El stock (3) es menor que el máximo por línea
+		carritoService.actualizar("ana", 1L, 40);
+		assertThat(carritoService.ver("ana").getLineas())
+			.filteredOn(linea -> linea.getIdProducto().equals(1L))
+			.singleElement()
+			.satisfies(linea -> assertThat(linea.getCantidad()).isEqualTo(3));
+	}
+
+	@Test
+	void alLlegarAlMaximoSeDescartaElDeUsoMasAntiguo() {
+		carritoService.agregar("ana", 1L, 1);
+		carritoService.agregar("beto", 1L, 1);
+		// Usar el de ana lo deja como el más reciente
+		carritoService.ver("ana");
+
+		carritoService.agregar("carla", 1L, 1);
+
+		assertThat(carritoService.getTotalCarritos()).isEqualTo(MAX_CARRITOS);
+		assertThat(carritoService.ver("ana").isVacio()).isFalse();
+		assertThat(carritoService.ver("beto").isVacio()).isTrue();
+	}
+
+	private static ProductoResumen producto(long id, int stock) {
+		return new ProductoResumen(id, "Producto " + id, null, BigDecimal.TEN, stock, null, null, null, "activo", null);
+	}
+}
@@ -0,0 +1,154 @@
+package com.senafood.service;
+
+import com.senafood.model.PaginaKeyset;
+import com.senafood.model.Producto;
+import com.senafood.model.ProductoResumen;
+import com.senafood.repository.ProductoRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Pageable;
+
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Paginación keyset del catálogo en memoria: bordes de la primera y la última
+ * página al avanzar y retroceder, cambios de producto entre páginas y cambios
+ * que llegan en otro orden que sus commits.
+ */
+class CatalogoCacheTest {
+
+	private final ProductoRepository productoRepository = mock(ProductoRepository.class);
+
+	@Test
+	void avanzaHastaLaUltimaPagina() {
+		CatalogoCache catalogo = cargar(7);
+
+		PaginaKeyset<ProductoResumen> primera = catalogo.getPagina(null, null, 3);
+		assertThat(ids(primera)).containsExactly(1L, 2L, 3L);
+		assertThat(primera.isHayAnterior()).isFalse();
+		assertThat(primera.getSiguienteId()).isEqualTo(3L);
+
+		PaginaKeyset<ProductoResumen> segunda = catalogo.getPagina(primera.getSiguienteId(), null, 3);
+		assertThat(ids(segunda)).containsExactly(4L, 5L, 6L);
+		assertThat(segunda.getAnteriorId()).isEqualTo(4L);
+		assertThat(segunda.getSiguienteId()).isEqualTo(6L);
+
+		PaginaKeyset<ProductoResumen> ultima = catalogo.getPagina(segunda.getSiguienteId(), null, 3);
+		assertThat(ids(ultima)).containsExactly(7L);
+		assertThat(ultima.getAnteriorId()).isEqualTo(7L);
+		assertThat(ultima.isHaySiguiente()).isFalse();
+	}
+
+	@Test
+	void retrocedeHastaLaPrimeraPagina() {
+		CatalogoCache catalogo = cargar(7);
+
+		PaginaKeyset<ProductoResumen> segunda = catalogo.getPagina(null, 7L, 3);
+		assertThat(ids(segunda)).containsExactly(4L, 5L, 6L);
+		assertThat(segunda.getAnteriorId()).isEqualTo(4L);
+		assertThat(segunda.getSiguienteId()).isEqualTo(6L);
+
+		PaginaKeyset<ProductoResumen> primera = catalogo.getPagina(null, segunda.getAnteriorId(), 3);
+		assertThat(ids(primera)).containsExactly(1L, 2L, 3L);
+		assertThat(primera.isHayAnterior()).isFalse();
+		assertThat(primera.getSiguienteId()).isEqualTo(3L);
+	}
+
+	@Test
+	void paginaExactaNoOfreceSiguiente() {
+		CatalogoCache catalogo = cargar(6);
+
+		PaginaKeyset<ProductoResumen> ultima = catalogo.getPagina(3L, null, 3);
+		assertThat(ids(ultima)).containsExactly(4L, 5L, 6L);
+		assertThat(ultima.isHaySiguiente()).isFalse();
+
+		PaginaKeyset<ProductoResumen> vacia = catalogo.getPagina(6L, null, 3);
+		assertThat(vacia.getContenido()).isEmpty();
+		assertThat(vacia.isHayAnterior()).isFalse();
+		assertThat(vacia.isHaySiguiente()).isFalse();
+	}
+
+	@Test
+	void productoAgotadoSaleDelCatalogoSinRomperElCursor() {
+		CatalogoCache catalogo = cargar(7);
+
+		catalogo.onProductoCambiado(ProductoCambiadoEvent.stock(resumen(3L, 0), -10));
+		assertThat(catalogo.buscar(3L)).isNull();
+		assertThat(catalogo.getTotal()).isEqualTo(6);
+
+		// El id del cursor ya no está en el catálogo: se sigue desde el siguiente
+		PaginaKeyset<ProductoResumen> segunda = catalogo.getPagina(3L, null, 3);
+		assertThat(ids(segunda)).containsExactly(4L, 5L, 6L);
+
+		PaginaKeyset<ProductoResumen> primera = catalogo.getPagina(null, 4L, 3);
+		assertThat(ids(primera)).containsExactly(1L, 2L);
+		assertThat(primera.isHayAnterior()).isFalse();
+
+		catalogo.onProductoCambiado(ProductoCambiadoEvent.stock(resumen(3L, 5), 5));
+		assertThat(catalogo.buscar(3L).getStock()).isEqualTo(5);
+		assertThat(catalogo.getTotal()).isEqualTo(7);
+	}
+
+	@Test
+	void cambioQueLlegaTardeNoPisaAlMasReciente() {
+		CatalogoCache catalogo = cargar(3);
+
+		// Confirmadas en este orden, pero el listener de la primera corre último
+		ProductoCambiadoEvent agotado = ProductoCambiadoEvent.stock(resumen(2L, 0), -10);
+		ProductoCambiadoEvent repuesto = ProductoCambiadoEvent.stock(resumen(2L, 4), 4);
+		catalogo.onProductoCambiado(repuesto);
+		catalogo.onProductoCambiado(agotado);
+
+		assertThat(catalogo.buscar(2L).getStock()).isEqualTo(4);
+		assertThat(catalogo.getTotal()).isEqualTo(3);
+	}
+
+	@Test
+	void productoEliminadoNoVuelveConUnCambioAtrasado() {
+		CatalogoCache catalogo = cargar(3);
+
+		ProductoCambiadoEvent vendido = ProductoCambiadoEvent.stock(resumen(2L, 9), -1);
+		ProductoCambiadoEvent eliminado = ProductoCambiadoEvent.eliminado(producto(2L, 9));
+		catalogo.onProductoCambiado(eliminado);
+		catalogo.onProductoCambiado(vendido);
+
+		assertThat(catalogo.buscar(2L)).isNull();
+		assertThat(catalogo.getTotal()).isEqualTo(2);
+	}
+
+	private CatalogoCache cargar(int productos) {
+		List<ProductoResumen> filas = LongStream.rangeClosed(1, productos)
+			.mapToObj(id -> ProductoResumen.de(producto(id, 10)))
+			.toList();
+		when(productoRepository.findCatalogoDespuesDe(anyLong(), any(Pageable.class))).thenReturn(List.of());
+		when(productoRepository.findCatalogoDespuesDe(eq(0L), any(Pageable.class))).thenReturn(filas);
+
+		CatalogoCache catalogo = new CatalogoCache(productoRepository);
+		catalogo.recargar();
+		return catalogo;
+	}
+
+	private static Producto producto(long id, int stock) {
+		Producto producto = new Producto();
+		producto.setIdProducto(id);
+		producto.setNombre("Producto " + id);
+		producto.setEstado("activo");
+		producto.setStock(stock);
+		return producto;
+	}
+
+	private static ProductoResumen resumen(long id, int stock) {
+		return ProductoResumen.de(producto(id, stock));
+	}
+
+	private static List<Long> ids(PaginaKeyset<ProductoResumen> pagina) {
+		return pagina.getContenido().stream().map(ProductoResumen::getIdProducto).toList();
+	}
+}
@@ -0,0 +1,222 @@
+package com.senafood.service;
+
+import com.senafood.repository.ProductoRepository;
+import com.senafood.repository.StockUbicacionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Diario de la escritura diferida de stock: solo se reaplican tras una caída
+ * las transacciones confirmadas y aún no volcadas, y el contador no vende más
+ * de lo que hay.
+ */
+class EscrituraDiferidaStockTest {
+
+	private static final Long PRODUCTO = 1L;
+	private static final Integer UBICACION = 1;
+
+	@TempDir
+	Path diario;
+
+	private final ProductoRepository productoRepository = mock(ProductoRepository.class);
+	private final StockUbicacionRepository stockUbicacionRepository = mock(StockUbicacionRepository.class);
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final TransaccionesEnMemoria transacciones = new TransaccionesEnMemoria();
+	private final TransactionTemplate transactionTemplate = new TransactionTemplate(transacciones);
+
+	// Filas de transaccion_stock
+	private final List<Long> confirmadas = Collections.synchronizedList(new ArrayList<>());
+	// Filas enviadas al UPDATE de stock_ubicacion: {cantidad, idProducto, idUbicacion}
+	private final List<Object[]> volcadas = Collections.synchronizedList(new ArrayList<>());
+
+	@BeforeEach
+	void preparar() {
+		when(productoRepository.findStockById(PRODUCTO)).thenReturn(10);
+		when(stockUbicacionRepository.findStock(PRODUCTO, UBICACION)).thenReturn(10);
+		when(jdbcTemplate.queryForList(startsWith("SELECT id FROM transaccion_stock"), eq(Long.class)))
+			.thenAnswer(inv -> new ArrayList<>(confirmadas));
+		doAnswer(inv -> {
+			if (transacciones.fallarConfirmacion) {
+				throw new IllegalStateException("Sin conexión");
+			}
+			confirmadas.add(inv.getArgument(1));
+			return 1;
+		}).when(jdbcTemplate).update(startsWith("INSERT INTO transaccion_stock"), any(Object.class));
+		doAnswer(inv -> {
+			List<Object[]> filas = inv.getArgument(1);
+			volcadas.addAll(filas);
+			return new int[filas.size()];
+		}).when(jdbcTemplate).batchUpdate(startsWith("UPDATE stock_ubicacion"), anyList());
+		doAnswer(inv -> {
+			List<Object[]> filas = inv.getArgument(1);
+			filas.forEach(fila -> confirmadas.remove(fila[0]));
+			return new int[filas.size()];
+		}).when(jdbcTemplate).batchUpdate(startsWith("DELETE FROM transaccion_stock"), anyList());
+	}
+
+	@Test
+	void reservaConfirmadaSinVolcarSeReaplicaAlArrancar() {
+		EscrituraDiferidaStock antes = nueva();
+		assertThat(reservarEnTransaccion(antes, 3)).isTrue();
+		assertThat(confirmadas).hasSize(1);
+		// Caída: no se llega a volcar
+
+		nueva();
+
+		assertThat(volcadas).hasSize(1);
+		assertThat(volcadas.get(0)).containsExactly(-3, PRODUCTO, UBICACION);
+		assertThat(confirmadas).isEmpty();
+	}
+
+	@Test
+	void transaccionRevertidaTrasEscribirElDiarioNoSeReaplica() {
+		EscrituraDiferidaStock antes = nueva();
+		transacciones.fallarConfirmacion = true;
+		assertThatThrownBy(() -> reservarEnTransaccion(antes, 4)).isInstanceOf(IllegalStateException.class);
+		transacciones.fallarConfirmacion = false;
+
+		// Las unidades vuelven al contador y el diario no cuenta como confirmado
+		assertThat(antes.disponible(PRODUCTO, UBICACION)).isEqualTo(10);
+		nueva();
+
+		assertThat(volcadas).isEmpty();
+		verify(jdbcTemplate, never()).batchUpdate(startsWith("UPDATE stock_ubicacion"), anyList());
+	}
+
+	@Test
+	void reservaRevertidaPorElLlamadorNoSeAnota() {
+		EscrituraDiferidaStock escritura = nueva();
+		assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(estado -> {
+			escritura.reservar(PRODUCTO, UBICACION, 2);
+			throw new IllegalArgumentException("Pedido inválido");
+		})).isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(escritura.disponible(PRODUCTO, UBICACION)).isEqualTo(10);
+		assertThat(confirmadas).isEmpty();
+		escritura.volcar();
+		assertThat(volcadas).isEmpty();
+	}
+
+	@Test
+	void loVolcadoNoSeReaplicaDosVeces() {
+		EscrituraDiferidaStock antes = nueva();
+		reservarEnTransaccion(antes, 2);
+		antes.volcar();
+		assertThat(volcadas).hasSize(1);
+		assertThat(confirmadas).isEmpty();
+
+		nueva();
+
+		assertThat(volcadas).hasSize(1);
+	}
+
+	@Test
+	void sumaSoloLlegaAlContadorAlConfirmar() {
+		EscrituraDiferidaStock escritura = nueva();
+		transactionTemplate.executeWithoutResult(estado -> {
+			escritura.disponible(PRODUCTO, UBICACION);
+			escritura.sumar(PRODUCTO, UBICACION, 5);
+			assertThat(escritura.disponible(PRODUCTO, UBICACION)).isEqualTo(10);
+		});
+		assertThat(escritura.disponible(PRODUCTO, UBICACION)).isEqualTo(15);
+	}
+
+	@Test
+	void reservasConcurrentesNoVendenMasQueElStock() throws Exception {
+		EscrituraDiferidaStock escritura = nueva();
+		int hilos = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(hilos);
+		CountDownLatch salida = new CountDownLatch(1);
+		AtomicInteger vendidas = new AtomicInteger();
+		try {
+			for (int i = 0; i < hilos; i++) {
+				executor.submit(() -> {
+					salida.await();
+					for (int j = 0; j < 5; j++) {
+						if (reservarEnTransaccion(escritura, 1)) {
+							vendidas.incrementAndGet();
+						}
+					}
+					return null;
+				});
+			}
+			salida.countDown();
+		} finally {
+			executor.shutdown();
+			assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+		}
+
+		assertThat(vendidas.get()).isEqualTo(10);
+		assertThat(escritura.disponible(PRODUCTO, UBICACION)).isZero();
+		assertThat(confirmadas).hasSize(10);
+		assertThat(escritura.disponibleTotal(PRODUCTO)).isZero();
+	}
+
+	private EscrituraDiferidaStock nueva() {
+		EscrituraDiferidaStock escritura = new EscrituraDiferidaStock(productoRepository, stockUbicacionRepository,
+			mock(LoteService.class), jdbcTemplate, transactionTemplate, transacciones,
+			mock(ApplicationEventPublisher.class), true, diario.toString());
+		escritura.recuperar();
+		return escritura;
+	}
+
+	private boolean reservarEnTransaccion(EscrituraDiferidaStock escritura, int cantidad) {
+		return Boolean.TRUE.equals(transactionTemplate.execute(
+			estado -> escritura.reservar(PRODUCTO, UBICACION, cantidad)));
+	}
+
+	/**
+	 * Gestor de transacciones sin base de datos: solo corre las sincronizaciones
+	 * (beforeCommit / afterCompletion) como lo haría uno real.
+	 */
+	private static final class TransaccionesEnMemoria extends AbstractPlatformTransactionManager {
+
+		private volatile boolean fallarConfirmacion;
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaccion, TransactionDefinition definicion) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus estado) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus estado) {
+		}
+	}
+}
@@ -0,0 +1,100 @@
+package com.senafood.service;
+
+import com.senafood.model.VigenciaPromocion;
+import com.senafood.repository.PromocionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Búsqueda de promociones superpuestas en el índice de intervalos: extremos
+ * incluidos, rangos sin límite y exclusión de la promoción que se edita.
+ */
+class PrecioServiceTest {
+
+	private static final Long PRODUCTO = 1L;
+
+	// Ordenadas por inicio: enero, desde febrero sin fin, y una dentro de la anterior en marzo
+	private static final VigenciaPromocion ENERO = promocion(1, fecha(1, 10), fecha(1, 20));
+	private static final VigenciaPromocion DESDE_FEBRERO = promocion(2, fecha(2, 1), null);
+	private static final VigenciaPromocion MARZO = promocion(3, fecha(3, 1), fecha(3, 5));
+
+	private final PromocionRepository promocionRepository = mock(PromocionRepository.class);
+	private final PrecioService precioService = new PrecioService(promocionRepository);
+
+	@BeforeEach
+	void cargar() {
+		when(promocionRepository.findVigencias()).thenReturn(List.of(MARZO, ENERO, DESDE_FEBRERO));
+		precioService.cargar();
+	}
+
+	@Test
+	void rangoEnUnHuecoNoSeSuperpone() {
+		assertThat(superpuesta(fecha(1, 21), fecha(1, 31), null)).isNull();
+		assertThat(superpuesta(fecha(1, 1), fecha(1, 9), null)).isNull();
+	}
+
+	@Test
+	void losExtremosCuentanComoSuperposicion() {
+		assertThat(superpuesta(fecha(1, 20), fecha(1, 25), null)).isSameAs(ENERO);
+		assertThat(superpuesta(fecha(1, 1), fecha(1, 10), null)).isSameAs(ENERO);
+		assertThat(superpuesta(fecha(1, 25), fecha(2, 1), null)).isSameAs(DESDE_FEBRERO);
+	}
+
+	@Test
+	void rangosSinLimiteSeSuperponen() {
+		assertThat(superpuesta(null, fecha(1, 10), null)).isSameAs(ENERO);
+		assertThat(superpuesta(fecha(1, 25), null, null)).isSameAs(DESDE_FEBRERO);
+		assertThat(superpuesta(fecha(2024, 1, 1), fecha(2024, 12, 31), null)).isNull();
+	}
+
+	@Test
+	void laPromocionEditadaNoChocaConsigoMisma() {
+		assertThat(superpuesta(fecha(1, 12), fecha(1, 15), 1)).isNull();
+		assertThat(superpuesta(fecha(1, 12), fecha(1, 15), 2)).isSameAs(ENERO);
+	}
+
+	@Test
+	void alExcluirLaDeMayorFinSeRevisaLaSiguiente() {
+		// DESDE_FEBRERO tiene el mayor fin; al editarla, MARZO sigue chocando
+		assertThat(superpuesta(fecha(3, 2), fecha(3, 3), 2)).isSameAs(MARZO);
+		assertThat(superpuesta(fecha(3, 2), fecha(3, 3), 3)).isSameAs(DESDE_FEBRERO);
+		assertThat(superpuesta(fecha(3, 10), fecha(3, 12), 2)).isNull();
+	}
+
+	@Test
+	void productoSinPromocionesNoSeSuperpone() {
+		assertThat(precioService.buscarSuperpuesta(99L, null, null, null)).isNull();
+	}
+
+	@Test
+	void promocionEliminadaDejaDeChocar() {
+		precioService.quitar(DESDE_FEBRERO.getIdPromocion());
+
+		assertThat(superpuesta(fecha(3, 10), fecha(3, 12), null)).isNull();
+		assertThat(superpuesta(fecha(3, 2), fecha(3, 3), null)).isSameAs(MARZO);
+	}
+
+	private VigenciaPromocion superpuesta(LocalDate inicio, LocalDate fin, Integer excluir) {
+		return precioService.buscarSuperpuesta(PRODUCTO, inicio, fin, excluir);
+	}
+
+	private static VigenciaPromocion promocion(int id, LocalDate inicio, LocalDate fin) {
+		return new VigenciaPromocion(id, PRODUCTO, "Promoción " + id, BigDecimal.ONE, inicio, fin);
+	}
+
+	private static LocalDate fecha(int mes, int dia) {
+		return fecha(2025, mes, dia);
+	}
+
+	private static LocalDate fecha(int anio, int mes, int dia) {
+		return LocalDate.of(anio, mes, dia);
+	}
+}
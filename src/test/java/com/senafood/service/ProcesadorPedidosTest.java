@@ -0,0 +1,196 @@
+package com.senafood.service;
+
+import com.senafood.model.Pedido;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Commit agrupado de pedidos: dentro de un grupo, un pedido sin stock se
+ * rechaza solo, y si la transacción del grupo falla se reintenta pedido por
+ * pedido para aislar el que falló.
+ */
+class ProcesadorPedidosTest {
+
+	private static final Integer UBICACION = 1;
+	// Producto del primer pedido: se retiene en vender() para que los demás formen un grupo
+	private static final Long RETENIDO = 1L;
+
+	private final InventoryService inventoryService = mock(InventoryService.class);
+	private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+	private final TransactionTemplate transactionTemplate = new TransactionTemplate(new TransaccionesEnMemoria());
+	private final ProcesadorPedidos procesador =
+		new ProcesadorPedidos(inventoryService, jdbcTemplate, transactionTemplate, 32, 100);
+
+	private final CountDownLatch retenido = new CountDownLatch(1);
+	private final CountDownLatch liberar = new CountDownLatch(1);
+	private final AtomicLong ids = new AtomicLong();
+	// Productos de cada lote de detalles enviado a la base de datos
+	private final List<Set<Long>> lotesDetalle = Collections.synchronizedList(new ArrayList<>());
+
+	private volatile Set<Long> sinStock = Set.of();
+	private volatile Long fallaAlInsertar;
+
+	@BeforeEach
+	void preparar() throws Exception {
+		when(inventoryService.vender(anyMap(), any())).thenAnswer(inv -> {
+			Map<Long, Integer> cantidades = inv.getArgument(0);
+			if (cantidades.containsKey(RETENIDO)) {
+				retenido.countDown();
+				liberar.await(5, TimeUnit.SECONDS);
+			}
+			return Collections.disjoint(cantidades.keySet(), sinStock);
+		});
+
+		ResultSet claves = mock(ResultSet.class);
+		when(claves.next()).thenReturn(true);
+		when(claves.getLong(1)).thenAnswer(inv -> ids.incrementAndGet());
+		PreparedStatement sentencia = mock(PreparedStatement.class);
+		when(sentencia.getGeneratedKeys()).thenReturn(claves);
+		Connection conexion = mock(Connection.class);
+		when(conexion.prepareStatement(anyString(), anyInt())).thenReturn(sentencia);
+		when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+			.thenAnswer(inv -> inv.<ConnectionCallback<?>>getArgument(0).doInConnection(conexion));
+
+		doAnswer(inv -> {
+			List<Object[]> filas = inv.getArgument(1);
+			Set<Long> productos = new HashSet<>();
+			filas.forEach(fila -> productos.add((Long) fila[1]));
+			lotesDetalle.add(productos);
+			if (productos.contains(fallaAlInsertar)) {
+				throw new IllegalStateException("Violación de clave foránea");
+			}
+			return new int[filas.size()];
+		}).when(jdbcTemplate).batchUpdate(startsWith("INSERT INTO pedido_detalle"), anyList());
+
+		procesador.iniciar();
+	}
+
+	@AfterEach
+	void detener() throws Exception {
+		liberar.countDown();
+		procesador.detener();
+	}
+
+	@Test
+	void pedidoSinStockSeRechazaSinAfectarAlGrupo() throws Exception {
+		sinStock = Set.of(12L);
+
+		List<CompletableFuture<Pedido>> grupo = encolarTrasRetenido(11L, 12L, 13L);
+
+		assertThat(esperar(grupo.get(0)).getIdPedido()).isNotNull();
+		assertThatThrownBy(() -> esperar(grupo.get(1)))
+			.hasMessage("Stock insuficiente para uno o más productos del pedido");
+		assertThat(esperar(grupo.get(2)).getIdPedido()).isNotNull();
+		// Un solo lote de detalles para el grupo, solo con los pedidos aceptados
+		assertThat(lotesDetalle).containsExactly(Set.of(RETENIDO), Set.of(11L, 13L));
+	}
+
+	@Test
+	void grupoFallidoSeReintentaPedidoPorPedido() throws Exception {
+		fallaAlInsertar = 12L;
+
+		List<CompletableFuture<Pedido>> grupo = encolarTrasRetenido(11L, 12L, 13L);
+
+		assertThat(esperar(grupo.get(0)).getIdPedido()).isNotNull();
+		assertThatThrownBy(() -> esperar(grupo.get(1)))
+			.hasRootCauseMessage("Violación de clave foránea");
+		assertThat(esperar(grupo.get(2)).getIdPedido()).isNotNull();
+		assertThat(lotesDetalle).containsExactly(
+			Set.of(RETENIDO), Set.of(11L, 12L, 13L), Set.of(11L), Set.of(12L), Set.of(13L));
+	}
+
+	@Test
+	void pedidoVacioSeRechazaSinEncolar() {
+		assertThat(procesador.encolar(new Pedido("ana", UBICACION))).isCompletedExceptionally();
+		assertThat(procesador.getEnCola()).isZero();
+	}
+
+	/**
+	 * Encola un pedido que queda retenido en vender() y, mientras tanto, un
+	 * pedido por cada producto, que se confirman juntos en el grupo siguiente.
+	 */
+	private List<CompletableFuture<Pedido>> encolarTrasRetenido(Long... productos) throws Exception {
+		CompletableFuture<Pedido> primero = procesador.encolar(pedido(RETENIDO));
+		assertThat(retenido.await(5, TimeUnit.SECONDS)).isTrue();
+		List<CompletableFuture<Pedido>> grupo = new ArrayList<>();
+		for (Long producto : productos) {
+			grupo.add(procesador.encolar(pedido(producto)));
+		}
+		liberar.countDown();
+		esperar(primero);
+		return grupo;
+	}
+
+	private static Pedido pedido(Long producto) {
+		Pedido pedido = new Pedido("cliente" + producto, UBICACION);
+		pedido.agregarDetalle(producto, 1, BigDecimal.TEN);
+		return pedido;
+	}
+
+	private static Pedido esperar(CompletableFuture<Pedido> resultado) throws Exception {
+		try {
+			return resultado.get(5, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			throw (Exception) e.getCause();
+		}
+	}
+
+	/**
+	 * Gestor de transacciones sin base de datos: basta con que execute() propague
+	 * la excepción del grupo.
+	 */
+	private static final class TransaccionesEnMemoria extends AbstractPlatformTransactionManager {
+
+		@Override
+		protected Object doGetTransaction() {
+			return new Object();
+		}
+
+		@Override
+		protected void doBegin(Object transaccion, TransactionDefinition definicion) {
+		}
+
+		@Override
+		protected void doCommit(DefaultTransactionStatus estado) {
+		}
+
+		@Override
+		protected void doRollback(DefaultTransactionStatus estado) {
+		}
+	}
+}